@@ -0,0 +1,74 @@
+package com.kucw.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.kucw.DemoConcurrencyApplication;
+
+/**
+ * Utilerías comunes de los benchmarks: arranque del contexto sin servidor web y cálculo de percentiles.
+ */
+final class BenchmarkSupport {
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * Arranca la aplicación sin servidor web sobre una base H2 en memoria propia del benchmark.
+	 * Las propiedades se pasan como argumentos de línea de comandos para que prevalezcan sobre
+	 * application.properties.
+	 *
+	 * @param baseDatos  nombre de la base H2 en memoria
+	 * @param propiedades propiedades adicionales en formato clave=valor
+	 * @return contexto de la aplicación
+	 */
+	static ConfigurableApplicationContext iniciar(String baseDatos, String... propiedades) {
+		return iniciarEn("jdbc:h2:mem:" + baseDatos + ";DB_CLOSE_ON_EXIT=FALSE", propiedades);
+	}
+
+	/**
+	 * Arranca la aplicación sin servidor web sobre la base de datos indicada, por ejemplo una base
+	 * H2 en modo servidor compartida por varios contextos que simulan nodos distintos.
+	 *
+	 * @param url         URL JDBC de la base de datos
+	 * @param propiedades propiedades adicionales en formato clave=valor
+	 * @return contexto de la aplicación
+	 */
+	static ConfigurableApplicationContext iniciarEn(String url, String... propiedades) {
+		List<String> todas = new ArrayList<>();
+		todas.add("spring.datasource.jdbcUrl=" + url);
+		todas.add("lock.cleanup.interval.ms=86400000");
+		todas.add("lock.cleanup.min.interval.ms=86400000");
+		todas.add("logging.level.root=WARN");
+		todas.addAll(Arrays.asList(propiedades));
+		String[] argumentos = new String[todas.size()];
+		for (int i = 0; i < argumentos.length; i++) {
+			argumentos[i] = "--" + todas.get(i);
+		}
+		return new SpringApplicationBuilder(DemoConcurrencyApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(argumentos);
+	}
+
+	/**
+	 * Percentil de un conjunto de muestras en nanosegundos, expresado en microsegundos.
+	 *
+	 * @param muestras   muestras en nanosegundos
+	 * @param percentil  percentil entre 0 y 1
+	 * @return valor del percentil en microsegundos
+	 */
+	static double percentil(long[] muestras, double percentil) {
+		if (muestras.length == 0) {
+			return 0;
+		}
+		long[] ordenadas = muestras.clone();
+		Arrays.sort(ordenadas);
+		int indice = (int) Math.min(ordenadas.length - 1, Math.ceil(percentil * ordenadas.length) - 1);
+		return ordenadas[Math.max(0, indice)] / 1_000.0;
+	}
+}
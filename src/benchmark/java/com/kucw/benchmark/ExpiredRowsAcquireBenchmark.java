@@ -0,0 +1,143 @@
+package com.kucw.benchmark;
+
+import static com.kucw.benchmark.BenchmarkSupport.percentil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import com.kucw.servicios.LockManagerService;
+
+/**
+ * Benchmark de latencia de adquisición frente al número de bloqueos expirados en
+ * TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS.
+ *
+ * Para cada motor (jpa y jdbc) se cargan niveles crecientes de filas expiradas que la tarea
+ * de limpieza no alcanza a eliminar, y se mide la adquisición y liberación de llaves nuevas y
+ * la toma en sitio de llaves expiradas. La latencia debe mantenerse plana al crecer el volumen.
+ *
+ * Uso: mvn -Pbenchmark test-compile exec:java -Dexec.args="jpa jdbc"
+ */
+public class ExpiredRowsAcquireBenchmark {
+
+	private static final String SQL_INSERTAR_EXPIRADO = "INSERT INTO TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS "
+			+ "(ID_BLOQUEO_DISTRIBUIDO, CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO, FC_INICIO_BLOQUEO, FC_EXPIRA_BLOQUEO, "
+			+ "CH_USUARIO_MODIFICADOR, CH_NOMBRE_SERVICIO, CH_PETICION_SIMULTANEA) VALUES "
+			+ "(SEQ_TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS.NEXTVAL, :llave, 'bench', :inicio, :expira, 'BENCH', 'BENCH', 'FALSE')";
+
+	private static final int[] NIVELES_EXPIRADOS = { 0, 10_000, 50_000, 200_000 };
+
+	private static final int ITERACIONES = 2_000;
+
+	private static final int CALENTAMIENTO = 500;
+
+	private static final int LOTE_INSERCION = 5_000;
+
+	public static void main(String[] args) {
+		List<String> motores = args.length > 0 ? Arrays.asList(args) : Arrays.asList("jpa", "jdbc");
+		for (String motor : motores) {
+			ejecutar(motor);
+		}
+	}
+
+	private static void ejecutar(String motor) {
+		ConfigurableApplicationContext context = BenchmarkSupport.iniciar("bench_" + motor, "lock.engine=" + motor);
+		try {
+			LockManagerService lockManager = context.getBean(LockManagerService.class);
+			NamedParameterJdbcTemplate jdbc = context.getBean("demoJdbcTemplate", NamedParameterJdbcTemplate.class);
+
+			System.out.println();
+			System.out.println("motor=" + motor);
+			System.out.println(String.format("%12s %14s %14s %14s %14s", "expirados", "nueva p50 us", "nueva p99 us",
+					"toma p50 us", "toma p99 us"));
+
+			int cargados = 0;
+			for (int nivel : NIVELES_EXPIRADOS) {
+				cargados = cargarExpirados(jdbc, cargados, nivel);
+
+				medirNuevas(lockManager, CALENTAMIENTO);
+				long[] nuevas = medirNuevas(lockManager, ITERACIONES);
+				long[] tomas = medirTomas(lockManager, jdbc, ITERACIONES);
+
+				System.out.println(String.format("%12d %14.1f %14.1f %14.1f %14.1f", nivel, percentil(nuevas, 0.50),
+						percentil(nuevas, 0.99), percentil(tomas, 0.50), percentil(tomas, 0.99)));
+			}
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * Inserta filas expiradas de llaves que no se vuelven a solicitar hasta alcanzar el nivel indicado.
+	 */
+	private static int cargarExpirados(NamedParameterJdbcTemplate jdbc, int cargados, int nivel) {
+		Date expira = new Date(System.currentTimeMillis() - 60_000L);
+		Date inicio = new Date(expira.getTime() - 30_000L);
+		while (cargados < nivel) {
+			int lote = Math.min(LOTE_INSERCION, nivel - cargados);
+			List<SqlParameterSource> params = new ArrayList<>(lote);
+			for (int i = 0; i < lote; i++) {
+				params.add(new MapSqlParameterSource().addValue("llave", "expirado:" + (cargados + i))
+						.addValue("inicio", inicio).addValue("expira", expira));
+			}
+			jdbc.batchUpdate(SQL_INSERTAR_EXPIRADO, params.toArray(new SqlParameterSource[0]));
+			cargados += lote;
+		}
+		return cargados;
+	}
+
+	/**
+	 * Mide la adquisición de llaves nuevas, liberando cada una al terminar.
+	 */
+	private static long[] medirNuevas(LockManagerService lockManager, int iteraciones) {
+		long[] muestras = new long[iteraciones];
+		for (int i = 0; i < iteraciones; i++) {
+			String llave = "certificacion:" + UUID.randomUUID();
+			String proceso = UUID.randomUUID().toString();
+			long inicio = System.nanoTime();
+			boolean adquirido = lockManager.acquireLock(llave, proceso, "{}");
+			muestras[i] = System.nanoTime() - inicio;
+			if (!adquirido) {
+				throw new IllegalStateException("No se adquirió la llave nueva " + llave);
+			}
+			lockManager.releaseLock(llave, proceso);
+		}
+		return muestras;
+	}
+
+	/**
+	 * Mide la toma en sitio de llaves cuyo bloqueo ya expiró.
+	 */
+	private static long[] medirTomas(LockManagerService lockManager, NamedParameterJdbcTemplate jdbc,
+			int iteraciones) {
+		String[] llaves = new String[iteraciones];
+		List<SqlParameterSource> params = new ArrayList<>(iteraciones);
+		Date expira = new Date(System.currentTimeMillis() - 60_000L);
+		for (int i = 0; i < iteraciones; i++) {
+			llaves[i] = "toma:" + UUID.randomUUID();
+			params.add(new MapSqlParameterSource().addValue("llave", llaves[i])
+					.addValue("inicio", new Date(expira.getTime() - 30_000L)).addValue("expira", expira));
+		}
+		jdbc.batchUpdate(SQL_INSERTAR_EXPIRADO, params.toArray(new SqlParameterSource[0]));
+
+		long[] muestras = new long[iteraciones];
+		for (int i = 0; i < iteraciones; i++) {
+			String proceso = UUID.randomUUID().toString();
+			long inicio = System.nanoTime();
+			boolean adquirido = lockManager.acquireLock(llaves[i], proceso, "{}");
+			muestras[i] = System.nanoTime() - inicio;
+			if (!adquirido) {
+				throw new IllegalStateException("No se tomó la llave expirada " + llaves[i]);
+			}
+			lockManager.releaseLock(llaves[i], proceso);
+		}
+		return muestras;
+	}
+}
@@ -0,0 +1,45 @@
+package com.kucw.benchmark;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Lanzador de los microbenchmarks JMH desde exec:java.
+ *
+ * exec:java ejecuta la clase dentro de la JVM de Maven, cuyo java.class.path no incluye el
+ * proyecto; JMH lo usa para arrancar las JVM de medición, por lo que antes de delegar en
+ * org.openjdk.jmh.Main se reemplaza por el classpath del cargador de clases del plugin.
+ *
+ * Los argumentos son los de JMH: un filtro opcional de benchmarks y opciones como -prof gc.
+ *
+ * Uso: mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.kucw.benchmark.JmhRunner
+ *      -Dexec.args="LockPathJmhBenchmark -prof gc"
+ */
+public final class JmhRunner {
+
+	private JmhRunner() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		ClassLoader cargador = Thread.currentThread().getContextClassLoader();
+		if (cargador instanceof URLClassLoader) {
+			List<String> rutas = new ArrayList<>();
+			for (URL url : ((URLClassLoader) cargador).getURLs()) {
+				rutas.add(ruta(url));
+			}
+			System.setProperty("java.class.path", StringUtils.join(rutas, File.pathSeparator));
+		}
+		org.openjdk.jmh.Main.main(args);
+	}
+
+	private static String ruta(URL url) throws URISyntaxException {
+		return Paths.get(url.toURI()).toString();
+	}
+}
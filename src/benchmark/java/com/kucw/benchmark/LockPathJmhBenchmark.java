@@ -0,0 +1,114 @@
+package com.kucw.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.kucw.servicios.ConcurrencyService;
+import com.kucw.servicios.LockManagerService;
+
+/**
+ * Microbenchmarks JMH de la ruta de bloqueo sobre H2 embebida, sin contención.
+ *
+ * - acquireRelease: LockManagerService.acquireLock seguido de releaseLock.
+ * - executeWithLock: ConcurrencyService.executeWithLock con una acción vacía.
+ *
+ * Cada hilo recorre su propio conjunto de llaves para que las mediciones no incluyan esperas.
+ * Con -prof gc se reporta la asignación de memoria por operación (gc.alloc.rate.norm).
+ *
+ * Uso: mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.kucw.benchmark.JmhRunner
+ *      -Dexec.args="LockPathJmhBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockPathJmhBenchmark {
+
+	private static final int LLAVES_POR_HILO = 1024;
+
+	/**
+	 * Contexto de la aplicación compartido por todos los hilos de una ejecución.
+	 */
+	@State(Scope.Benchmark)
+	public static class Aplicacion {
+
+		@Param({ "jpa", "jdbc" })
+		public String motor;
+
+		private ConfigurableApplicationContext context;
+
+		private LockManagerService lockManager;
+
+		private ConcurrencyService concurrencyService;
+
+		@Setup(Level.Trial)
+		public void iniciar() {
+			context = BenchmarkSupport.iniciar("jmh_" + motor, "lock.engine=" + motor);
+			lockManager = context.getBean(LockManagerService.class);
+			concurrencyService = context.getBean(ConcurrencyService.class);
+		}
+
+		@TearDown(Level.Trial)
+		public void detener() {
+			context.close();
+		}
+	}
+
+	/**
+	 * Llaves y proceso propios de cada hilo; se generan antes de medir.
+	 */
+	@State(Scope.Thread)
+	public static class Hilo {
+
+		private static final AtomicInteger SIGUIENTE = new AtomicInteger();
+
+		private final String[] llaves = new String[LLAVES_POR_HILO];
+
+		private final String proceso = UUID.randomUUID().toString();
+
+		private int posicion;
+
+		@Setup(Level.Trial)
+		public void generar() {
+			int hilo = SIGUIENTE.getAndIncrement();
+			for (int i = 0; i < llaves.length; i++) {
+				llaves[i] = "jmh:" + hilo + ":" + i;
+			}
+		}
+
+		private String siguiente() {
+			posicion = (posicion + 1) & (LLAVES_POR_HILO - 1);
+			return llaves[posicion];
+		}
+	}
+
+	@Benchmark
+	public boolean acquireRelease(Aplicacion aplicacion, Hilo hilo) {
+		String llave = hilo.siguiente();
+		boolean adquirido = aplicacion.lockManager.acquireLock(llave, hilo.proceso);
+		aplicacion.lockManager.releaseLock(llave, hilo.proceso);
+		return adquirido;
+	}
+
+	@Benchmark
+	public Boolean executeWithLock(Aplicacion aplicacion, Hilo hilo) {
+		return aplicacion.concurrencyService.executeWithLock(hilo.siguiente(), () -> Boolean.TRUE);
+	}
+}
@@ -0,0 +1,109 @@
+package com.kucw.benchmark;
+
+import static com.kucw.benchmark.BenchmarkSupport.percentil;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.kucw.servicios.ConcurrencyService;
+
+/**
+ * Benchmark de latencia de despertar: tiempo entre la liberación de un bloqueo y su adquisición
+ * por un proceso que esperaba en ConcurrencyService.tryLock.
+ *
+ * - Propietario local: el bloqueo lo mantiene otro hilo del mismo nodo; el proceso en espera
+ *   debe despertar por la cola local en cuanto se libera.
+ * - Propietario remoto: el bloqueo se inserta y elimina directamente en la tabla, como lo haría
+ *   otro nodo; el proceso en espera solo lo detecta por el retroceso exponencial.
+ *
+ * Uso: mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.kucw.benchmark.LockWakeUpLatencyBenchmark
+ */
+public class LockWakeUpLatencyBenchmark {
+
+	private static final String SQL_INSERTAR_REMOTO = "INSERT INTO TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS "
+			+ "(ID_BLOQUEO_DISTRIBUIDO, CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO, FC_INICIO_BLOQUEO, FC_EXPIRA_BLOQUEO, "
+			+ "CH_USUARIO_MODIFICADOR, CH_NOMBRE_SERVICIO, CH_PETICION_SIMULTANEA) VALUES "
+			+ "(SEQ_TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS.NEXTVAL, :llave, 'remoto', :inicio, :expira, 'BENCH', 'OTRO_NODO', 'FALSE')";
+
+	private static final String SQL_ELIMINAR_REMOTO = "DELETE FROM TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS "
+			+ "WHERE CH_LLAVE_BLOQUEO = :llave";
+
+	private static final int ITERACIONES = 300;
+
+	private static final int CALENTAMIENTO = 100;
+
+	/** Tiempo que el propietario mantiene el bloqueo antes de liberarlo. */
+	private static final long RETENCION_MS = 20;
+
+	public static void main(String[] args) throws Exception {
+		ConfigurableApplicationContext context = BenchmarkSupport.iniciar("bench_despertar", "lock.engine=jdbc");
+		try {
+			ConcurrencyService concurrencyService = context.getBean(ConcurrencyService.class);
+			NamedParameterJdbcTemplate jdbc = context.getBean("demoJdbcTemplate", NamedParameterJdbcTemplate.class);
+
+			medir(concurrencyService, null, CALENTAMIENTO);
+
+			System.out.println();
+			System.out.println(String.format("%18s %12s %12s %12s", "propietario", "p50 us", "p99 us", "max us"));
+			imprimir("local", medir(concurrencyService, null, ITERACIONES));
+			imprimir("remoto", medir(concurrencyService, jdbc, ITERACIONES));
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * Mide la latencia de despertar. Si jdbc es null el propietario es local; en caso contrario
+	 * el bloqueo se inserta y elimina directamente en la tabla.
+	 */
+	private static long[] medir(ConcurrencyService concurrencyService, NamedParameterJdbcTemplate jdbc,
+			int iteraciones) throws InterruptedException {
+		long[] muestras = new long[iteraciones];
+		for (int i = 0; i < iteraciones; i++) {
+			String llave = "despertar:" + UUID.randomUUID();
+			Optional<String> propietario = Optional.empty();
+			if (jdbc == null) {
+				propietario = concurrencyService.tryLock(llave, 1, TimeUnit.SECONDS);
+			} else {
+				Date ahora = new Date();
+				jdbc.update(SQL_INSERTAR_REMOTO, new MapSqlParameterSource().addValue("llave", llave)
+						.addValue("inicio", ahora).addValue("expira", new Date(ahora.getTime() + 30_000L)));
+			}
+
+			CountDownLatch esperando = new CountDownLatch(1);
+			AtomicLong adquirido = new AtomicLong();
+			Thread proceso = new Thread(() -> {
+				esperando.countDown();
+				Optional<String> obtenido = concurrencyService.tryLock(llave, 5, TimeUnit.SECONDS);
+				adquirido.set(System.nanoTime());
+				obtenido.ifPresent(id -> concurrencyService.unlock(llave, id));
+			});
+			proceso.start();
+			esperando.await();
+
+			Thread.sleep(RETENCION_MS);
+			long liberado = System.nanoTime();
+			if (jdbc == null) {
+				concurrencyService.unlock(llave, propietario.get());
+			} else {
+				jdbc.update(SQL_ELIMINAR_REMOTO, new MapSqlParameterSource().addValue("llave", llave));
+			}
+			proceso.join();
+			muestras[i] = adquirido.get() - liberado;
+		}
+		return muestras;
+	}
+
+	private static void imprimir(String propietario, long[] muestras) {
+		System.out.println(String.format("%18s %12.1f %12.1f %12.1f", propietario, percentil(muestras, 0.50),
+				percentil(muestras, 0.99), percentil(muestras, 1.0)));
+	}
+}
@@ -0,0 +1,292 @@
+package com.kucw.benchmark;
+
+import static com.kucw.benchmark.BenchmarkSupport.percentil;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.h2.tools.Server;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.kucw.servicios.LockManagerService;
+
+/**
+ * Prueba de estrés de contención de bloqueos con varios nodos.
+ *
+ * Arranca una base H2 en modo servidor (TCP) y varios contextos de la aplicación, cada uno con su
+ * propio application.service.name, que la comparten como lo harían nodos distintos. Los hilos se
+ * reparten entre los nodos y adquieren, retienen y liberan llaves elegidas con una distribución
+ * Zipf: con sesgo 0 todas las llaves son igual de probables y al aumentarlo la carga se concentra
+ * en pocas llaves calientes. Por cada carga se reporta el rendimiento, la latencia de adquisición
+ * (p50, p99 y p999), las esperas agotadas y las violaciones de exclusión mutua, detectadas con un
+ * contador de ocupantes por llave compartido por todos los nodos.
+ *
+ * Parámetros en formato clave=valor (valores predeterminados entre paréntesis):
+ * - nodos (4), hilos (200, en total), llaves (1000), segundos (10), calentamiento (2)
+ * - sesgo (0,1.0,1.5): exponentes Zipf separados por comas, una carga por cada uno
+ * - retencion.us (200): tiempo que se retiene cada bloqueo; espera.ms (1500): plazo de tryLock
+ * - cualquier otra propiedad de la aplicación (lock.engine=jdbc, lock.shards=4, ...) se pasa a todos los nodos
+ *
+ * El proceso termina con estado 1 si se detecta alguna violación, por lo que puede ejecutarse
+ * antes de cada cambio en la ruta de bloqueo.
+ *
+ * Uso: mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.kucw.benchmark.MultiNodeLockStressHarness
+ *      -Dexec.args="nodos=4 hilos=200 sesgo=0,1.2 lock.engine=jdbc"
+ */
+public class MultiNodeLockStressHarness {
+
+	private static int nodos = 4;
+
+	private static int hilos = 200;
+
+	private static int llaves = 1000;
+
+	private static long segundos = 10;
+
+	private static long calentamiento = 2;
+
+	private static long retencionMicros = 200;
+
+	private static long esperaMs = 1500;
+
+	private static double[] sesgos = { 0, 1.0, 1.5 };
+
+	public static void main(String[] args) throws Exception {
+		List<String> propiedades = leerParametros(args);
+		propiedades.add("spring.jmx.enabled=false");
+		propiedades.add("spring.jpa.hibernate.ddl-auto=update");
+
+		int puerto = puertoLibre();
+		Server servidor = Server.createTcpServer("-tcpPort", String.valueOf(puerto), "-ifNotExists").start();
+		String url = "jdbc:h2:tcp://localhost:" + puerto + "/mem:estres;DB_CLOSE_DELAY=-1";
+
+		List<ConfigurableApplicationContext> contextos = new ArrayList<>(nodos);
+		long violaciones = 0;
+		try {
+			// Los nodos arrancan en secuencia para que el primero cree el esquema
+			for (int i = 0; i < nodos; i++) {
+				List<String> nodo = new ArrayList<>(propiedades);
+				nodo.add("application.service.name=nodo-" + i);
+				contextos.add(BenchmarkSupport.iniciarEn(url, nodo.toArray(new String[0])));
+			}
+			List<LockManagerService> lockManagers = new ArrayList<>(nodos);
+			for (ConfigurableApplicationContext contexto : contextos) {
+				lockManagers.add(contexto.getBean(LockManagerService.class));
+			}
+
+			System.out.println();
+			System.out.println(String.format("nodos=%d hilos=%d llaves=%d retencion=%dus espera=%dms %s", nodos, hilos,
+					llaves, retencionMicros, esperaMs, propiedades));
+			System.out.println(String.format("%8s %12s %12s %10s %10s %10s %10s %12s", "sesgo", "ops/s", "adquiridos",
+					"agotados", "p50 us", "p99 us", "p999 us", "violaciones"));
+			for (double sesgo : sesgos) {
+				double[] distribucion = distribucionZipf(llaves, sesgo);
+				ejecutar(lockManagers, distribucion, TimeUnit.SECONDS.toMillis(calentamiento));
+				Resultado resultado = ejecutar(lockManagers, distribucion, TimeUnit.SECONDS.toMillis(segundos));
+				violaciones += resultado.violaciones;
+				System.out.println(String.format("%8.2f %12.0f %12d %10d %10.1f %10.1f %10.1f %12d", sesgo,
+						resultado.operacionesPorSegundo, resultado.latencias.length, resultado.agotados,
+						percentil(resultado.latencias, 0.50), percentil(resultado.latencias, 0.99),
+						percentil(resultado.latencias, 0.999), resultado.violaciones));
+			}
+		} finally {
+			for (ConfigurableApplicationContext contexto : contextos) {
+				contexto.close();
+			}
+			servidor.stop();
+		}
+
+		if (violaciones > 0) {
+			System.out.println("Se detectaron " + violaciones + " violaciones de exclusión mutua");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Ejecuta una carga durante el intervalo indicado con los hilos repartidos entre los nodos.
+	 */
+	private static Resultado ejecutar(List<LockManagerService> lockManagers, double[] distribucion, long duracionMs)
+			throws InterruptedException {
+		AtomicBoolean detener = new AtomicBoolean();
+		CountDownLatch inicio = new CountDownLatch(1);
+		ConcurrentMap<String, AtomicInteger> ocupantes = new ConcurrentHashMap<>();
+		LongAdder agotados = new LongAdder();
+		LongAdder violaciones = new LongAdder();
+		Muestras[] muestras = new Muestras[hilos];
+		List<Thread> trabajadores = new ArrayList<>(hilos);
+
+		for (int i = 0; i < hilos; i++) {
+			LockManagerService lockManager = lockManagers.get(i % lockManagers.size());
+			Muestras propias = new Muestras();
+			muestras[i] = propias;
+			Thread trabajador = new Thread(() -> {
+				try {
+					inicio.await();
+					while (!detener.get()) {
+						String llave = "estres:" + elegir(distribucion);
+						String proceso = UUID.randomUUID().toString();
+						long desde = System.nanoTime();
+						if (!lockManager.tryLock(llave, proceso, null, esperaMs)) {
+							agotados.increment();
+							continue;
+						}
+						propias.agregar(System.nanoTime() - desde);
+
+						AtomicInteger ocupante = ocupantes.computeIfAbsent(llave, k -> new AtomicInteger());
+						if (ocupante.incrementAndGet() > 1) {
+							violaciones.increment();
+						}
+						LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(retencionMicros));
+						// El ocupante sale antes de liberar para no contar como violación el relevo legítimo
+						ocupante.decrementAndGet();
+						lockManager.releaseLock(llave, proceso);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			trabajador.start();
+			trabajadores.add(trabajador);
+		}
+
+		long desde = System.nanoTime();
+		inicio.countDown();
+		Thread.sleep(duracionMs);
+		detener.set(true);
+		for (Thread trabajador : trabajadores) {
+			trabajador.join();
+		}
+		double transcurrido = (System.nanoTime() - desde) / (double) TimeUnit.SECONDS.toNanos(1);
+
+		int total = 0;
+		for (Muestras propias : muestras) {
+			total += propias.tamano;
+		}
+		long[] latencias = new long[total];
+		int posicion = 0;
+		for (Muestras propias : muestras) {
+			System.arraycopy(propias.valores, 0, latencias, posicion, propias.tamano);
+			posicion += propias.tamano;
+		}
+		return new Resultado(latencias, latencias.length / transcurrido, agotados.sum(), violaciones.sum());
+	}
+
+	/**
+	 * Distribución acumulada Zipf sobre el número de llaves; con sesgo 0 es uniforme.
+	 */
+	private static double[] distribucionZipf(int llaves, double sesgo) {
+		double[] acumulada = new double[llaves];
+		double suma = 0;
+		for (int i = 0; i < llaves; i++) {
+			suma += 1 / Math.pow(i + 1, sesgo);
+			acumulada[i] = suma;
+		}
+		for (int i = 0; i < llaves; i++) {
+			acumulada[i] /= suma;
+		}
+		return acumulada;
+	}
+
+	private static int elegir(double[] acumulada) {
+		int indice = Arrays.binarySearch(acumulada, ThreadLocalRandom.current().nextDouble());
+		return Math.min(indice >= 0 ? indice : -indice - 1, acumulada.length - 1);
+	}
+
+	/**
+	 * Separa los parámetros de la prueba de las propiedades que se pasan a los nodos.
+	 */
+	private static List<String> leerParametros(String[] args) {
+		List<String> propiedades = new ArrayList<>();
+		for (String argumento : args) {
+			int igual = argumento.indexOf('=');
+			if (igual < 0) {
+				throw new IllegalArgumentException("Parámetro sin formato clave=valor: " + argumento);
+			}
+			String clave = argumento.substring(0, igual);
+			String valor = argumento.substring(igual + 1);
+			switch (clave) {
+			case "nodos":
+				nodos = Integer.parseInt(valor);
+				break;
+			case "hilos":
+				hilos = Integer.parseInt(valor);
+				break;
+			case "llaves":
+				llaves = Integer.parseInt(valor);
+				break;
+			case "segundos":
+				segundos = Long.parseLong(valor);
+				break;
+			case "calentamiento":
+				calentamiento = Long.parseLong(valor);
+				break;
+			case "retencion.us":
+				retencionMicros = Long.parseLong(valor);
+				break;
+			case "espera.ms":
+				esperaMs = Long.parseLong(valor);
+				break;
+			case "sesgo":
+				sesgos = Arrays.stream(valor.split(",")).mapToDouble(Double::parseDouble).toArray();
+				break;
+			default:
+				propiedades.add(argumento);
+			}
+		}
+		return propiedades;
+	}
+
+	private static int puertoLibre() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	/**
+	 * Latencias de un hilo; cada hilo escribe sólo en las suyas.
+	 */
+	private static final class Muestras {
+
+		private long[] valores = new long[1024];
+
+		private int tamano;
+
+		private void agregar(long valor) {
+			if (tamano == valores.length) {
+				valores = Arrays.copyOf(valores, tamano * 2);
+			}
+			valores[tamano++] = valor;
+		}
+	}
+
+	private static final class Resultado {
+
+		private final long[] latencias;
+
+		private final double operacionesPorSegundo;
+
+		private final long agotados;
+
+		private final long violaciones;
+
+		private Resultado(long[] latencias, double operacionesPorSegundo, long agotados, long violaciones) {
+			this.latencias = latencias;
+			this.operacionesPorSegundo = operacionesPorSegundo;
+			this.agotados = agotados;
+			this.violaciones = violaciones;
+		}
+	}
+}
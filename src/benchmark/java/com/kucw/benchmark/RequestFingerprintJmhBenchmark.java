@@ -0,0 +1,101 @@
+package com.kucw.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kucw.presentacion.modelos.ValidarSolicitudCertificacionAforeEntrada;
+import com.kucw.servicios.RequestFingerprinter;
+
+/**
+ * Microbenchmarks JMH del trabajo por petición del controlador
+ * ValidarSolicitudCertificacionAforeRestService para detectar duplicados: serializar la
+ * entrada con ObjectMapper.writeValueAsString y calcular su DigestUtils.md5Hex (implementación
+ * anterior), frente a la huella canónica que RequestFingerprintAdvice calcula sobre los bytes del
+ * cuerpo con RequestFingerprinter.
+ *
+ * El ObjectMapper se construye con Jackson2ObjectMapperBuilder, la misma base que usa
+ * Spring Boot para el que recibe el controlador. Con -prof gc se reporta la asignación de
+ * memoria por petición (gc.alloc.rate.norm).
+ *
+ * Uso: mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.kucw.benchmark.JmhRunner
+ *      -Dexec.args="RequestFingerprintJmhBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestFingerprintJmhBenchmark {
+
+	/** Petición representativa con todos los campos informados. */
+	private static final String PETICION = "{\"folioTramiteProcesar\":\"202400000123456789\",\"nss\":\"12345678901\","
+			+ "\"curp\":\"PEGJ800101HDFRRN09\",\"nombreTrabajador\":\"JUAN\",\"apellidoPaterno\":\"PEREZ\","
+			+ "\"apellidoMaterno\":\"GARCIA\",\"tipoPrestacion\":\"06\",\"claveAdminActual\":\"530\",\"origen\":1,"
+			+ "\"idSolicitante\":\"01\",\"curpSolicitante\":\"PEGJ800101HDFRRN09\",\"selloTrabajador\":987654321,"
+			+ "\"curpAgenteServicio\":\"LOMA850505MDFPRR02\",\"nombreTrabajadorImss\":\"JUAN PEREZ GARCIA\","
+			+ "\"nombreTrabProcanase\":\"JUAN PEREZ GARCIA\",\"estatus20600\":\"1\",\"estatus20700\":\"1\",\"estatus\":1,"
+			+ "\"consultaCertificadoImss\":true,\"nuevoRechazoJ62\":false,\"operacion\":\"20600\","
+			+ "\"folioOperacionIMSS\":\"0000012345\",\"indicadorOrigenTramite\":\"1\","
+			+ "\"fechaConclusionVigencia\":\"2024-12-31\",\"existeCertificado\":true,\"fechaFinVigencia\":\"2025-12-31\","
+			+ "\"diagnosticoCertificadoEncontrado\":\"000\",\"diagnosticoOriginal\":\"000\",\"diagnosticoInicial\":\"000\","
+			+ "\"ultimoSarioImss\":12345.67}";
+
+	private ObjectMapper objectMapper;
+
+	private ValidarSolicitudCertificacionAforeEntrada entrada;
+
+	private String json;
+
+	private byte[] cuerpo;
+
+	private RequestFingerprinter fingerprinter;
+
+	@Setup(Level.Trial)
+	public void preparar() throws IOException {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		entrada = objectMapper.readValue(PETICION, ValidarSolicitudCertificacionAforeEntrada.class);
+		json = objectMapper.writeValueAsString(entrada);
+		cuerpo = PETICION.getBytes(StandardCharsets.UTF_8);
+		fingerprinter = new RequestFingerprinter();
+	}
+
+	@Benchmark
+	public String serializar() throws JsonProcessingException {
+		return objectMapper.writeValueAsString(entrada);
+	}
+
+	@Benchmark
+	public String md5() {
+		return DigestUtils.md5Hex(json);
+	}
+
+	/** Trabajo completo por petición de la implementación anterior del controlador. */
+	@Benchmark
+	public String serializarYMd5() throws JsonProcessingException {
+		return DigestUtils.md5Hex(objectMapper.writeValueAsString(entrada));
+	}
+
+	/** Huella canónica sobre el cuerpo recibido, como la calcula RequestFingerprintAdvice. */
+	@Benchmark
+	public String huellaCanonica() throws IOException {
+		return fingerprinter.fingerprint(cuerpo, 0, cuerpo.length);
+	}
+}
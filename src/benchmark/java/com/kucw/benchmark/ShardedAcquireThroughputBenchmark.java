@@ -0,0 +1,95 @@
+package com.kucw.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.kucw.servicios.LockManagerService;
+
+/**
+ * Prueba de carga de adquisición con tablas de bloqueos particionadas (lock.shards).
+ *
+ * Para cada número de particiones se arranca un contexto con el motor jdbc y muchos hilos
+ * escritores adquieren y liberan llaves distintas durante un intervalo fijo; se reporta el
+ * rendimiento en operaciones por segundo. El registro local y la renovación se desactivan para
+ * que cada operación viaje a la base de datos.
+ *
+ * Uso: mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.kucw.benchmark.ShardedAcquireThroughputBenchmark
+ *      -Dexec.args="1 2 4 8"
+ */
+public class ShardedAcquireThroughputBenchmark {
+
+	private static final int ESCRITORES = 32;
+
+	private static final long CALENTAMIENTO_MS = 2_000;
+
+	private static final long MEDICION_MS = 5_000;
+
+	public static void main(String[] args) throws InterruptedException {
+		String[] particiones = args.length > 0 ? args : new String[] { "1", "2", "4", "8" };
+
+		System.out.println();
+		System.out.println(String.format("%10s %10s %14s", "shards", "hilos", "ops/s"));
+		for (String shards : particiones) {
+			ConfigurableApplicationContext context = BenchmarkSupport.iniciar("bench_shards_" + shards,
+					"lock.engine=jdbc", "lock.shards=" + shards, "lock.local.enabled=false",
+					"lock.renewal.enabled=false");
+			try {
+				LockManagerService lockManager = context.getBean(LockManagerService.class);
+				ejecutar(lockManager, CALENTAMIENTO_MS);
+				double operaciones = ejecutar(lockManager, MEDICION_MS);
+				System.out.println(String.format("%10s %10d %14.0f", shards, ESCRITORES, operaciones));
+			} finally {
+				context.close();
+			}
+		}
+	}
+
+	/**
+	 * Ejecuta los escritores durante el intervalo indicado.
+	 *
+	 * @return operaciones de adquisición y liberación por segundo
+	 */
+	private static double ejecutar(LockManagerService lockManager, long duracionMs) throws InterruptedException {
+		AtomicBoolean detener = new AtomicBoolean();
+		LongAdder operaciones = new LongAdder();
+		CountDownLatch inicio = new CountDownLatch(1);
+		List<Thread> escritores = new ArrayList<>(ESCRITORES);
+
+		for (int i = 0; i < ESCRITORES; i++) {
+			Thread escritor = new Thread(() -> {
+				String proceso = UUID.randomUUID().toString();
+				try {
+					inicio.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				while (!detener.get()) {
+					String llave = "carga:" + UUID.randomUUID();
+					if (lockManager.acquireLock(llave, proceso)) {
+						lockManager.releaseLock(llave, proceso);
+						operaciones.increment();
+					}
+				}
+			});
+			escritor.start();
+			escritores.add(escritor);
+		}
+
+		long desde = System.nanoTime();
+		inicio.countDown();
+		Thread.sleep(duracionMs);
+		detener.set(true);
+		for (Thread escritor : escritores) {
+			escritor.join();
+		}
+		return operaciones.sum() / ((System.nanoTime() - desde) / (double) TimeUnit.SECONDS.toNanos(1));
+	}
+}
@@ -0,0 +1,113 @@
+package com.kucw.exposicion.controladores;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kucw.presentacion.modelos.DistributedLockPageModel;
+import com.kucw.presentacion.modelos.DistributedLockSummaryModel;
+import com.kucw.servicios.LockAdminService;
+
+/**
+ * Controlador REST administrativo para inspeccionar y liberar bloqueos vigentes.
+ *
+ * Sustituye las consultas manuales sobre TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS cuando un bloqueo
+ * se queda retenido. Los listados se paginan por llave: cada respuesta incluye en siguiente la
+ * posición que se envía en el parámetro desde para obtener la página siguiente. Ninguna respuesta
+ * incluye el contenido de la petición.
+ *
+ * Solo está disponible con lock.engine jpa o jdbc.
+ */
+@RestController
+@RequestMapping(value = "/admin/bloqueos", produces = { MediaType.APPLICATION_JSON_VALUE })
+@ConditionalOnExpression("'${lock.engine:jpa}' == 'jpa' or '${lock.engine:jpa}' == 'jdbc'")
+public class LockAdminRestService {
+
+	@Autowired
+	private LockAdminService lockAdminService;
+
+	/**
+	 * Lista los bloqueos vigentes de un servicio, del más antiguo al más reciente.
+	 *
+	 * @param servicio           nombre del servicio (CH_NOMBRE_SERVICIO)
+	 * @param edadMinimaSegundos solo bloqueos adquiridos hace al menos estos segundos
+	 * @param desde              posición devuelta en siguiente por la página anterior
+	 * @param limite             tamaño de página (lock.admin.page.size por defecto, máximo lock.admin.page.max)
+	 * @return página de bloqueos
+	 */
+	@GetMapping("/servicio/{servicio}")
+	public DistributedLockPageModel listarPorServicio(@PathVariable("servicio") String servicio,
+			@RequestParam(value = "edadMinimaSegundos", defaultValue = "0") long edadMinimaSegundos,
+			@RequestParam(value = "desde", required = false) String desde,
+			@RequestParam(value = "limite", required = false) Integer limite) {
+		return lockAdminService.listByService(servicio, edadMinimaSegundos, desde, limite);
+	}
+
+	/**
+	 * Lista los bloqueos vigentes marcados con CH_PETICION_SIMULTANEA = 'TRUE'.
+	 *
+	 * @param desde  posición devuelta en siguiente por la página anterior
+	 * @param limite tamaño de página (lock.admin.page.size por defecto, máximo lock.admin.page.max)
+	 * @return página de bloqueos
+	 */
+	@GetMapping("/simultaneos")
+	public DistributedLockPageModel listarSimultaneos(@RequestParam(value = "desde", required = false) String desde,
+			@RequestParam(value = "limite", required = false) Integer limite) {
+		return lockAdminService.listSimultaneous(desde, limite);
+	}
+
+	/**
+	 * Libera el bloqueo de una llave sin importar qué proceso lo mantiene. La llave se recibe como
+	 * parámetro porque puede contener caracteres que no se admiten en la ruta.
+	 *
+	 * @param llave clave del bloqueo
+	 * @return el bloqueo liberado, 404 si la llave no tenía registro o 409 si el bloqueo cambió de
+	 *         propietario antes de eliminarlo
+	 */
+	@DeleteMapping(params = "llave")
+	public ResponseEntity<DistributedLockSummaryModel> liberarLlave(@RequestParam("llave") String llave) {
+		DistributedLockSummaryModel bloqueo = lockAdminService.forceRelease(llave);
+		return bloqueo != null ? ResponseEntity.ok(bloqueo) : ResponseEntity.notFound().build();
+	}
+
+	/**
+	 * Libera todos los bloqueos que mantiene un proceso.
+	 *
+	 * @param proceso identificador del proceso propietario (CH_PROCESO_BLOQUEO)
+	 * @return número de bloqueos eliminados, o 404 si no se eliminó ninguno
+	 */
+	@DeleteMapping(params = "proceso")
+	public ResponseEntity<Map<String, Integer>> liberarProceso(@RequestParam("proceso") String proceso) {
+		int liberados = lockAdminService.forceReleaseProcess(proceso);
+		return liberados > 0 ? ResponseEntity.ok(Collections.singletonMap("liberados", liberados))
+				: ResponseEntity.notFound().build();
+	}
+
+	/**
+	 * Responde 409 cuando la liberación forzada no eliminó el bloqueo porque cambió de propietario.
+	 */
+	@ExceptionHandler(IllegalStateException.class)
+	public ResponseEntity<Map<String, String>> bloqueoModificado(IllegalStateException e) {
+		return ResponseEntity.status(HttpStatus.CONFLICT).body(Collections.singletonMap("error", e.getMessage()));
+	}
+
+	/**
+	 * Responde 400 ante parámetros inválidos (límite fuera de rango o posición mal formada).
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<Map<String, String>> parametroInvalido(IllegalArgumentException e) {
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Collections.singletonMap("error", e.getMessage()));
+	}
+}
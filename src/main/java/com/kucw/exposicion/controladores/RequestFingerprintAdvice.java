@@ -0,0 +1,115 @@
+package com.kucw.exposicion.controladores;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.kucw.presentacion.modelos.RequestFingerprintModel;
+import com.kucw.servicios.RequestFingerprinter;
+
+/**
+ * Calcula la huella canónica del cuerpo JSON antes de deserializarlo.
+ *
+ * Aplica a los métodos de controlador que declaran un parámetro RequestFingerprintModel. El cuerpo
+ * se lee una vez en un arreglo del hilo que se reutiliza entre peticiones, se calcula su huella
+ * (RequestFingerprinter) sobre esos mismos bytes y Jackson deserializa la entrada leyendo el
+ * arreglo, de modo que la huella queda disponible como atributo de la petición (ATRIBUTO) antes
+ * de que exista el objeto de entrada. El parámetro RequestFingerprintModel debe declararse después
+ * del parámetro @RequestBody para que se resuelva después de leer el cuerpo.
+ *
+ * Si el cuerpo no es un JSON válido no se registra la huella; la deserialización reporta el error.
+ */
+@ControllerAdvice
+public class RequestFingerprintAdvice extends RequestBodyAdviceAdapter {
+
+	private static final Logger logger = LoggerFactory.getLogger(RequestFingerprintAdvice.class);
+
+	/** Nombre del atributo de la petición con el RequestFingerprintModel. */
+	public static final String ATRIBUTO = "huellaPeticion";
+
+	/** Tamaño inicial del arreglo de lectura de cada hilo. */
+	private static final int BUFFER_INICIAL = 8 * 1024;
+
+	/** Tamaño máximo que conserva el arreglo de cada hilo; un cuerpo mayor usa un arreglo propio. */
+	private static final int BUFFER_MAXIMO = 64 * 1024;
+
+	@Autowired
+	private RequestFingerprinter fingerprinter;
+
+	private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[BUFFER_INICIAL]);
+
+	/** Indica por método de controlador si declara un parámetro RequestFingerprintModel. */
+	private final Map<Method, Boolean> metodos = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean supports(MethodParameter methodParameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		Method metodo = methodParameter.getMethod();
+		return metodo != null && AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType)
+				&& metodos.computeIfAbsent(metodo,
+						m -> Arrays.asList(m.getParameterTypes()).contains(RequestFingerprintModel.class));
+	}
+
+	@Override
+	public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) throws IOException {
+		byte[] buffer = buffers.get();
+		int longitud = 0;
+		try (InputStream cuerpo = inputMessage.getBody()) {
+			int leidos;
+			while ((leidos = cuerpo.read(buffer, longitud, buffer.length - longitud)) != -1) {
+				longitud += leidos;
+				if (longitud == buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+			}
+		}
+		if (buffer.length <= BUFFER_MAXIMO) {
+			buffers.set(buffer);
+		}
+
+		try {
+			String huella = fingerprinter.fingerprint(buffer, 0, longitud);
+			// El arreglo del hilo se reutiliza en la siguiente petición, por lo que el modelo conserva una copia
+			RequestContextHolder.currentRequestAttributes().setAttribute(ATRIBUTO,
+					new RequestFingerprintModel(huella, Arrays.copyOf(buffer, longitud)),
+					RequestAttributes.SCOPE_REQUEST);
+		} catch (JsonProcessingException e) {
+			logger.debug("No se calculó la huella de un cuerpo JSON inválido: {}", e.getOriginalMessage());
+		}
+
+		ByteArrayInputStream contenido = new ByteArrayInputStream(buffer, 0, longitud);
+		HttpHeaders headers = inputMessage.getHeaders();
+		return new HttpInputMessage() {
+
+			@Override
+			public InputStream getBody() {
+				return contenido;
+			}
+
+			@Override
+			public HttpHeaders getHeaders() {
+				return headers;
+			}
+		};
+	}
+}
@@ -1,9 +1,10 @@
 package com.kucw.exposicion.controladores;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,16 +12,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kucw.presentacion.modelos.RequestFingerprintModel;
 import com.kucw.presentacion.modelos.ValidarSolicitudCertificacionAforeEntrada;
 import com.kucw.presentacion.modelos.ValidarSolicitudCertificacionAforeSalida;
+import com.kucw.servicios.IdempotencyStore;
 import com.kucw.servicios.LockManagerService;
+import com.kucw.servicios.LockMetrics;
 import com.kucw.servicios.NotificacionesService;
+import com.kucw.servicios.RequestCoalescer;
+import com.kucw.servicios.RequestFingerprinter;
 import com.kucw.servicios.ValidarDiasHabilService;
 import com.kucw.servicios.ValidarSolicitudCertificacionAforeService;
 
@@ -29,7 +35,7 @@ import com.kucw.servicios.ValidarSolicitudCertificacionAforeService;
  * 
  * Esta clase implementa endpoints para validar solicitudes de certificación relacionadas con AFORE,
  * incluyendo mecanismos para prevenir procesamiento de peticiones duplicadas mediante un sistema de bloqueo
- * basado en hash MD5 de la petición entrante.
+ * basado en la huella canónica del cuerpo de la petición entrante (ver RequestFingerprintAdvice).
  * 
  * El servicio principal verifica si el día es hábil antes de procesar la solicitud y notifica
  * los resultados a través del servicio de notificaciones.
@@ -42,7 +48,7 @@ public class ValidarSolicitudCertificacionAforeRestService {
 
 	/** 
 	 * Prefijo utilizado para las claves de bloqueo en el sistema de prevención de duplicados.
-	 * Este prefijo se concatena con el hash MD5 de la petición para formar la clave de bloqueo.
+	 * Este prefijo se concatena con la huella de la petición para formar la clave de bloqueo.
 	 */
 	private static final String PREFIJO_CERTIFICACION = "certificacion:";
 
@@ -74,14 +80,39 @@ public class ValidarSolicitudCertificacionAforeRestService {
 	@Autowired
 	private LockManagerService lockManagerService;
 
+	/** 
+	 * Respuestas de peticiones ya procesadas, que se entregan de nuevo a las peticiones idénticas.
+	 */
+	@Autowired
+	private IdempotencyStore idempotencyStore;
+
+	/** 
+	 * Ejecuciones en curso que comparten su respuesta con las peticiones idénticas simultáneas
+	 * (lock.coalesce.enabled).
+	 */
+	@Autowired
+	private RequestCoalescer requestCoalescer;
+
+	/** 
+	 * Métricas de bloqueos; cuenta las peticiones rechazadas por estar duplicadas.
+	 */
+	@Autowired
+	private LockMetrics lockMetrics;
+
 	/** 
 	 * Componente para serialización y deserialización de objetos JSON.
-	 * Se utiliza para convertir los objetos de entrada a formato JSON para generar el hash
-	 * que identifica peticiones duplicadas.
+	 * Solo se utiliza cuando la huella del cuerpo no está disponible, para calcularla sobre
+	 * la entrada serializada.
 	 */
 	@Autowired
 	private ObjectMapper objectMapper;
 
+	/** 
+	 * Cálculo de la huella canónica del contenido JSON.
+	 */
+	@Autowired
+	private RequestFingerprinter fingerprinter;
+
 	/**
 	 * Endpoint de verificación para comprobar la disponibilidad del servicio.
 	 * 
@@ -100,7 +131,8 @@ public class ValidarSolicitudCertificacionAforeRestService {
 	 * 
 	 * Este método implementa la lógica principal para validar solicitudes de certificación AFORE.
 	 * El proceso incluye:
-	 * - Verificación de peticiones duplicadas mediante hash MD5 del objeto de entrada
+	 * - Verificación de peticiones duplicadas mediante la huella canónica del cuerpo de la petición
+	 * - Entrega de la respuesta ya calculada si una solicitud idéntica se procesó recientemente
 	 * - Adquisición de un bloqueo distribuido para evitar procesamiento simultáneo de solicitudes idénticas
 	 * - Validación de día hábil para el procesamiento mediante el servicio ValidarDiasHabilService
 	 * - Procesamiento de la solicitud a través del servicio ValidarSolicitudCertificacionAforeService
@@ -109,16 +141,28 @@ public class ValidarSolicitudCertificacionAforeRestService {
 	 * - Liberación del bloqueo adquirido al finalizar el procesamiento
 	 *
 	 * El método utiliza un mecanismo de control de concurrencia basado en bloqueos distribuidos
-	 * para evitar el procesamiento duplicado de la misma solicitud. Esto se logra generando un
-	 * hash MD5 del objeto de entrada serializado a JSON y utilizando este hash como clave para
-	 * el bloqueo en el servicio LockManagerService.
+	 * para evitar el procesamiento duplicado de la misma solicitud. La clave del bloqueo es la
+	 * huella de 128 bits del cuerpo JSON que RequestFingerprintAdvice calcula sobre los bytes
+	 * recibidos antes de deserializar la entrada; la huella no depende del orden de los campos
+	 * ni de los espacios.
+	 *
+	 * La respuesta de una solicitud procesada se conserva en IdempotencyStore antes de liberar el
+	 * bloqueo. Una solicitud idéntica que llega después recibe esa misma respuesta sin volver a
+	 * validarse ni notificarse: desde memoria antes de solicitar el bloqueo o, si la procesó otro
+	 * nodo, desde la base de datos una vez adquirido el bloqueo.
+	 *
+	 * Con lock.coalesce.enabled=true una solicitud idéntica a otra en proceso no se rechaza: si la
+	 * procesa este nodo espera su respuesta sin solicitar el bloqueo, y si la procesa otro nodo
+	 * espera la respuesta que ese nodo registra (ver RequestCoalescer). Solo si la espera vence
+	 * se responde como petición duplicada.
 	 *
 	 * Si el día no es hábil según el servicio ValidarDiasHabilService (código P00020), la solicitud
 	 * no se procesa y se devuelve un código de error específico.
 	 *
 	 * @param entrada Objeto que contiene los datos de la solicitud a validar. Incluye información
 	 *                como tipo de prestación, datos del solicitante y detalles específicos de la certificación.
-	 *                Este objeto se serializa a JSON para generar un hash único que identifica la petición.
+	 * @param huella  Huella y contenido del cuerpo calculados por RequestFingerprintAdvice; si no
+	 *                está disponible se calcula sobre la entrada serializada.
 	 * 
 	 * @return Objeto de respuesta con el resultado de la validación, incluyendo:
 	 *         - resultadoOperacion: "01" para operación exitosa, "02" para operación fallida
@@ -133,44 +177,74 @@ public class ValidarSolicitudCertificacionAforeRestService {
 	@PostMapping(value = "disposicionimss/certificacion", produces = { MediaType.APPLICATION_JSON_VALUE }, consumes = {
 			MediaType.APPLICATION_JSON_VALUE })
 	public ValidarSolicitudCertificacionAforeSalida validarSolicitudCertificacionAfore(
-			@RequestBody ValidarSolicitudCertificacionAforeEntrada entrada) {
+			@RequestBody ValidarSolicitudCertificacionAforeEntrada entrada,
+			@RequestAttribute(name = RequestFingerprintAdvice.ATRIBUTO, required = false) RequestFingerprintModel huella) {
 
 		logger.info("Entrada validarSolicitudCertificacionAfore: {}", entrada);
 
-		ValidarSolicitudCertificacionAforeSalida salida;
+		ValidarSolicitudCertificacionAforeSalida salida = null;
 		String peticionKey = null;
 		String processId = null;
 		boolean lockAcquired = false;
+		boolean aCargo = false;
 
 		try {
 
-			// Generar hash del objeto de entrada para detectar peticiones idénticas
+			// Usar la huella del cuerpo para detectar peticiones idénticas
 			try {
 
-				String jsonContent = objectMapper.writeValueAsString(entrada);
-				String hashContent = DigestUtils.md5Hex(jsonContent);
+				if (huella == null) {
+					byte[] json = objectMapper.writeValueAsBytes(entrada);
+					huella = new RequestFingerprintModel(fingerprinter.fingerprint(json, 0, json.length), json);
+				}
+				byte[] jsonContent = huella.getCuerpo();
+
+				peticionKey = StringUtils.join(PREFIJO_CERTIFICACION, huella.getHuella());
+
+				// Una petición idéntica procesada en este nodo se responde sin solicitar el bloqueo
+				salida = idempotencyStore.findCached(peticionKey, ValidarSolicitudCertificacionAforeSalida.class);
+				if (salida != null) {
+					return salida;
+				}
+
+				// Una petición idéntica en proceso en este nodo comparte su respuesta
+				if (requestCoalescer.isEnabled()) {
+					CompletableFuture<Object> ejecucion = requestCoalescer.join(peticionKey);
+					if (ejecucion != null) {
+						salida = requestCoalescer.await(ejecucion, ValidarSolicitudCertificacionAforeSalida.class);
+						return salida != null ? salida : peticionDuplicada(entrada);
+					}
+					aCargo = true;
+				}
 
-				peticionKey = StringUtils.join(PREFIJO_CERTIFICACION, hashContent);
 				processId = UUID.randomUUID().toString();
 
 				// Intentar adquirir el bloqueo, pasando el contenido JSON de la petición
-				// Aunque no se usará para actualizar el campo request, se mantiene para guardar
-				// el JSON en nuevos registros
+				// El JSON no se guarda en el bloqueo; se registra en la auditoría de peticiones
+				// cuando llega una petición simultánea
 				lockAcquired = lockManagerService.acquireLock(peticionKey, processId, jsonContent);
 
 				if (!lockAcquired) {
 
 					// Si no se pudo adquirir el bloqueo, significa que una petición idéntica está
-					// en proceso
-					salida = new ValidarSolicitudCertificacionAforeSalida();
-					salida.setResultadoOperacion("02");
-					salida.setDiagnosticoProcesar("532");
-					salida.setTipoPrestacion(entrada.getTipoPrestacion());
+					// en proceso; al agrupar peticiones se espera la respuesta que registre
+					if (aCargo) {
+						salida = requestCoalescer.awaitRemote(peticionKey, ValidarSolicitudCertificacionAforeSalida.class);
+					}
+					if (salida == null) {
+						salida = peticionDuplicada(entrada);
+					}
 					return salida;
 
 				}
 
-			} catch (JsonProcessingException e) {
+				// Con el bloqueo adquirido, buscar también la respuesta registrada por otro nodo
+				salida = idempotencyStore.find(peticionKey, ValidarSolicitudCertificacionAforeSalida.class);
+				if (salida != null) {
+					return salida;
+				}
+
+			} catch (IOException e) {
 
 				logger.error("Error al procesar JSON para validación de duplicados", e);
 				// Continuamos con el proceso normal si falla la detección de duplicados
@@ -181,6 +255,10 @@ public class ValidarSolicitudCertificacionAforeRestService {
 			if ("1".equals(validarDiaHabil)) {
 				salida = validarSolicitudCertificacionAforeService.validarSolicitudCertificacionAfore(entrada);
 				notificacionesService.notificarServicioAfore(entrada, salida);
+				// Registrar la respuesta antes de liberar el bloqueo
+				if (lockAcquired) {
+					idempotencyStore.store(peticionKey, salida);
+				}
 			} else {
 				salida = new ValidarSolicitudCertificacionAforeSalida();
 				salida.setResultadoOperacion("02");
@@ -189,6 +267,9 @@ public class ValidarSolicitudCertificacionAforeRestService {
 			}
 		} catch (Exception e) {
 
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
 			logger.error("error en la aplicación", e);
 			salida = new ValidarSolicitudCertificacionAforeSalida();
 			salida.setResultadoOperacion("02");
@@ -197,6 +278,11 @@ public class ValidarSolicitudCertificacionAforeRestService {
 
 		} finally {
 
+			// Compartir la respuesta con las peticiones idénticas que la esperan en este nodo
+			if (aCargo) {
+				requestCoalescer.complete(peticionKey, salida);
+			}
+
 			// Liberar el bloqueo si fue adquirido
 			if (lockAcquired && peticionKey != null && processId != null) {
 				try {
@@ -210,4 +296,16 @@ public class ValidarSolicitudCertificacionAforeRestService {
 
 		return salida;
 	}
+
+	/**
+	 * Respuesta para una petición rechazada porque otra idéntica está en proceso.
+	 */
+	private ValidarSolicitudCertificacionAforeSalida peticionDuplicada(ValidarSolicitudCertificacionAforeEntrada entrada) {
+		lockMetrics.duplicateRejected();
+		ValidarSolicitudCertificacionAforeSalida salida = new ValidarSolicitudCertificacionAforeSalida();
+		salida.setResultadoOperacion("02");
+		salida.setDiagnosticoProcesar("532");
+		salida.setTipoPrestacion(entrada.getTipoPrestacion());
+		return salida;
+	}
 }
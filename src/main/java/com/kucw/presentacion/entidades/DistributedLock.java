@@ -18,11 +18,16 @@ import javax.persistence.TemporalType;
  * Esta tabla almacena información sobre los bloqueos adquiridos por diferentes servicios,
  * incluyendo datos sobre el usuario que realizó la operación, el servicio que adquirió el bloqueo,
  * y el registro de peticiones simultáneas para análisis y auditoría.
+ * El contenido de las peticiones no se guarda en esta tabla sino en TB_NSAR_AUDITORIA_PETICION
+ * (ver RequestAudit), de modo que la fila del bloqueo conserva un tamaño pequeño y constante.
  */
 @Entity
 @Table(name = "TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS", indexes = {
 		@Index(name = "IDX_LLAVE_BLOQUEO", columnList = "CH_LLAVE_BLOQUEO", unique = true),
-		@Index(name = "IDX_FECHA_EXPIRACION", columnList = "FC_EXPIRA_BLOQUEO") })
+		@Index(name = "IDX_FECHA_EXPIRACION", columnList = "FC_EXPIRA_BLOQUEO"),
+		@Index(name = "IDX_SERVICIO_INICIO", columnList = "CH_NOMBRE_SERVICIO, FC_INICIO_BLOQUEO, ID_BLOQUEO_DISTRIBUIDO"),
+		@Index(name = "IDX_LLEGO_OTRA_PETICION", columnList = "FC_LLEGO_OTRA_PETICION"),
+		@Index(name = "IDX_PROCESO_BLOQUEO", columnList = "CH_PROCESO_BLOQUEO") })
 public class DistributedLock {
 
 	@Id
@@ -54,15 +59,25 @@ public class DistributedLock {
 	@Column(name = "CH_PETICION_SIMULTANEA", length = 5, nullable = true)
 	private String peticionSimultanea = "FALSE";
 
-	@Column(name = "CH_REQUEST", length = 4000, nullable = true)
-	private String request;
-
 	/**
-	 * Fecha en que llegó otra petición simultánea
+	 * Fecha en que llegó otra petición simultánea (la más reciente)
 	 */
 	@Column(name = "FC_LLEGO_OTRA_PETICION")
 	private Date fechaLlegoOtraPeticion;
 
+	/**
+	 * Fecha en que llegó la primera petición simultánea
+	 */
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "FC_PRIMERA_OTRA_PETICION")
+	private Date fechaPrimeraOtraPeticion;
+
+	/**
+	 * Número de peticiones simultáneas detectadas mientras el bloqueo estuvo vigente
+	 */
+	@Column(name = "NU_PETICIONES_SIMULTANEAS")
+	private Integer peticionesSimultaneas = 0;
+
 	public Date getFechaExpiraBloqueo() {
 		return fechaExpiraBloqueo;
 	}
@@ -128,14 +143,6 @@ public class DistributedLock {
 		this.peticionSimultanea = peticionSimultanea;
 	}
 
-	public String getRequest() {
-		return request;
-	}
-
-	public void setRequest(String request) {
-		this.request = request;
-	}
-
 	public Date getFechaLlegoOtraPeticion() {
 		return fechaLlegoOtraPeticion;
 	}
@@ -143,4 +150,20 @@ public class DistributedLock {
 	public void setFechaLlegoOtraPeticion(Date fechaLlegoOtraPeticion) {
 		this.fechaLlegoOtraPeticion = fechaLlegoOtraPeticion;
 	}
+
+	public Date getFechaPrimeraOtraPeticion() {
+		return fechaPrimeraOtraPeticion;
+	}
+
+	public void setFechaPrimeraOtraPeticion(Date fechaPrimeraOtraPeticion) {
+		this.fechaPrimeraOtraPeticion = fechaPrimeraOtraPeticion;
+	}
+
+	public Integer getPeticionesSimultaneas() {
+		return peticionesSimultaneas;
+	}
+
+	public void setPeticionesSimultaneas(Integer peticionesSimultaneas) {
+		this.peticionesSimultaneas = peticionesSimultaneas;
+	}
 }
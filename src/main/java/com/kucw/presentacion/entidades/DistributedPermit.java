@@ -0,0 +1,110 @@
+package com.kucw.presentacion.entidades;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Entidad que representa un permiso de un semáforo distribuido.
+ * Cada llave dispone de tantos permisos como indique el límite del llamador; cada permiso es
+ * una fila numerada (0 a límite - 1) con su propia expiración, de modo que un permiso cuyo
+ * propietario dejó de renovarlo puede tomarse de nuevo sin esperar la limpieza.
+ */
+@Entity
+@Table(name = "TB_NSAR_PERMISO_CONCURRENCIA", indexes = {
+		@Index(name = "IDX_PERMISO_LLAVE_NUMERO", columnList = "CH_LLAVE_PERMISO, NU_PERMISO", unique = true),
+		@Index(name = "IDX_PERMISO_EXPIRACION", columnList = "FC_EXPIRA_PERMISO") })
+public class DistributedPermit {
+
+	@Id
+	@Column(name = "ID_PERMISO_CONCURRENCIA")
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "permisoSequence")
+	@SequenceGenerator(name = "permisoSequence", sequenceName = "SEQ_TB_NSAR_PERMISO_CONCURRENCIA", allocationSize = 1)
+	private Long idPermiso;
+
+	@Column(name = "CH_LLAVE_PERMISO", length = 255, nullable = false)
+	private String llavePermiso;
+
+	@Column(name = "NU_PERMISO", nullable = false)
+	private Integer numeroPermiso;
+
+	@Column(name = "CH_PROCESO_PERMISO", length = 100, nullable = false)
+	private String procesoPermiso;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "FC_INICIO_PERMISO", nullable = false)
+	private Date fechaInicioPermiso;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "FC_EXPIRA_PERMISO", nullable = false)
+	private Date fechaExpiraPermiso;
+
+	@Column(name = "CH_NOMBRE_SERVICIO", length = 100, nullable = false)
+	private String nombreServicio;
+
+	// Getters y Setters
+	public Long getIdPermiso() {
+		return idPermiso;
+	}
+
+	public void setIdPermiso(Long idPermiso) {
+		this.idPermiso = idPermiso;
+	}
+
+	public String getLlavePermiso() {
+		return llavePermiso;
+	}
+
+	public void setLlavePermiso(String llavePermiso) {
+		this.llavePermiso = llavePermiso;
+	}
+
+	public Integer getNumeroPermiso() {
+		return numeroPermiso;
+	}
+
+	public void setNumeroPermiso(Integer numeroPermiso) {
+		this.numeroPermiso = numeroPermiso;
+	}
+
+	public String getProcesoPermiso() {
+		return procesoPermiso;
+	}
+
+	public void setProcesoPermiso(String procesoPermiso) {
+		this.procesoPermiso = procesoPermiso;
+	}
+
+	public Date getFechaInicioPermiso() {
+		return fechaInicioPermiso;
+	}
+
+	public void setFechaInicioPermiso(Date fechaInicioPermiso) {
+		this.fechaInicioPermiso = fechaInicioPermiso;
+	}
+
+	public Date getFechaExpiraPermiso() {
+		return fechaExpiraPermiso;
+	}
+
+	public void setFechaExpiraPermiso(Date fechaExpiraPermiso) {
+		this.fechaExpiraPermiso = fechaExpiraPermiso;
+	}
+
+	public String getNombreServicio() {
+		return nombreServicio;
+	}
+
+	public void setNombreServicio(String nombreServicio) {
+		this.nombreServicio = nombreServicio;
+	}
+}
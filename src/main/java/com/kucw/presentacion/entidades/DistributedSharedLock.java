@@ -0,0 +1,99 @@
+package com.kucw.presentacion.entidades;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Entidad que representa a un lector que mantiene un bloqueo compartido.
+ * Cada lector registra su propia fila, de modo que varios lectores pueden unirse al mismo
+ * bloqueo sin competir por la escritura de una fila común. El escritor se representa con
+ * el registro exclusivo de la llave en TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS.
+ */
+@Entity
+@Table(name = "TB_NSAR_BLOQUEO_COMPARTIDO", indexes = {
+		@Index(name = "IDX_COMPARTIDO_LLAVE_PROCESO", columnList = "CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO", unique = true),
+		@Index(name = "IDX_COMPARTIDO_EXPIRACION", columnList = "FC_EXPIRA_BLOQUEO") })
+public class DistributedSharedLock {
+
+	@Id
+	@Column(name = "ID_BLOQUEO_COMPARTIDO")
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bloqueoCompartidoSequence")
+	@SequenceGenerator(name = "bloqueoCompartidoSequence", sequenceName = "SEQ_TB_NSAR_BLOQUEO_COMPARTIDO", allocationSize = 1)
+	private Long idBloqueoCompartido;
+
+	@Column(name = "CH_LLAVE_BLOQUEO", length = 255, nullable = false)
+	private String llaveBloqueo;
+
+	@Column(name = "CH_PROCESO_BLOQUEO", length = 100, nullable = false)
+	private String procesoBloqueo;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "FC_INICIO_BLOQUEO", nullable = false)
+	private Date fechaInicioBloqueo;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "FC_EXPIRA_BLOQUEO", nullable = false)
+	private Date fechaExpiraBloqueo;
+
+	@Column(name = "CH_NOMBRE_SERVICIO", length = 100, nullable = false)
+	private String nombreServicio;
+
+	// Getters y Setters
+	public Long getIdBloqueoCompartido() {
+		return idBloqueoCompartido;
+	}
+
+	public void setIdBloqueoCompartido(Long idBloqueoCompartido) {
+		this.idBloqueoCompartido = idBloqueoCompartido;
+	}
+
+	public String getLlaveBloqueo() {
+		return llaveBloqueo;
+	}
+
+	public void setLlaveBloqueo(String llaveBloqueo) {
+		this.llaveBloqueo = llaveBloqueo;
+	}
+
+	public String getProcesoBloqueo() {
+		return procesoBloqueo;
+	}
+
+	public void setProcesoBloqueo(String procesoBloqueo) {
+		this.procesoBloqueo = procesoBloqueo;
+	}
+
+	public Date getFechaInicioBloqueo() {
+		return fechaInicioBloqueo;
+	}
+
+	public void setFechaInicioBloqueo(Date fechaInicioBloqueo) {
+		this.fechaInicioBloqueo = fechaInicioBloqueo;
+	}
+
+	public Date getFechaExpiraBloqueo() {
+		return fechaExpiraBloqueo;
+	}
+
+	public void setFechaExpiraBloqueo(Date fechaExpiraBloqueo) {
+		this.fechaExpiraBloqueo = fechaExpiraBloqueo;
+	}
+
+	public String getNombreServicio() {
+		return nombreServicio;
+	}
+
+	public void setNombreServicio(String nombreServicio) {
+		this.nombreServicio = nombreServicio;
+	}
+}
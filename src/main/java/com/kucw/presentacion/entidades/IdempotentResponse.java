@@ -0,0 +1,106 @@
+package com.kucw.presentacion.entidades;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Entidad que representa la respuesta ya calculada de una petición, identificada por su huella.
+ * IdempotencyStore la registra antes de liberar el bloqueo de la petición, de modo que una
+ * petición idéntica que llega después a cualquier nodo recibe la misma respuesta sin volver a
+ * procesarse. Los registros se eliminan al vencer FC_EXPIRA_RESPUESTA junto con los bloqueos
+ * expirados.
+ */
+@Entity
+@Table(name = "TB_NSAR_RESPUESTA_IDEMPOTENTE", indexes = {
+		@Index(name = "IDX_RESPUESTA_LLAVE", columnList = "CH_LLAVE_PETICION", unique = true),
+		@Index(name = "IDX_RESPUESTA_EXPIRACION", columnList = "FC_EXPIRA_RESPUESTA") })
+public class IdempotentResponse {
+
+	@Id
+	@Column(name = "ID_RESPUESTA_IDEMPOTENTE")
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "respuestaSequence")
+	@SequenceGenerator(name = "respuestaSequence", sequenceName = "SEQ_TB_NSAR_RESPUESTA_IDEMPOTENTE", allocationSize = 1)
+	private Long idRespuesta;
+
+	/**
+	 * Llave de la petición (la misma del bloqueo)
+	 */
+	@Column(name = "CH_LLAVE_PETICION", length = 255, nullable = false)
+	private String llavePeticion;
+
+	@Column(name = "CH_NOMBRE_SERVICIO", length = 100, nullable = false)
+	private String nombreServicio;
+
+	/**
+	 * Respuesta serializada en JSON
+	 */
+	@Column(name = "CH_RESPUESTA", length = 4000, nullable = false)
+	private String respuesta;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "FC_REGISTRO", nullable = false)
+	private Date fechaRegistro;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "FC_EXPIRA_RESPUESTA", nullable = false)
+	private Date fechaExpiraRespuesta;
+
+	// Getters y Setters
+	public Long getIdRespuesta() {
+		return idRespuesta;
+	}
+
+	public void setIdRespuesta(Long idRespuesta) {
+		this.idRespuesta = idRespuesta;
+	}
+
+	public String getLlavePeticion() {
+		return llavePeticion;
+	}
+
+	public void setLlavePeticion(String llavePeticion) {
+		this.llavePeticion = llavePeticion;
+	}
+
+	public String getNombreServicio() {
+		return nombreServicio;
+	}
+
+	public void setNombreServicio(String nombreServicio) {
+		this.nombreServicio = nombreServicio;
+	}
+
+	public String getRespuesta() {
+		return respuesta;
+	}
+
+	public void setRespuesta(String respuesta) {
+		this.respuesta = respuesta;
+	}
+
+	public Date getFechaRegistro() {
+		return fechaRegistro;
+	}
+
+	public void setFechaRegistro(Date fechaRegistro) {
+		this.fechaRegistro = fechaRegistro;
+	}
+
+	public Date getFechaExpiraRespuesta() {
+		return fechaExpiraRespuesta;
+	}
+
+	public void setFechaExpiraRespuesta(Date fechaExpiraRespuesta) {
+		this.fechaExpiraRespuesta = fechaExpiraRespuesta;
+	}
+}
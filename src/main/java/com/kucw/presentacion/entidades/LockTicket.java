@@ -0,0 +1,92 @@
+package com.kucw.presentacion.entidades;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Entidad que representa el turno de un proceso en la cola de espera de una llave (ver LockQueue).
+ * El identificador, tomado de una secuencia, define el orden de la cola en todos los nodos: un
+ * proceso solo intenta adquirir el bloqueo cuando no queda un turno vigente anterior al suyo.
+ * Cada turno ocupa además una posición numerada (0 a lock.queue.max.depth - 1); la restricción
+ * única (llave, posición) garantiza que la cola nunca exceda su profundidad, aun cuando dos
+ * nodos intenten tomar la misma posición al mismo tiempo.
+ * El turno se elimina cuando el proceso libera el bloqueo o abandona la espera; los turnos de
+ * nodos caídos se eliminan al vencer FC_EXPIRA_TURNO junto con los bloqueos expirados.
+ */
+@Entity
+@Table(name = "TB_NSAR_TURNO_BLOQUEO", indexes = {
+		@Index(name = "IDX_TURNO_LLAVE", columnList = "CH_LLAVE_BLOQUEO, ID_TURNO_BLOQUEO"),
+		@Index(name = "IDX_TURNO_LLAVE_POSICION", columnList = "CH_LLAVE_BLOQUEO, NU_POSICION", unique = true),
+		@Index(name = "IDX_TURNO_EXPIRACION", columnList = "FC_EXPIRA_TURNO") })
+public class LockTicket {
+
+	@Id
+	@Column(name = "ID_TURNO_BLOQUEO")
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "turnoSequence")
+	@SequenceGenerator(name = "turnoSequence", sequenceName = "SEQ_TB_NSAR_TURNO_BLOQUEO", allocationSize = 1)
+	private Long idTurno;
+
+	@Column(name = "CH_LLAVE_BLOQUEO", length = 255, nullable = false)
+	private String llaveBloqueo;
+
+	@Column(name = "NU_POSICION", nullable = false)
+	private Integer numeroPosicion;
+
+	@Column(name = "CH_PROCESO_BLOQUEO", length = 100, nullable = false)
+	private String procesoBloqueo;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "FC_EXPIRA_TURNO", nullable = false)
+	private Date fechaExpiraTurno;
+
+	// Getters y Setters
+	public Long getIdTurno() {
+		return idTurno;
+	}
+
+	public void setIdTurno(Long idTurno) {
+		this.idTurno = idTurno;
+	}
+
+	public String getLlaveBloqueo() {
+		return llaveBloqueo;
+	}
+
+	public void setLlaveBloqueo(String llaveBloqueo) {
+		this.llaveBloqueo = llaveBloqueo;
+	}
+
+	public Integer getNumeroPosicion() {
+		return numeroPosicion;
+	}
+
+	public void setNumeroPosicion(Integer numeroPosicion) {
+		this.numeroPosicion = numeroPosicion;
+	}
+
+	public String getProcesoBloqueo() {
+		return procesoBloqueo;
+	}
+
+	public void setProcesoBloqueo(String procesoBloqueo) {
+		this.procesoBloqueo = procesoBloqueo;
+	}
+
+	public Date getFechaExpiraTurno() {
+		return fechaExpiraTurno;
+	}
+
+	public void setFechaExpiraTurno(Date fechaExpiraTurno) {
+		this.fechaExpiraTurno = fechaExpiraTurno;
+	}
+}
@@ -0,0 +1,77 @@
+package com.kucw.presentacion.entidades;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Entidad que representa un día inhábil (festivo) del calendario de un parámetro, por ejemplo
+ * P00020. Los fines de semana no se registran: se configuran con calendar.weekend. ValidarDiasHabilService
+ * carga la tabla completa en memoria al arrancar, a medianoche y cuando cambia su contenido.
+ */
+@Entity
+@Table(name = "TB_NSAR_DIA_INHABIL", indexes = {
+		@Index(name = "IDX_DIA_INHABIL_PARAMETRO", columnList = "CH_PARAMETRO, FC_DIA_INHABIL", unique = true) })
+public class NonBusinessDay {
+
+	@Id
+	@Column(name = "ID_DIA_INHABIL")
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "diaInhabilSequence")
+	@SequenceGenerator(name = "diaInhabilSequence", sequenceName = "SEQ_TB_NSAR_DIA_INHABIL", allocationSize = 1)
+	private Long idDiaInhabil;
+
+	/**
+	 * Código del parámetro al que pertenece el calendario
+	 */
+	@Column(name = "CH_PARAMETRO", length = 10, nullable = false)
+	private String parametro;
+
+	@Temporal(TemporalType.DATE)
+	@Column(name = "FC_DIA_INHABIL", nullable = false)
+	private Date fechaDiaInhabil;
+
+	@Column(name = "CH_DESCRIPCION", length = 100)
+	private String descripcion;
+
+	// Getters y Setters
+	public Long getIdDiaInhabil() {
+		return idDiaInhabil;
+	}
+
+	public void setIdDiaInhabil(Long idDiaInhabil) {
+		this.idDiaInhabil = idDiaInhabil;
+	}
+
+	public String getParametro() {
+		return parametro;
+	}
+
+	public void setParametro(String parametro) {
+		this.parametro = parametro;
+	}
+
+	public Date getFechaDiaInhabil() {
+		return fechaDiaInhabil;
+	}
+
+	public void setFechaDiaInhabil(Date fechaDiaInhabil) {
+		this.fechaDiaInhabil = fechaDiaInhabil;
+	}
+
+	public String getDescripcion() {
+		return descripcion;
+	}
+
+	public void setDescripcion(String descripcion) {
+		this.descripcion = descripcion;
+	}
+}
@@ -0,0 +1,144 @@
+package com.kucw.presentacion.entidades;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Entidad que representa el registro de auditoría del contenido de una petición.
+ * La tabla solo recibe inserciones (RequestAuditWriter las envía por lotes) y el contenido se
+ * guarda comprimido con GZIP. Se registra la petición rechazada cuando otro proceso mantiene el
+ * bloqueo y, si se configura un muestreo, una fracción de las peticiones que sí lo adquieren.
+ * Los registros se eliminan al vencer FC_EXPIRA_AUDITORIA junto con los bloqueos expirados.
+ */
+@Entity
+@Table(name = "TB_NSAR_AUDITORIA_PETICION", indexes = {
+		@Index(name = "IDX_AUDITORIA_LLAVE", columnList = "CH_LLAVE_BLOQUEO, FC_REGISTRO"),
+		@Index(name = "IDX_AUDITORIA_EXPIRACION", columnList = "FC_EXPIRA_AUDITORIA") })
+public class RequestAudit {
+
+	@Id
+	@Column(name = "ID_AUDITORIA_PETICION")
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "auditoriaSequence")
+	@SequenceGenerator(name = "auditoriaSequence", sequenceName = "SEQ_TB_NSAR_AUDITORIA_PETICION", allocationSize = 1)
+	private Long idAuditoria;
+
+	@Column(name = "CH_LLAVE_BLOQUEO", length = 255, nullable = false)
+	private String llaveBloqueo;
+
+	@Column(name = "CH_PROCESO_BLOQUEO", length = 100, nullable = false)
+	private String procesoBloqueo;
+
+	@Column(name = "CH_NOMBRE_SERVICIO", length = 100, nullable = false)
+	private String nombreServicio;
+
+	/**
+	 * Motivo del registro: SIMULTANEA (la petición encontró el bloqueo ocupado) o MUESTRA
+	 */
+	@Column(name = "CH_MOTIVO", length = 10, nullable = false)
+	private String motivo;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "FC_REGISTRO", nullable = false)
+	private Date fechaRegistro;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "FC_EXPIRA_AUDITORIA", nullable = false)
+	private Date fechaExpiraAuditoria;
+
+	/**
+	 * Tamaño en bytes (UTF-8) del contenido antes de comprimirlo
+	 */
+	@Column(name = "NU_TAMANO_REQUEST", nullable = false)
+	private Integer tamanoRequest;
+
+	/**
+	 * Contenido JSON de la petición comprimido con GZIP
+	 */
+	@Lob
+	@Column(name = "BL_REQUEST", nullable = false)
+	private byte[] request;
+
+	// Getters y Setters
+	public Long getIdAuditoria() {
+		return idAuditoria;
+	}
+
+	public void setIdAuditoria(Long idAuditoria) {
+		this.idAuditoria = idAuditoria;
+	}
+
+	public String getLlaveBloqueo() {
+		return llaveBloqueo;
+	}
+
+	public void setLlaveBloqueo(String llaveBloqueo) {
+		this.llaveBloqueo = llaveBloqueo;
+	}
+
+	public String getProcesoBloqueo() {
+		return procesoBloqueo;
+	}
+
+	public void setProcesoBloqueo(String procesoBloqueo) {
+		this.procesoBloqueo = procesoBloqueo;
+	}
+
+	public String getNombreServicio() {
+		return nombreServicio;
+	}
+
+	public void setNombreServicio(String nombreServicio) {
+		this.nombreServicio = nombreServicio;
+	}
+
+	public String getMotivo() {
+		return motivo;
+	}
+
+	public void setMotivo(String motivo) {
+		this.motivo = motivo;
+	}
+
+	public Date getFechaRegistro() {
+		return fechaRegistro;
+	}
+
+	public void setFechaRegistro(Date fechaRegistro) {
+		this.fechaRegistro = fechaRegistro;
+	}
+
+	public Date getFechaExpiraAuditoria() {
+		return fechaExpiraAuditoria;
+	}
+
+	public void setFechaExpiraAuditoria(Date fechaExpiraAuditoria) {
+		this.fechaExpiraAuditoria = fechaExpiraAuditoria;
+	}
+
+	public Integer getTamanoRequest() {
+		return tamanoRequest;
+	}
+
+	public void setTamanoRequest(Integer tamanoRequest) {
+		this.tamanoRequest = tamanoRequest;
+	}
+
+	public byte[] getRequest() {
+		return request;
+	}
+
+	public void setRequest(byte[] request) {
+		this.request = request;
+	}
+}
@@ -0,0 +1,40 @@
+package com.kucw.presentacion.modelos;
+
+import java.util.List;
+
+/**
+ * Página de una consulta administrativa de bloqueos.
+ *
+ * La paginación es por llave: siguiente es la posición del último bloqueo de la página y se envía
+ * sin cambios en el parámetro desde de la siguiente consulta; es null cuando no hay más páginas.
+ */
+public class DistributedLockPageModel {
+
+	private List<DistributedLockSummaryModel> bloqueos;
+
+	private String siguiente;
+
+	public DistributedLockPageModel() {
+	}
+
+	public DistributedLockPageModel(List<DistributedLockSummaryModel> bloqueos, String siguiente) {
+		this.bloqueos = bloqueos;
+		this.siguiente = siguiente;
+	}
+
+	public List<DistributedLockSummaryModel> getBloqueos() {
+		return bloqueos;
+	}
+
+	public String getSiguiente() {
+		return siguiente;
+	}
+
+	public void setBloqueos(List<DistributedLockSummaryModel> bloqueos) {
+		this.bloqueos = bloqueos;
+	}
+
+	public void setSiguiente(String siguiente) {
+		this.siguiente = siguiente;
+	}
+}
@@ -0,0 +1,122 @@
+package com.kucw.presentacion.modelos;
+
+import java.util.Date;
+
+/**
+ * Proyección ligera de un bloqueo para las consultas administrativas.
+ *
+ * Contiene únicamente las columnas de control del bloqueo; el contenido de las peticiones se
+ * consulta en TB_NSAR_AUDITORIA_PETICION.
+ */
+public class DistributedLockSummaryModel {
+
+	private Long idBloqueoDistribuido;
+
+	private String llaveBloqueo;
+
+	private String procesoBloqueo;
+
+	private Date fechaInicioBloqueo;
+
+	private Date fechaExpiraBloqueo;
+
+	private String usuarioModificador;
+
+	private String nombreServicio;
+
+	private String peticionSimultanea;
+
+	private Date fechaLlegoOtraPeticion;
+
+	private Date fechaPrimeraOtraPeticion;
+
+	private int peticionesSimultaneas;
+
+	public Long getIdBloqueoDistribuido() {
+		return idBloqueoDistribuido;
+	}
+
+	public String getLlaveBloqueo() {
+		return llaveBloqueo;
+	}
+
+	public String getProcesoBloqueo() {
+		return procesoBloqueo;
+	}
+
+	public Date getFechaInicioBloqueo() {
+		return fechaInicioBloqueo;
+	}
+
+	public Date getFechaExpiraBloqueo() {
+		return fechaExpiraBloqueo;
+	}
+
+	public String getUsuarioModificador() {
+		return usuarioModificador;
+	}
+
+	public String getNombreServicio() {
+		return nombreServicio;
+	}
+
+	public String getPeticionSimultanea() {
+		return peticionSimultanea;
+	}
+
+	public Date getFechaLlegoOtraPeticion() {
+		return fechaLlegoOtraPeticion;
+	}
+
+	public Date getFechaPrimeraOtraPeticion() {
+		return fechaPrimeraOtraPeticion;
+	}
+
+	public int getPeticionesSimultaneas() {
+		return peticionesSimultaneas;
+	}
+
+	public void setIdBloqueoDistribuido(Long idBloqueoDistribuido) {
+		this.idBloqueoDistribuido = idBloqueoDistribuido;
+	}
+
+	public void setLlaveBloqueo(String llaveBloqueo) {
+		this.llaveBloqueo = llaveBloqueo;
+	}
+
+	public void setProcesoBloqueo(String procesoBloqueo) {
+		this.procesoBloqueo = procesoBloqueo;
+	}
+
+	public void setFechaInicioBloqueo(Date fechaInicioBloqueo) {
+		this.fechaInicioBloqueo = fechaInicioBloqueo;
+	}
+
+	public void setFechaExpiraBloqueo(Date fechaExpiraBloqueo) {
+		this.fechaExpiraBloqueo = fechaExpiraBloqueo;
+	}
+
+	public void setUsuarioModificador(String usuarioModificador) {
+		this.usuarioModificador = usuarioModificador;
+	}
+
+	public void setNombreServicio(String nombreServicio) {
+		this.nombreServicio = nombreServicio;
+	}
+
+	public void setPeticionSimultanea(String peticionSimultanea) {
+		this.peticionSimultanea = peticionSimultanea;
+	}
+
+	public void setFechaLlegoOtraPeticion(Date fechaLlegoOtraPeticion) {
+		this.fechaLlegoOtraPeticion = fechaLlegoOtraPeticion;
+	}
+
+	public void setFechaPrimeraOtraPeticion(Date fechaPrimeraOtraPeticion) {
+		this.fechaPrimeraOtraPeticion = fechaPrimeraOtraPeticion;
+	}
+
+	public void setPeticionesSimultaneas(int peticionesSimultaneas) {
+		this.peticionesSimultaneas = peticionesSimultaneas;
+	}
+}
@@ -0,0 +1,39 @@
+package com.kucw.presentacion.modelos;
+
+/**
+ * Huella canónica y contenido del cuerpo de una petición, calculados por
+ * RequestFingerprintAdvice antes de deserializar la entrada.
+ *
+ * El contenido se conserva en los bytes recibidos; solo la auditoría de peticiones lo utiliza,
+ * por lo que no se decodifica como texto en cada petición.
+ */
+public class RequestFingerprintModel {
+
+	private final String huella;
+
+	private final byte[] cuerpo;
+
+	/**
+	 * @param huella huella del cuerpo
+	 * @param cuerpo contenido recibido en UTF-8; el modelo lo conserva sin copiarlo, por lo que
+	 *               no debe modificarse ni reutilizarse después
+	 */
+	public RequestFingerprintModel(String huella, byte[] cuerpo) {
+		this.huella = huella;
+		this.cuerpo = cuerpo;
+	}
+
+	/**
+	 * @return huella de 32 caracteres hexadecimales (ver RequestFingerprinter)
+	 */
+	public String getHuella() {
+		return huella;
+	}
+
+	/**
+	 * @return contenido JSON recibido en UTF-8, sin modificar; no debe modificarse
+	 */
+	public byte[] getCuerpo() {
+		return cuerpo;
+	}
+}
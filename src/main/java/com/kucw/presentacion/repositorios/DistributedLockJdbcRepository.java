@@ -0,0 +1,319 @@
+package com.kucw.presentacion.repositorios;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import com.kucw.presentacion.modelos.DistributedLockModel;
+
+/**
+ * Repositorio JDBC para la tabla TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS.
+ *
+ * A diferencia de DistributedLockRepository (JPA), este repositorio resuelve la adquisición
+ * de un bloqueo en una sola sentencia MERGE condicional: inserta el registro si la llave no
+ * existe, toma el registro si el bloqueo existente ya expiró, o no modifica nada si el bloqueo
+ * sigue vigente. El resultado se decide únicamente por el número de filas afectadas.
+ *
+ * Las sentencias se generan para cada partición de LockShardRouter (lock.shards); cada operación
+ * se dirige a la tabla que corresponde a la llave y las operaciones sobre varias llaves se agrupan
+ * en una sentencia o un lote por partición.
+ */
+@Repository
+public class DistributedLockJdbcRepository {
+
+	/**
+	 * Sentencia de adquisición en un solo viaje a base de datos (plantilla: %1$s es la tabla y
+	 * %2$s la secuencia de la partición).
+	 * El identificador se obtiene de la secuencia dentro de la misma sentencia.
+	 * En Oracle la condición de toma se expresa como "WHEN MATCHED THEN UPDATE ... WHERE".
+	 */
+	private static final String SQL_ADQUIRIR = "MERGE INTO %1$s b "
+			+ "USING (SELECT CAST(:llave AS VARCHAR(255)) AS CH_LLAVE_BLOQUEO FROM DUAL) s "
+			+ "ON (b.CH_LLAVE_BLOQUEO = s.CH_LLAVE_BLOQUEO) "
+			+ "WHEN MATCHED AND b.FC_EXPIRA_BLOQUEO <= :inicio THEN UPDATE SET "
+			+ "CH_PROCESO_BLOQUEO = :proceso, FC_INICIO_BLOQUEO = :inicio, FC_EXPIRA_BLOQUEO = :expira, "
+			+ "CH_USUARIO_MODIFICADOR = :usuario, CH_NOMBRE_SERVICIO = :servicio, "
+			+ "CH_PETICION_SIMULTANEA = 'FALSE', FC_LLEGO_OTRA_PETICION = NULL, "
+			+ "FC_PRIMERA_OTRA_PETICION = NULL, NU_PETICIONES_SIMULTANEAS = 0 "
+			+ "WHEN NOT MATCHED THEN INSERT (ID_BLOQUEO_DISTRIBUIDO, CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO, "
+			+ "FC_INICIO_BLOQUEO, FC_EXPIRA_BLOQUEO, CH_USUARIO_MODIFICADOR, CH_NOMBRE_SERVICIO, "
+			+ "CH_PETICION_SIMULTANEA, NU_PETICIONES_SIMULTANEAS) VALUES (%2$s.NEXTVAL, "
+			+ "s.CH_LLAVE_BLOQUEO, :proceso, :inicio, :expira, :usuario, :servicio, 'FALSE', 0)";
+
+	/** Libera el bloqueo únicamente si pertenece al proceso indicado. */
+	private static final String SQL_LIBERAR = "DELETE FROM %1$s "
+			+ "WHERE CH_LLAVE_BLOQUEO = :llave AND CH_PROCESO_BLOQUEO = :proceso";
+
+	/** Libera varios bloqueos del mismo proceso. */
+	private static final String SQL_LIBERAR_TODOS = "DELETE FROM %1$s "
+			+ "WHERE CH_LLAVE_BLOQUEO IN (:llaves) AND CH_PROCESO_BLOQUEO = :proceso";
+
+	/**
+	 * Acumula en el bloqueo las peticiones simultáneas detectadas desde el último registro: suma
+	 * el conteo, conserva la primera llegada y reemplaza la última. La suma permite que varios
+	 * nodos registren sobre la misma fila sin perder conteos.
+	 */
+	private static final String SQL_MARCAR_SIMULTANEAS = "UPDATE %1$s SET CH_PETICION_SIMULTANEA = 'TRUE', "
+			+ "NU_PETICIONES_SIMULTANEAS = COALESCE(NU_PETICIONES_SIMULTANEAS, 0) + :cuenta, "
+			+ "FC_PRIMERA_OTRA_PETICION = COALESCE(FC_PRIMERA_OTRA_PETICION, :primera), "
+			+ "FC_LLEGO_OTRA_PETICION = CASE WHEN FC_LLEGO_OTRA_PETICION > :ultima THEN FC_LLEGO_OTRA_PETICION ELSE :ultima END "
+			+ "WHERE CH_LLAVE_BLOQUEO = :llave";
+
+	/**
+	 * Extiende en una sola sentencia la expiración de todos los bloqueos indicados,
+	 * únicamente si siguen perteneciendo al proceso que los adquirió.
+	 */
+	private static final String SQL_RENOVAR = "UPDATE %1$s "
+			+ "SET FC_EXPIRA_BLOQUEO = :expira WHERE (CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO) IN (:pares)";
+
+	/**
+	 * Llaves de los pares indicados que siguen perteneciendo a su proceso. Solo se consulta cuando
+	 * la renovación afectó menos filas que pares, para saber cuáles se perdieron.
+	 */
+	private static final String SQL_VIGENTES_DE_PROCESO = "SELECT CH_LLAVE_BLOQUEO FROM %1$s "
+			+ "WHERE (CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO) IN (:pares)";
+
+	/** Indica si la llave tiene un bloqueo vigente. */
+	private static final String SQL_VIGENTE = "SELECT COUNT(*) FROM %1$s "
+			+ "WHERE CH_LLAVE_BLOQUEO = :llave AND FC_EXPIRA_BLOQUEO > :ahora";
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private LockShardRouter router;
+
+	/** Sentencias de cada partición, generadas a partir de las plantillas. */
+	private Sentencias[] sentencias;
+
+	@PostConstruct
+	void init() {
+		sentencias = new Sentencias[router.shards()];
+		for (int i = 0; i < sentencias.length; i++) {
+			sentencias[i] = new Sentencias(router.tabla(i), router.secuencia(i));
+		}
+	}
+
+	private Sentencias de(String llave) {
+		return sentencias[router.shard(llave)];
+	}
+
+	/**
+	 * Intenta adquirir (o tomar por expiración) el bloqueo descrito por el modelo.
+	 *
+	 * @param bloqueo datos del bloqueo a registrar (llave, proceso, fechas, usuario y servicio)
+	 * @return número de filas afectadas: 1 si el bloqueo fue adquirido, 0 si otro proceso lo mantiene
+	 */
+	public int adquirir(DistributedLockModel bloqueo) {
+		return jdbcTemplate.update(de(bloqueo.getLlaveBloqueo()).adquirir, parametrosAdquirir(bloqueo));
+	}
+
+	/**
+	 * Intenta adquirir varios bloqueos enviando todas las sentencias MERGE en un solo lote JDBC.
+	 *
+	 * @param bloqueos bloqueos a registrar, en el orden canónico de sus llaves
+	 * @return filas afectadas por cada bloqueo, en el mismo orden
+	 */
+	public int[] adquirirTodos(List<DistributedLockModel> bloqueos) {
+		if (sentencias.length == 1) {
+			SqlParameterSource[] params = new SqlParameterSource[bloqueos.size()];
+			for (int i = 0; i < params.length; i++) {
+				params[i] = parametrosAdquirir(bloqueos.get(i));
+			}
+			return jdbcTemplate.batchUpdate(sentencias[0].adquirir, params);
+		}
+
+		// Un lote por partición; los conteos se devuelven en el orden original
+		List<Integer> posiciones = new ArrayList<>(bloqueos.size());
+		for (int i = 0; i < bloqueos.size(); i++) {
+			posiciones.add(i);
+		}
+		int[] filas = new int[bloqueos.size()];
+		for (Map.Entry<Integer, List<Integer>> grupo : router
+				.agrupar(posiciones, i -> bloqueos.get(i).getLlaveBloqueo()).entrySet()) {
+			List<Integer> indices = grupo.getValue();
+			SqlParameterSource[] params = new SqlParameterSource[indices.size()];
+			for (int i = 0; i < params.length; i++) {
+				params[i] = parametrosAdquirir(bloqueos.get(indices.get(i)));
+			}
+			int[] parciales = jdbcTemplate.batchUpdate(sentencias[grupo.getKey()].adquirir, params);
+			for (int i = 0; i < parciales.length; i++) {
+				filas[indices.get(i)] = parciales[i];
+			}
+		}
+		return filas;
+	}
+
+	private static MapSqlParameterSource parametrosAdquirir(DistributedLockModel bloqueo) {
+		return new MapSqlParameterSource()
+				.addValue("llave", bloqueo.getLlaveBloqueo())
+				.addValue("proceso", bloqueo.getProcesoBloqueo())
+				.addValue("inicio", bloqueo.getFechaInicioBloqueo())
+				.addValue("expira", bloqueo.getFechaExpiraBloqueo())
+				.addValue("usuario", bloqueo.getUsuarioModificador())
+				.addValue("servicio", bloqueo.getNombreServicio());
+	}
+
+	/**
+	 * Elimina el bloqueo si pertenece al proceso indicado.
+	 *
+	 * @param llave   clave del bloqueo
+	 * @param proceso identificador del proceso propietario
+	 * @return número de filas eliminadas
+	 */
+	public int liberar(String llave, String proceso) {
+		return jdbcTemplate.update(de(llave).liberar,
+				new MapSqlParameterSource().addValue("llave", llave).addValue("proceso", proceso));
+	}
+
+	/**
+	 * Elimina en una sola sentencia los bloqueos de las llaves indicadas que pertenecen al proceso.
+	 *
+	 * @param llaves  claves de los bloqueos
+	 * @param proceso identificador del proceso propietario
+	 * @return número de filas eliminadas
+	 */
+	public int liberarTodos(Collection<String> llaves, String proceso) {
+		int filas = 0;
+		for (Map.Entry<Integer, List<String>> grupo : router.agrupar(llaves, llave -> llave).entrySet()) {
+			filas += jdbcTemplate.update(sentencias[grupo.getKey()].liberarTodos,
+					new MapSqlParameterSource().addValue("llaves", grupo.getValue()).addValue("proceso", proceso));
+		}
+		return filas;
+	}
+
+	/**
+	 * Elimina varios bloqueos de procesos distintos en un lote JDBC por partición; cada
+	 * eliminación es condicional a que el bloqueo siga perteneciendo a su proceso.
+	 *
+	 * @param pares pares {llave, proceso} de los bloqueos a eliminar
+	 * @return número de filas eliminadas
+	 */
+	public int liberarLote(List<Object[]> pares) {
+		int filas = 0;
+		for (Map.Entry<Integer, List<Object[]>> grupo : router.agrupar(pares, par -> (String) par[0]).entrySet()) {
+			List<Object[]> lote = grupo.getValue();
+			SqlParameterSource[] params = new SqlParameterSource[lote.size()];
+			for (int i = 0; i < params.length; i++) {
+				params[i] = new MapSqlParameterSource().addValue("llave", lote.get(i)[0]).addValue("proceso", lote.get(i)[1]);
+			}
+			for (int fila : jdbcTemplate.batchUpdate(sentencias[grupo.getKey()].liberar, params)) {
+				// Un controlador que no informa el conteo devuelve SUCCESS_NO_INFO (-2)
+				filas += Math.max(fila, 0);
+			}
+		}
+		return filas;
+	}
+
+	/**
+	 * Renueva la expiración de un conjunto de bloqueos en una sola sentencia por partición.
+	 *
+	 * Si la sentencia afecta menos filas que pares, se consulta cuáles siguen perteneciendo a su
+	 * proceso: la renovación de un par vigente no puede fallar, por lo que esos son los renovados.
+	 *
+	 * @param pares  pares {llave, proceso} de los bloqueos a renovar
+	 * @param expira nueva fecha de expiración
+	 * @return pares renovados, tomados de la lista recibida
+	 */
+	public List<Object[]> renovar(List<Object[]> pares, Date expira) {
+		List<Object[]> renovados = new ArrayList<>(pares.size());
+		for (Map.Entry<Integer, List<Object[]>> grupo : router.agrupar(pares, par -> (String) par[0]).entrySet()) {
+			List<Object[]> lote = grupo.getValue();
+			Sentencias particion = sentencias[grupo.getKey()];
+			MapSqlParameterSource params = new MapSqlParameterSource().addValue("pares", lote).addValue("expira", expira);
+			if (jdbcTemplate.update(particion.renovar, params) >= lote.size()) {
+				renovados.addAll(lote);
+				continue;
+			}
+			Set<String> vigentes = new HashSet<>(
+					jdbcTemplate.queryForList(particion.vigentesDeProceso, params, String.class));
+			for (Object[] par : lote) {
+				if (vigentes.contains(par[0])) {
+					renovados.add(par);
+				}
+			}
+		}
+		return renovados;
+	}
+
+	/**
+	 * Registra las peticiones simultáneas acumuladas de varias llaves en un lote JDBC por
+	 * partición, con una actualización por llave.
+	 *
+	 * @param marcas arreglos {llave, cuenta, primera llegada, última llegada}
+	 * @return número de bloqueos actualizados
+	 */
+	public int marcarPeticionesSimultaneas(List<Object[]> marcas) {
+		int filas = 0;
+		for (Map.Entry<Integer, List<Object[]>> grupo : router.agrupar(marcas, marca -> (String) marca[0]).entrySet()) {
+			List<Object[]> lote = grupo.getValue();
+			SqlParameterSource[] params = new SqlParameterSource[lote.size()];
+			for (int i = 0; i < params.length; i++) {
+				Object[] marca = lote.get(i);
+				params[i] = new MapSqlParameterSource().addValue("llave", marca[0]).addValue("cuenta", marca[1])
+						.addValue("primera", marca[2]).addValue("ultima", marca[3]);
+			}
+			for (int fila : jdbcTemplate.batchUpdate(sentencias[grupo.getKey()].marcarSimultaneas, params)) {
+				filas += Math.max(fila, 0);
+			}
+		}
+		return filas;
+	}
+
+	/**
+	 * Indica si la llave tiene un bloqueo vigente.
+	 *
+	 * @param llave clave del bloqueo
+	 * @param ahora fecha de referencia para la vigencia
+	 * @return true si existe un bloqueo vigente
+	 */
+	public boolean vigente(String llave, Date ahora) {
+		Integer total = jdbcTemplate.queryForObject(de(llave).vigente,
+				new MapSqlParameterSource().addValue("llave", llave).addValue("ahora", ahora), Integer.class);
+		return total != null && total > 0;
+	}
+
+	/**
+	 * Sentencias de una partición.
+	 */
+	private static final class Sentencias {
+
+		private final String adquirir;
+
+		private final String liberar;
+
+		private final String liberarTodos;
+
+		private final String marcarSimultaneas;
+
+		private final String renovar;
+
+		private final String vigentesDeProceso;
+
+		private final String vigente;
+
+		private Sentencias(String tabla, String secuencia) {
+			adquirir = String.format(SQL_ADQUIRIR, tabla, secuencia);
+			liberar = String.format(SQL_LIBERAR, tabla);
+			liberarTodos = String.format(SQL_LIBERAR_TODOS, tabla);
+			marcarSimultaneas = String.format(SQL_MARCAR_SIMULTANEAS, tabla);
+			renovar = String.format(SQL_RENOVAR, tabla);
+			vigentesDeProceso = String.format(SQL_VIGENTES_DE_PROCESO, tabla);
+			vigente = String.format(SQL_VIGENTE, tabla);
+		}
+	}
+}
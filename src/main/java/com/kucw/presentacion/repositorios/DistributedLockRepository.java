@@ -1,5 +1,6 @@
 package com.kucw.presentacion.repositorios;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.Optional;
 
@@ -29,6 +30,14 @@ public interface DistributedLockRepository extends JpaRepository<DistributedLock
 	void deleteByLlaveBloqueoAndProcesoBloqueo(@Param("llaveBloqueo") String llaveBloqueo,
 			@Param("procesoBloqueo") String procesoBloqueo);
 
+	/**
+	 * Elimina los bloqueos de varias claves que pertenecen al mismo propietario
+	 */
+	@Modifying
+	@Query("DELETE FROM DistributedLock l WHERE l.llaveBloqueo IN :llaves AND l.procesoBloqueo = :procesoBloqueo")
+	int deleteAllByLlaveBloqueoInAndProcesoBloqueo(@Param("llaves") Collection<String> llaves,
+			@Param("procesoBloqueo") String procesoBloqueo);
+
 	/**
 	 * Busca un bloqueo por su clave única
 	 */
@@ -41,10 +50,16 @@ public interface DistributedLockRepository extends JpaRepository<DistributedLock
 	Optional<DistributedLock> findValidLock(@Param("key") String key, @Param("now") Date now);
 
 	/**
-	 * Actualiza un bloqueo existente para marcar que se detectó una petición simultánea
-	 * y registrar la fecha en que llegó la otra petición
+	 * Toma un bloqueo expirado de la misma llave asignándolo al nuevo proceso.
+	 * Solo afecta la fila de la llave indicada y únicamente si su fecha de expiración ya pasó.
 	 */
 	@Modifying
-	@Query("UPDATE DistributedLock l SET l.peticionSimultanea = 'TRUE', l.fechaLlegoOtraPeticion = CURRENT_TIMESTAMP WHERE l.llaveBloqueo = :llaveBloqueo")
-	void updateLockWithSimultaneousRequest(@Param("llaveBloqueo") String llaveBloqueo);
+	@Query("UPDATE DistributedLock l SET l.procesoBloqueo = :procesoBloqueo, l.fechaInicioBloqueo = :inicio, "
+			+ "l.fechaExpiraBloqueo = :expira, l.usuarioModificador = :usuario, l.nombreServicio = :servicio, "
+			+ "l.peticionSimultanea = 'FALSE', l.fechaLlegoOtraPeticion = NULL, "
+			+ "l.fechaPrimeraOtraPeticion = NULL, l.peticionesSimultaneas = 0 "
+			+ "WHERE l.llaveBloqueo = :llaveBloqueo AND l.fechaExpiraBloqueo <= :inicio")
+	int takeOverExpiredLock(@Param("llaveBloqueo") String llaveBloqueo, @Param("procesoBloqueo") String procesoBloqueo,
+			@Param("inicio") Date inicio, @Param("expira") Date expira, @Param("usuario") String usuario,
+			@Param("servicio") String servicio);
 }
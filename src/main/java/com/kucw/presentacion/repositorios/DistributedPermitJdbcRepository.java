@@ -0,0 +1,118 @@
+package com.kucw.presentacion.repositorios;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio JDBC para los permisos de semáforos distribuidos en TB_NSAR_PERMISO_CONCURRENCIA.
+ *
+ * Cada permiso es una fila numerada por llave; la restricción única (llave, número) garantiza
+ * que nunca existan más permisos vigentes que el límite, aun cuando dos nodos intenten tomar
+ * el mismo número al mismo tiempo.
+ */
+@Repository
+public class DistributedPermitJdbcRepository {
+
+	/**
+	 * Toma en una sola sentencia el permiso libre de menor número: inserta un número que aún no
+	 * existe o toma uno expirado. Si los permisos vigentes ya alcanzan el límite, la consulta de
+	 * origen no devuelve filas y la sentencia no afecta ninguna.
+	 * En Oracle la condición de toma se expresa como "WHEN MATCHED THEN UPDATE ... WHERE".
+	 */
+	private static final String SQL_ADQUIRIR = "MERGE INTO TB_NSAR_PERMISO_CONCURRENCIA p "
+			+ "USING (SELECT CAST(:llave AS VARCHAR(255)) AS CH_LLAVE_PERMISO, MIN(c.NU_PERMISO) AS NU_PERMISO FROM ("
+			+ "SELECT 0 AS NU_PERMISO FROM DUAL UNION ALL "
+			+ "SELECT v.NU_PERMISO + 1 FROM TB_NSAR_PERMISO_CONCURRENCIA v "
+			+ "WHERE v.CH_LLAVE_PERMISO = :llave AND v.FC_EXPIRA_PERMISO > :inicio) c "
+			+ "WHERE c.NU_PERMISO < :limite AND NOT EXISTS (SELECT 1 FROM TB_NSAR_PERMISO_CONCURRENCIA o "
+			+ "WHERE o.CH_LLAVE_PERMISO = :llave AND o.NU_PERMISO = c.NU_PERMISO AND o.FC_EXPIRA_PERMISO > :inicio) "
+			+ "HAVING MIN(c.NU_PERMISO) IS NOT NULL) s "
+			+ "ON (p.CH_LLAVE_PERMISO = s.CH_LLAVE_PERMISO AND p.NU_PERMISO = s.NU_PERMISO) "
+			+ "WHEN MATCHED AND p.FC_EXPIRA_PERMISO <= :inicio THEN UPDATE SET "
+			+ "CH_PROCESO_PERMISO = :proceso, FC_INICIO_PERMISO = :inicio, FC_EXPIRA_PERMISO = :expira, "
+			+ "CH_NOMBRE_SERVICIO = :servicio "
+			+ "WHEN NOT MATCHED THEN INSERT (ID_PERMISO_CONCURRENCIA, CH_LLAVE_PERMISO, NU_PERMISO, CH_PROCESO_PERMISO, "
+			+ "FC_INICIO_PERMISO, FC_EXPIRA_PERMISO, CH_NOMBRE_SERVICIO) VALUES (SEQ_TB_NSAR_PERMISO_CONCURRENCIA.NEXTVAL, "
+			+ "s.CH_LLAVE_PERMISO, s.NU_PERMISO, :proceso, :inicio, :expira, :servicio)";
+
+	/** Devuelve el permiso; la fila se conserva expirada para que el siguiente proceso la tome en sitio. */
+	private static final String SQL_LIBERAR = "UPDATE TB_NSAR_PERMISO_CONCURRENCIA SET FC_EXPIRA_PERMISO = :ahora "
+			+ "WHERE CH_LLAVE_PERMISO = :llave AND CH_PROCESO_PERMISO = :proceso AND FC_EXPIRA_PERMISO > :ahora";
+
+	/**
+	 * Extiende la expiración de varios permisos en una sola sentencia. Solo renueva permisos
+	 * vigentes: la fila de un permiso devuelto conserva a su último propietario, y una renovación
+	 * que llegara después de la devolución lo reviviría sin que nadie vuelva a devolverlo.
+	 */
+	private static final String SQL_RENOVAR = "UPDATE TB_NSAR_PERMISO_CONCURRENCIA SET FC_EXPIRA_PERMISO = :expira "
+			+ "WHERE (CH_LLAVE_PERMISO, CH_PROCESO_PERMISO) IN (:pares) AND FC_EXPIRA_PERMISO > :ahora";
+
+	/** Cuenta los permisos vigentes de la llave. */
+	private static final String SQL_CONTAR = "SELECT COUNT(*) FROM TB_NSAR_PERMISO_CONCURRENCIA "
+			+ "WHERE CH_LLAVE_PERMISO = :llave AND FC_EXPIRA_PERMISO > :ahora";
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/**
+	 * Intenta tomar un permiso de la llave sin exceder el límite.
+	 *
+	 * @param llave    clave del semáforo
+	 * @param proceso  identificador del proceso que toma el permiso
+	 * @param limite   número máximo de permisos vigentes de la llave
+	 * @param inicio   fecha de inicio del permiso
+	 * @param expira   fecha de expiración del permiso
+	 * @param servicio nombre del servicio que toma el permiso
+	 * @return 1 si el permiso fue tomado, 0 si se alcanzó el límite
+	 */
+	public int adquirir(String llave, String proceso, int limite, Date inicio, Date expira, String servicio) {
+		return jdbcTemplate.update(SQL_ADQUIRIR,
+				new MapSqlParameterSource().addValue("llave", llave).addValue("proceso", proceso)
+						.addValue("limite", limite).addValue("inicio", inicio).addValue("expira", expira)
+						.addValue("servicio", servicio));
+	}
+
+	/**
+	 * Devuelve el permiso del proceso.
+	 *
+	 * @param llave   clave del semáforo
+	 * @param proceso identificador del proceso propietario
+	 * @return número de permisos devueltos
+	 */
+	public int liberar(String llave, String proceso) {
+		return jdbcTemplate.update(SQL_LIBERAR, new MapSqlParameterSource().addValue("llave", llave)
+				.addValue("proceso", proceso).addValue("ahora", new Date()));
+	}
+
+	/**
+	 * Renueva la expiración de un conjunto de permisos vigentes en una sola sentencia.
+	 *
+	 * @param pares  pares {llave, proceso} de los permisos a renovar
+	 * @param expira nueva fecha de expiración
+	 * @return número de permisos renovados
+	 */
+	public int renovar(List<Object[]> pares, Date expira) {
+		return jdbcTemplate.update(SQL_RENOVAR, new MapSqlParameterSource().addValue("pares", pares)
+				.addValue("expira", expira).addValue("ahora", new Date()));
+	}
+
+	/**
+	 * Cuenta los permisos vigentes de la llave.
+	 *
+	 * @param llave clave del semáforo
+	 * @param ahora fecha de referencia para la vigencia
+	 * @return número de permisos vigentes
+	 */
+	public int contarVigentes(String llave, Date ahora) {
+		Integer total = jdbcTemplate.queryForObject(SQL_CONTAR,
+				new MapSqlParameterSource().addValue("llave", llave).addValue("ahora", ahora), Integer.class);
+		return total != null ? total : 0;
+	}
+}
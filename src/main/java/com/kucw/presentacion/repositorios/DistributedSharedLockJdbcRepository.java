@@ -0,0 +1,137 @@
+package com.kucw.presentacion.repositorios;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio JDBC para los bloqueos compartidos (lectores) en TB_NSAR_BLOQUEO_COMPARTIDO.
+ *
+ * Cada lector inserta su propia fila; la exclusión con el escritor se resuelve contra el registro
+ * exclusivo de la misma llave en TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS.
+ */
+@Repository
+public class DistributedSharedLockJdbcRepository {
+
+	/**
+	 * Registra al lector solo si la llave no tiene un escritor vigente
+	 * (plantilla: %1$s es la tabla de bloqueos de la partición de la llave).
+	 */
+	private static final String SQL_UNIR_LECTOR = "INSERT INTO TB_NSAR_BLOQUEO_COMPARTIDO "
+			+ "(ID_BLOQUEO_COMPARTIDO, CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO, FC_INICIO_BLOQUEO, FC_EXPIRA_BLOQUEO, "
+			+ "CH_NOMBRE_SERVICIO) SELECT SEQ_TB_NSAR_BLOQUEO_COMPARTIDO.NEXTVAL, :llave, :proceso, :inicio, :expira, "
+			+ ":servicio FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM %1$s b "
+			+ "WHERE b.CH_LLAVE_BLOQUEO = :llave AND b.FC_EXPIRA_BLOQUEO > :inicio)";
+
+	/** Indica si la llave tiene un escritor vigente (plantilla, igual que SQL_UNIR_LECTOR). */
+	private static final String SQL_EXISTE_ESCRITOR = "SELECT COUNT(*) FROM %1$s "
+			+ "WHERE CH_LLAVE_BLOQUEO = :llave AND FC_EXPIRA_BLOQUEO > :ahora";
+
+	/** Cuenta los lectores vigentes de la llave. */
+	private static final String SQL_CONTAR_LECTORES = "SELECT COUNT(*) FROM TB_NSAR_BLOQUEO_COMPARTIDO "
+			+ "WHERE CH_LLAVE_BLOQUEO = :llave AND FC_EXPIRA_BLOQUEO > :ahora";
+
+	/** Retira al lector. */
+	private static final String SQL_SALIR_LECTOR = "DELETE FROM TB_NSAR_BLOQUEO_COMPARTIDO "
+			+ "WHERE CH_LLAVE_BLOQUEO = :llave AND CH_PROCESO_BLOQUEO = :proceso";
+
+	/** Extiende la expiración de varios lectores en una sola sentencia. */
+	private static final String SQL_RENOVAR = "UPDATE TB_NSAR_BLOQUEO_COMPARTIDO SET FC_EXPIRA_BLOQUEO = :expira "
+			+ "WHERE (CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO) IN (:pares)";
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private LockShardRouter router;
+
+	/** Sentencias de unión de lectores por partición de la tabla de bloqueos. */
+	private String[] sqlUnirLector;
+
+	/** Consultas de escritor vigente por partición de la tabla de bloqueos. */
+	private String[] sqlExisteEscritor;
+
+	@PostConstruct
+	void init() {
+		sqlUnirLector = new String[router.shards()];
+		sqlExisteEscritor = new String[router.shards()];
+		for (int i = 0; i < router.shards(); i++) {
+			sqlUnirLector[i] = String.format(SQL_UNIR_LECTOR, router.tabla(i));
+			sqlExisteEscritor[i] = String.format(SQL_EXISTE_ESCRITOR, router.tabla(i));
+		}
+	}
+
+	/**
+	 * Registra al lector si la llave no tiene un escritor vigente.
+	 *
+	 * @param llave    clave del bloqueo
+	 * @param proceso  identificador del proceso lector
+	 * @param inicio   fecha de inicio del bloqueo
+	 * @param expira   fecha de expiración del bloqueo
+	 * @param servicio nombre del servicio que adquiere el bloqueo
+	 * @return 1 si el lector quedó registrado, 0 si existe un escritor vigente
+	 */
+	public int unirLector(String llave, String proceso, Date inicio, Date expira, String servicio) {
+		return jdbcTemplate.update(sqlUnirLector[router.shard(llave)], new MapSqlParameterSource().addValue("llave", llave)
+				.addValue("proceso", proceso).addValue("inicio", inicio).addValue("expira", expira)
+				.addValue("servicio", servicio));
+	}
+
+	/**
+	 * Indica si la llave tiene un escritor vigente.
+	 *
+	 * @param llave clave del bloqueo
+	 * @param ahora fecha de referencia para la vigencia
+	 * @return true si existe un escritor vigente
+	 */
+	public boolean existeEscritor(String llave, Date ahora) {
+		Integer total = jdbcTemplate.queryForObject(sqlExisteEscritor[router.shard(llave)],
+				new MapSqlParameterSource().addValue("llave", llave).addValue("ahora", ahora), Integer.class);
+		return total != null && total > 0;
+	}
+
+	/**
+	 * Cuenta los lectores vigentes de la llave.
+	 *
+	 * @param llave clave del bloqueo
+	 * @param ahora fecha de referencia para la vigencia
+	 * @return número de lectores vigentes
+	 */
+	public int contarLectores(String llave, Date ahora) {
+		Integer total = jdbcTemplate.queryForObject(SQL_CONTAR_LECTORES,
+				new MapSqlParameterSource().addValue("llave", llave).addValue("ahora", ahora), Integer.class);
+		return total != null ? total : 0;
+	}
+
+	/**
+	 * Retira al lector de la llave.
+	 *
+	 * @param llave   clave del bloqueo
+	 * @param proceso identificador del proceso lector
+	 * @return número de filas eliminadas
+	 */
+	public int salirLector(String llave, String proceso) {
+		return jdbcTemplate.update(SQL_SALIR_LECTOR,
+				new MapSqlParameterSource().addValue("llave", llave).addValue("proceso", proceso));
+	}
+
+	/**
+	 * Renueva la expiración de un conjunto de lectores en una sola sentencia.
+	 *
+	 * @param pares  pares {llave, proceso} de los lectores a renovar
+	 * @param expira nueva fecha de expiración
+	 * @return número de lectores renovados
+	 */
+	public int renovar(List<Object[]> pares, Date expira) {
+		return jdbcTemplate.update(SQL_RENOVAR,
+				new MapSqlParameterSource().addValue("pares", pares).addValue("expira", expira));
+	}
+}
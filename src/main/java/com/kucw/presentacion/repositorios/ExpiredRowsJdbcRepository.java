@@ -0,0 +1,69 @@
+package com.kucw.presentacion.repositorios;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio JDBC para la eliminación por lotes de registros expirados.
+ *
+ * Es común a las tablas de bloqueos, lectores y permisos: recorre los registros expirados en el
+ * orden del índice de expiración con paginación por llave (fecha de expiración e identificador
+ * del último registro leído) y los elimina por identificador, de modo que cada lote es una
+ * transacción corta que no detiene las inserciones de bloqueos nuevos.
+ */
+@Repository
+public class ExpiredRowsJdbcRepository {
+
+	/** Siguiente página de registros expirados (plantilla: tabla, columna de id, columna de expiración). */
+	private static final String SQL_SIGUIENTE_LOTE = "SELECT %2$s, %3$s FROM %1$s "
+			+ "WHERE %3$s <= :ahora AND (%3$s > :desdeExpira OR (%3$s = :desdeExpira AND %2$s > :desdeId)) "
+			+ "ORDER BY %3$s, %2$s FETCH FIRST :limite ROWS ONLY";
+
+	/** Elimina los registros del lote que siguen expirados; un registro tomado mientras tanto se conserva. */
+	private static final String SQL_ELIMINAR_LOTE = "DELETE FROM %1$s WHERE %2$s IN (:ids) AND %3$s <= :ahora";
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/**
+	 * Lee la siguiente página de registros expirados a partir de la última posición leída.
+	 *
+	 * @param tabla         tabla a depurar
+	 * @param columnaId     columna del identificador
+	 * @param columnaExpira columna de la fecha de expiración
+	 * @param ahora         fecha de referencia para la expiración
+	 * @param desdeExpira   expiración del último registro leído (new Date(0) en la primera página)
+	 * @param desdeId       identificador del último registro leído (-1 en la primera página)
+	 * @param limite        tamaño máximo de la página
+	 * @return pares {identificador, expiración} en el orden del índice de expiración
+	 */
+	public List<Object[]> siguienteLote(String tabla, String columnaId, String columnaExpira, Date ahora,
+			Date desdeExpira, long desdeId, int limite) {
+		return jdbcTemplate.query(String.format(SQL_SIGUIENTE_LOTE, tabla, columnaId, columnaExpira),
+				new MapSqlParameterSource().addValue("ahora", ahora).addValue("desdeExpira", desdeExpira)
+						.addValue("desdeId", desdeId).addValue("limite", limite),
+				(rs, fila) -> new Object[] { rs.getLong(1), rs.getTimestamp(2) });
+	}
+
+	/**
+	 * Elimina un lote de registros por identificador, únicamente si siguen expirados.
+	 *
+	 * @param tabla         tabla a depurar
+	 * @param columnaId     columna del identificador
+	 * @param columnaExpira columna de la fecha de expiración
+	 * @param ids           identificadores del lote
+	 * @param ahora         fecha de referencia para la expiración
+	 * @return número de filas eliminadas
+	 */
+	public int eliminarLote(String tabla, String columnaId, String columnaExpira, List<Long> ids, Date ahora) {
+		return jdbcTemplate.update(String.format(SQL_ELIMINAR_LOTE, tabla, columnaId, columnaExpira),
+				new MapSqlParameterSource().addValue("ids", ids).addValue("ahora", ahora));
+	}
+}
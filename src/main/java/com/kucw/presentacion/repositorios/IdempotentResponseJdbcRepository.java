@@ -0,0 +1,69 @@
+package com.kucw.presentacion.repositorios;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio JDBC para las respuestas de peticiones ya procesadas en TB_NSAR_RESPUESTA_IDEMPOTENTE.
+ *
+ * Cada operación es una sola sentencia por la llave única de la petición.
+ */
+@Repository
+public class IdempotentResponseJdbcRepository {
+
+	/**
+	 * Registra la respuesta de la llave; si existe un registro anterior (vencido y aún no
+	 * eliminado) lo reemplaza.
+	 */
+	private static final String SQL_GUARDAR = "MERGE INTO TB_NSAR_RESPUESTA_IDEMPOTENTE r "
+			+ "USING (SELECT CAST(:llave AS VARCHAR(255)) AS CH_LLAVE_PETICION FROM DUAL) s "
+			+ "ON (r.CH_LLAVE_PETICION = s.CH_LLAVE_PETICION) "
+			+ "WHEN MATCHED THEN UPDATE SET CH_NOMBRE_SERVICIO = :servicio, CH_RESPUESTA = :respuesta, "
+			+ "FC_REGISTRO = :registro, FC_EXPIRA_RESPUESTA = :expira "
+			+ "WHEN NOT MATCHED THEN INSERT (ID_RESPUESTA_IDEMPOTENTE, CH_LLAVE_PETICION, CH_NOMBRE_SERVICIO, "
+			+ "CH_RESPUESTA, FC_REGISTRO, FC_EXPIRA_RESPUESTA) VALUES (SEQ_TB_NSAR_RESPUESTA_IDEMPOTENTE.NEXTVAL, "
+			+ "s.CH_LLAVE_PETICION, :servicio, :respuesta, :registro, :expira)";
+
+	/** Respuesta vigente de la llave. */
+	private static final String SQL_CONSULTAR = "SELECT CH_RESPUESTA, FC_EXPIRA_RESPUESTA "
+			+ "FROM TB_NSAR_RESPUESTA_IDEMPOTENTE WHERE CH_LLAVE_PETICION = :llave AND FC_EXPIRA_RESPUESTA > :ahora";
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/**
+	 * Registra la respuesta de una petición.
+	 *
+	 * @param llave     llave de la petición
+	 * @param servicio  nombre del servicio
+	 * @param respuesta respuesta serializada en JSON
+	 * @param registro  fecha de registro
+	 * @param expira    fecha de expiración
+	 */
+	public void guardar(String llave, String servicio, String respuesta, Date registro, Date expira) {
+		jdbcTemplate.update(SQL_GUARDAR, new MapSqlParameterSource().addValue("llave", llave)
+				.addValue("servicio", servicio).addValue("respuesta", respuesta).addValue("registro", registro)
+				.addValue("expira", expira));
+	}
+
+	/**
+	 * Consulta la respuesta vigente de una petición.
+	 *
+	 * @param llave llave de la petición
+	 * @param ahora fecha de referencia para la expiración
+	 * @return arreglo {respuesta en JSON, expiración}, o null si no hay respuesta vigente
+	 */
+	public Object[] consultar(String llave, Date ahora) {
+		List<Object[]> filas = jdbcTemplate.query(SQL_CONSULTAR,
+				new MapSqlParameterSource().addValue("llave", llave).addValue("ahora", ahora),
+				(rs, i) -> new Object[] { rs.getString(1), rs.getTimestamp(2) });
+		return filas.isEmpty() ? null : filas.get(0);
+	}
+}
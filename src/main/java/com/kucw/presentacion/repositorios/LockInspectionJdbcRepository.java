@@ -0,0 +1,197 @@
+package com.kucw.presentacion.repositorios;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.kucw.presentacion.modelos.DistributedLockSummaryModel;
+
+/**
+ * Repositorio JDBC de consultas administrativas sobre las tablas de bloqueos.
+ *
+ * Todas las consultas leen únicamente las columnas de control del bloqueo, se resuelven
+ * con un índice y están acotadas por FETCH FIRST, de modo que su costo no depende del tamaño de
+ * la tabla:
+ * - por servicio: IDX_SERVICIO_INICIO (CH_NOMBRE_SERVICIO, FC_INICIO_BLOQUEO, ID_BLOQUEO_DISTRIBUIDO),
+ *   que además entrega las filas ya ordenadas por antigüedad
+ * - peticiones simultáneas: IDX_LLEGO_OTRA_PETICION (FC_LLEGO_OTRA_PETICION); en Oracle solo
+ *   contiene las filas marcadas, porque las demás tienen la columna en NULL
+ * - por proceso: IDX_PROCESO_BLOQUEO (CH_PROCESO_BLOQUEO)
+ *
+ * La paginación es por llave (fecha e identificador del último registro leído), igual que la
+ * depuración de expirados. Las sentencias se generan para cada partición de LockShardRouter y se
+ * ejecutan con un tiempo máximo propio (lock.admin.query.timeout.seconds) para que una consulta
+ * administrativa nunca retenga una conexión del pool por más tiempo.
+ */
+@Repository
+public class LockInspectionJdbcRepository {
+
+	/** Columnas de la proyección. */
+	private static final String COLUMNAS = "ID_BLOQUEO_DISTRIBUIDO, CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO, "
+			+ "FC_INICIO_BLOQUEO, FC_EXPIRA_BLOQUEO, CH_USUARIO_MODIFICADOR, CH_NOMBRE_SERVICIO, "
+			+ "CH_PETICION_SIMULTANEA, FC_LLEGO_OTRA_PETICION, FC_PRIMERA_OTRA_PETICION, NU_PETICIONES_SIMULTANEAS";
+
+	/** Bloqueos vigentes de un servicio del más antiguo al más reciente, a partir de la última posición leída. */
+	private static final String SQL_POR_SERVICIO = "SELECT " + COLUMNAS + " FROM %1$s "
+			+ "WHERE CH_NOMBRE_SERVICIO = :servicio AND FC_INICIO_BLOQUEO <= :hasta "
+			+ "AND (FC_INICIO_BLOQUEO > :desdeFecha OR (FC_INICIO_BLOQUEO = :desdeFecha AND ID_BLOQUEO_DISTRIBUIDO > :desdeId)) "
+			+ "AND FC_EXPIRA_BLOQUEO > :ahora "
+			+ "ORDER BY FC_INICIO_BLOQUEO, ID_BLOQUEO_DISTRIBUIDO FETCH FIRST :limite ROWS ONLY";
+
+	/** Bloqueos vigentes marcados con petición simultánea, en el orden en que llegó la otra petición. */
+	private static final String SQL_SIMULTANEOS = "SELECT " + COLUMNAS + " FROM %1$s "
+			+ "WHERE FC_LLEGO_OTRA_PETICION IS NOT NULL AND CH_PETICION_SIMULTANEA = 'TRUE' "
+			+ "AND (FC_LLEGO_OTRA_PETICION > :desdeFecha OR (FC_LLEGO_OTRA_PETICION = :desdeFecha AND ID_BLOQUEO_DISTRIBUIDO > :desdeId)) "
+			+ "AND FC_EXPIRA_BLOQUEO > :ahora "
+			+ "ORDER BY FC_LLEGO_OTRA_PETICION, ID_BLOQUEO_DISTRIBUIDO FETCH FIRST :limite ROWS ONLY";
+
+	/** Bloqueo de una llave, vigente o no. */
+	private static final String SQL_POR_LLAVE = "SELECT " + COLUMNAS + " FROM %1$s WHERE CH_LLAVE_BLOQUEO = :llave";
+
+	/** Llaves que mantiene un proceso. */
+	private static final String SQL_LLAVES_PROCESO = "SELECT CH_LLAVE_BLOQUEO FROM %1$s "
+			+ "WHERE CH_PROCESO_BLOQUEO = :proceso FETCH FIRST :limite ROWS ONLY";
+
+	private static final RowMapper<DistributedLockSummaryModel> PROYECCION = (rs, fila) -> {
+		DistributedLockSummaryModel bloqueo = new DistributedLockSummaryModel();
+		bloqueo.setIdBloqueoDistribuido(rs.getLong(1));
+		bloqueo.setLlaveBloqueo(rs.getString(2));
+		bloqueo.setProcesoBloqueo(rs.getString(3));
+		bloqueo.setFechaInicioBloqueo(rs.getTimestamp(4));
+		bloqueo.setFechaExpiraBloqueo(rs.getTimestamp(5));
+		bloqueo.setUsuarioModificador(rs.getString(6));
+		bloqueo.setNombreServicio(rs.getString(7));
+		bloqueo.setPeticionSimultanea(rs.getString(8));
+		bloqueo.setFechaLlegoOtraPeticion(rs.getTimestamp(9));
+		bloqueo.setFechaPrimeraOtraPeticion(rs.getTimestamp(10));
+		bloqueo.setPeticionesSimultaneas(rs.getInt(11));
+		return bloqueo;
+	};
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private LockShardRouter router;
+
+	/**
+	 * Tiempo máximo de cada consulta administrativa en segundos. Se configura mediante la
+	 * propiedad lock.admin.query.timeout.seconds con un valor predeterminado de 5.
+	 */
+	@Value("${lock.admin.query.timeout.seconds:5}")
+	private int queryTimeoutSeconds;
+
+	/** Plantilla con el tiempo máximo de consulta; comparte el pool de conexiones. */
+	private NamedParameterJdbcTemplate consultas;
+
+	/** Sentencias de cada partición, generadas a partir de las plantillas. */
+	private Sentencias[] sentencias;
+
+	@PostConstruct
+	void init() {
+		JdbcTemplate plantilla = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+		plantilla.setQueryTimeout(queryTimeoutSeconds);
+		consultas = new NamedParameterJdbcTemplate(plantilla);
+
+		sentencias = new Sentencias[router.shards()];
+		for (int i = 0; i < sentencias.length; i++) {
+			sentencias[i] = new Sentencias(router.tabla(i));
+		}
+	}
+
+	/**
+	 * Lee una página de bloqueos vigentes de un servicio, del más antiguo al más reciente.
+	 *
+	 * @param shard      partición a consultar
+	 * @param servicio   nombre del servicio (CH_NOMBRE_SERVICIO)
+	 * @param hasta      solo bloqueos iniciados en esta fecha o antes
+	 * @param ahora      fecha de referencia para la vigencia
+	 * @param desdeFecha inicio del último bloqueo leído (new Date(0) en la primera página)
+	 * @param desdeId    identificador del último bloqueo leído (-1 en la primera página)
+	 * @param limite     tamaño máximo de la página
+	 * @return bloqueos en el orden del índice
+	 */
+	public List<DistributedLockSummaryModel> porServicio(int shard, String servicio, Date hasta, Date ahora,
+			Date desdeFecha, long desdeId, int limite) {
+		return consultas.query(sentencias[shard].porServicio,
+				new MapSqlParameterSource().addValue("servicio", servicio).addValue("hasta", hasta)
+						.addValue("ahora", ahora).addValue("desdeFecha", desdeFecha).addValue("desdeId", desdeId)
+						.addValue("limite", limite),
+				PROYECCION);
+	}
+
+	/**
+	 * Lee una página de bloqueos vigentes marcados con petición simultánea.
+	 *
+	 * @param shard      partición a consultar
+	 * @param ahora      fecha de referencia para la vigencia
+	 * @param desdeFecha llegada de la petición simultánea del último bloqueo leído
+	 * @param desdeId    identificador del último bloqueo leído (-1 en la primera página)
+	 * @param limite     tamaño máximo de la página
+	 * @return bloqueos en el orden del índice
+	 */
+	public List<DistributedLockSummaryModel> simultaneos(int shard, Date ahora, Date desdeFecha, long desdeId,
+			int limite) {
+		return consultas.query(sentencias[shard].simultaneos,
+				new MapSqlParameterSource().addValue("ahora", ahora).addValue("desdeFecha", desdeFecha)
+						.addValue("desdeId", desdeId).addValue("limite", limite),
+				PROYECCION);
+	}
+
+	/**
+	 * Busca el bloqueo de una llave en su partición.
+	 *
+	 * @param llave clave del bloqueo
+	 * @return el bloqueo, o null si la llave no tiene registro
+	 */
+	public DistributedLockSummaryModel porLlave(String llave) {
+		List<DistributedLockSummaryModel> bloqueos = consultas.query(sentencias[router.shard(llave)].porLlave,
+				new MapSqlParameterSource().addValue("llave", llave), PROYECCION);
+		return bloqueos.isEmpty() ? null : bloqueos.get(0);
+	}
+
+	/**
+	 * Lee las llaves que mantiene un proceso en una partición.
+	 *
+	 * @param shard   partición a consultar
+	 * @param proceso identificador del proceso propietario
+	 * @param limite  número máximo de llaves
+	 * @return llaves del proceso
+	 */
+	public List<String> llavesDeProceso(int shard, String proceso, int limite) {
+		return consultas.queryForList(sentencias[shard].llavesProceso,
+				new MapSqlParameterSource().addValue("proceso", proceso).addValue("limite", limite), String.class);
+	}
+
+	/**
+	 * Sentencias de una partición.
+	 */
+	private static final class Sentencias {
+
+		private final String porServicio;
+
+		private final String simultaneos;
+
+		private final String porLlave;
+
+		private final String llavesProceso;
+
+		private Sentencias(String tabla) {
+			porServicio = String.format(SQL_POR_SERVICIO, tabla);
+			simultaneos = String.format(SQL_SIMULTANEOS, tabla);
+			porLlave = String.format(SQL_POR_LLAVE, tabla);
+			llavesProceso = String.format(SQL_LLAVES_PROCESO, tabla);
+		}
+	}
+}
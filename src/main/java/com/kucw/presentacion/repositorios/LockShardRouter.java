@@ -0,0 +1,193 @@
+package com.kucw.presentacion.repositorios;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.kucw.presentacion.excepciones.ConcurrencyException;
+
+/**
+ * Enrutamiento de llaves hacia las tablas de bloqueos particionadas.
+ *
+ * Con lock.shards=1 (predeterminado) todas las llaves usan TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS
+ * y su secuencia. Con N mayor que 1 cada llave se asigna por hash a una de N tablas
+ * TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS_00 ... _NN, cada una con sus propios índices y su propia
+ * secuencia, de modo que las inserciones y eliminaciones de nodos distintos no compiten por el
+ * mismo índice único ni por la misma secuencia.
+ *
+ * El hash es String.hashCode, cuyo valor está definido por la especificación de Java, por lo que
+ * todos los nodos asignan la misma llave a la misma tabla. Cambiar lock.shards reasigna las llaves,
+ * por lo que debe hacerse con todos los nodos detenidos.
+ */
+@Component
+public class LockShardRouter {
+
+	private static final Logger logger = LoggerFactory.getLogger(LockShardRouter.class);
+
+	/** Tabla de bloqueos sin particionar. */
+	public static final String TABLA_BASE = "TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS";
+
+	/** Secuencia de la tabla sin particionar. */
+	public static final String SECUENCIA_BASE = "SEQ_TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS";
+
+	/** Estructura de cada partición; equivale a la entidad DistributedLock. */
+	private static final String DDL_TABLA = "CREATE TABLE %1$s ("
+			+ "ID_BLOQUEO_DISTRIBUIDO NUMBER(19) NOT NULL PRIMARY KEY, "
+			+ "CH_LLAVE_BLOQUEO VARCHAR(255) NOT NULL, CH_PROCESO_BLOQUEO VARCHAR(100) NOT NULL, "
+			+ "FC_INICIO_BLOQUEO TIMESTAMP NOT NULL, FC_EXPIRA_BLOQUEO TIMESTAMP NOT NULL, "
+			+ "CH_USUARIO_MODIFICADOR VARCHAR(50) NOT NULL, CH_NOMBRE_SERVICIO VARCHAR(100) NOT NULL, "
+			+ "CH_PETICION_SIMULTANEA VARCHAR(5), FC_LLEGO_OTRA_PETICION TIMESTAMP, "
+			+ "FC_PRIMERA_OTRA_PETICION TIMESTAMP, NU_PETICIONES_SIMULTANEAS NUMBER(10) DEFAULT 0)";
+
+	private static final String DDL_INDICE_LLAVE = "CREATE UNIQUE INDEX IDX_LLAVE_BLOQUEO_%2$s ON %1$s (CH_LLAVE_BLOQUEO)";
+
+	private static final String DDL_INDICE_EXPIRACION = "CREATE INDEX IDX_FECHA_EXPIRACION_%2$s ON %1$s (FC_EXPIRA_BLOQUEO)";
+
+	/** Índices de las consultas administrativas (LockInspectionJdbcRepository). */
+	private static final String DDL_INDICE_SERVICIO = "CREATE INDEX IDX_SERVICIO_INICIO_%2$s ON %1$s "
+			+ "(CH_NOMBRE_SERVICIO, FC_INICIO_BLOQUEO, ID_BLOQUEO_DISTRIBUIDO)";
+
+	private static final String DDL_INDICE_SIMULTANEA = "CREATE INDEX IDX_LLEGO_OTRA_PETICION_%2$s ON %1$s (FC_LLEGO_OTRA_PETICION)";
+
+	private static final String DDL_INDICE_PROCESO = "CREATE INDEX IDX_PROCESO_BLOQUEO_%2$s ON %1$s (CH_PROCESO_BLOQUEO)";
+
+	private static final String DDL_SECUENCIA = "CREATE SEQUENCE %1$s START WITH 1 INCREMENT BY 1";
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/**
+	 * Número de tablas de bloqueos. Se configura mediante la propiedad lock.shards con un valor
+	 * predeterminado de 1 (sin particionar).
+	 */
+	@Value("${lock.shards:1}")
+	private int shards;
+
+	/** El particionado solo lo aplica el motor JDBC; el motor JPA está ligado a la entidad. */
+	@Value("${lock.engine:jpa}")
+	private String engine;
+
+	private String[] tablas;
+
+	private String[] secuencias;
+
+	@PostConstruct
+	void init() {
+		if (shards < 1 || shards > 100) {
+			throw new ConcurrencyException("lock.shards debe estar entre 1 y 100: " + shards);
+		}
+		if (shards > 1 && !"jdbc".equals(engine)) {
+			throw new ConcurrencyException("lock.shards mayor que 1 requiere lock.engine=jdbc");
+		}
+
+		tablas = new String[shards];
+		secuencias = new String[shards];
+		if (shards == 1) {
+			tablas[0] = TABLA_BASE;
+			secuencias[0] = SECUENCIA_BASE;
+			return;
+		}
+		for (int i = 0; i < shards; i++) {
+			String sufijo = String.format("%02d", i);
+			tablas[i] = TABLA_BASE + "_" + sufijo;
+			secuencias[i] = SECUENCIA_BASE + "_" + sufijo;
+			crearSiNoExiste(tablas[i], secuencias[i], sufijo);
+		}
+	}
+
+	/**
+	 * Número de tablas de bloqueos.
+	 *
+	 * @return número de particiones
+	 */
+	public int shards() {
+		return shards;
+	}
+
+	/**
+	 * Partición asignada a la llave.
+	 *
+	 * @param llave clave del bloqueo
+	 * @return índice de la partición, entre 0 y shards() - 1
+	 */
+	public int shard(String llave) {
+		return shards == 1 ? 0 : Math.floorMod(llave.hashCode(), shards);
+	}
+
+	/**
+	 * Nombre de la tabla de la partición.
+	 *
+	 * @param shard índice de la partición
+	 * @return nombre de la tabla
+	 */
+	public String tabla(int shard) {
+		return tablas[shard];
+	}
+
+	/**
+	 * Nombre de la secuencia de la partición.
+	 *
+	 * @param shard índice de la partición
+	 * @return nombre de la secuencia
+	 */
+	public String secuencia(int shard) {
+		return secuencias[shard];
+	}
+
+	/**
+	 * Agrupa elementos por la partición de su llave, en orden de partición.
+	 *
+	 * @param elementos elementos a agrupar
+	 * @param llave     función que obtiene la llave de cada elemento
+	 * @return elementos agrupados por índice de partición
+	 */
+	public <T> Map<Integer, List<T>> agrupar(Collection<T> elementos, Function<T, String> llave) {
+		Map<Integer, List<T>> grupos = new TreeMap<>();
+		for (T elemento : elementos) {
+			grupos.computeIfAbsent(shard(llave.apply(elemento)), shard -> new ArrayList<>()).add(elemento);
+		}
+		return grupos;
+	}
+
+	/**
+	 * Crea la tabla, sus índices y su secuencia si la tabla aún no existe.
+	 */
+	private void crearSiNoExiste(String tabla, String secuencia, String sufijo) {
+		Boolean existe = jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Boolean>) conexion -> existeTabla(conexion, tabla));
+		if (Boolean.TRUE.equals(existe)) {
+			return;
+		}
+		logger.info("Creando la partición de bloqueos {}", tabla);
+		jdbcTemplate.getJdbcTemplate().execute(String.format(DDL_TABLA, tabla));
+		jdbcTemplate.getJdbcTemplate().execute(String.format(DDL_INDICE_LLAVE, tabla, sufijo));
+		jdbcTemplate.getJdbcTemplate().execute(String.format(DDL_INDICE_EXPIRACION, tabla, sufijo));
+		jdbcTemplate.getJdbcTemplate().execute(String.format(DDL_INDICE_SERVICIO, tabla, sufijo));
+		jdbcTemplate.getJdbcTemplate().execute(String.format(DDL_INDICE_SIMULTANEA, tabla, sufijo));
+		jdbcTemplate.getJdbcTemplate().execute(String.format(DDL_INDICE_PROCESO, tabla, sufijo));
+		jdbcTemplate.getJdbcTemplate().execute(String.format(DDL_SECUENCIA, secuencia));
+	}
+
+	private static boolean existeTabla(Connection conexion, String tabla) throws SQLException {
+		try (ResultSet tablas = conexion.getMetaData().getTables(null, null, tabla, new String[] { "TABLE" })) {
+			return tablas.next();
+		}
+	}
+}
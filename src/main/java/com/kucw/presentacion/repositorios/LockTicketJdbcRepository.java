@@ -0,0 +1,122 @@
+package com.kucw.presentacion.repositorios;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio JDBC para los turnos de las colas de espera por llave en TB_NSAR_TURNO_BLOQUEO.
+ *
+ * Cada operación es una sola sentencia sobre el índice (CH_LLAVE_BLOQUEO, ID_TURNO_BLOQUEO); la
+ * profundidad de la cola la acota la restricción única (CH_LLAVE_BLOQUEO, NU_POSICION).
+ */
+@Repository
+public class LockTicketJdbcRepository {
+
+	private static final String SQL_SIGUIENTE_ID = "SELECT SEQ_TB_NSAR_TURNO_BLOQUEO.NEXTVAL FROM DUAL";
+
+	/**
+	 * Toma en una sola sentencia la posición libre de menor número: inserta una posición que aún
+	 * no existe o toma una expirada, igual que los permisos de DistributedPermitJdbcRepository.
+	 * Si las posiciones vigentes ya alcanzan el máximo, la consulta de origen no devuelve filas y
+	 * la sentencia no afecta ninguna. El turno tomado conserva el identificador nuevo, por lo que
+	 * queda al final de la cola aunque ocupe una posición de número menor.
+	 * En Oracle la condición de toma se expresa como "WHEN MATCHED THEN UPDATE ... WHERE".
+	 */
+	private static final String SQL_TOMAR = "MERGE INTO TB_NSAR_TURNO_BLOQUEO t "
+			+ "USING (SELECT CAST(:llave AS VARCHAR(255)) AS CH_LLAVE_BLOQUEO, MIN(c.NU_POSICION) AS NU_POSICION FROM ("
+			+ "SELECT 0 AS NU_POSICION FROM DUAL UNION ALL "
+			+ "SELECT v.NU_POSICION + 1 FROM TB_NSAR_TURNO_BLOQUEO v "
+			+ "WHERE v.CH_LLAVE_BLOQUEO = :llave AND v.FC_EXPIRA_TURNO > :ahora) c "
+			+ "WHERE c.NU_POSICION < :maximo AND NOT EXISTS (SELECT 1 FROM TB_NSAR_TURNO_BLOQUEO o "
+			+ "WHERE o.CH_LLAVE_BLOQUEO = :llave AND o.NU_POSICION = c.NU_POSICION AND o.FC_EXPIRA_TURNO > :ahora) "
+			+ "HAVING MIN(c.NU_POSICION) IS NOT NULL) s "
+			+ "ON (t.CH_LLAVE_BLOQUEO = s.CH_LLAVE_BLOQUEO AND t.NU_POSICION = s.NU_POSICION) "
+			+ "WHEN MATCHED AND t.FC_EXPIRA_TURNO <= :ahora THEN UPDATE SET "
+			+ "ID_TURNO_BLOQUEO = :id, CH_PROCESO_BLOQUEO = :proceso, FC_EXPIRA_TURNO = :expira "
+			+ "WHEN NOT MATCHED THEN INSERT (ID_TURNO_BLOQUEO, CH_LLAVE_BLOQUEO, NU_POSICION, CH_PROCESO_BLOQUEO, "
+			+ "FC_EXPIRA_TURNO) VALUES (:id, s.CH_LLAVE_BLOQUEO, s.NU_POSICION, :proceso, :expira)";
+
+	/** Proceso del turno vigente inmediatamente anterior. */
+	private static final String SQL_ANTERIOR = "SELECT CH_PROCESO_BLOQUEO FROM TB_NSAR_TURNO_BLOQUEO "
+			+ "WHERE ID_TURNO_BLOQUEO = (SELECT MAX(ID_TURNO_BLOQUEO) FROM TB_NSAR_TURNO_BLOQUEO "
+			+ "WHERE CH_LLAVE_BLOQUEO = :llave AND ID_TURNO_BLOQUEO < :id AND FC_EXPIRA_TURNO > :ahora)";
+
+	/** Extiende la expiración de varios turnos en una sola sentencia. */
+	private static final String SQL_RENOVAR = "UPDATE TB_NSAR_TURNO_BLOQUEO SET FC_EXPIRA_TURNO = :expira "
+			+ "WHERE ID_TURNO_BLOQUEO IN (:ids)";
+
+	private static final String SQL_ELIMINAR = "DELETE FROM TB_NSAR_TURNO_BLOQUEO WHERE ID_TURNO_BLOQUEO = :id";
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/**
+	 * Registra un turno al final de la cola de la llave.
+	 *
+	 * @param llave   clave del recurso
+	 * @param proceso identificador del proceso
+	 * @param ahora   fecha de referencia para la expiración
+	 * @param expira  fecha de expiración del turno
+	 * @param maximo  número máximo de turnos vigentes de la llave
+	 * @return identificador del turno, o null si la cola está llena
+	 */
+	public Long tomar(String llave, String proceso, Date ahora, Date expira, int maximo) {
+		Long id = jdbcTemplate.getJdbcTemplate().queryForObject(SQL_SIGUIENTE_ID, Long.class);
+		MapSqlParameterSource parametros = new MapSqlParameterSource().addValue("id", id).addValue("llave", llave)
+				.addValue("proceso", proceso).addValue("expira", expira).addValue("ahora", ahora)
+				.addValue("maximo", maximo);
+		// Cada colisión significa que otro nodo ocupó una posición, por lo que bastan maximo intentos
+		for (int intento = 0; intento < maximo; intento++) {
+			try {
+				return jdbcTemplate.update(SQL_TOMAR, parametros) > 0 ? id : null;
+			} catch (DuplicateKeyException e) {
+				// Otro nodo tomó la misma posición en el mismo instante; se busca la siguiente libre
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Consulta el proceso del turno vigente inmediatamente anterior al indicado.
+	 *
+	 * @param llave clave del recurso
+	 * @param id    identificador del turno
+	 * @param ahora fecha de referencia para la expiración
+	 * @return proceso del turno anterior, o null si el turno es el primero de la cola
+	 */
+	public String anterior(String llave, long id, Date ahora) {
+		List<String> procesos = jdbcTemplate.queryForList(SQL_ANTERIOR,
+				new MapSqlParameterSource().addValue("llave", llave).addValue("id", id).addValue("ahora", ahora),
+				String.class);
+		return procesos.isEmpty() ? null : procesos.get(0);
+	}
+
+	/**
+	 * Elimina un turno.
+	 *
+	 * @param id identificador del turno
+	 */
+	public void eliminar(long id) {
+		jdbcTemplate.update(SQL_ELIMINAR, new MapSqlParameterSource().addValue("id", id));
+	}
+
+	/**
+	 * Extiende la expiración de varios turnos.
+	 *
+	 * @param ids    identificadores de los turnos
+	 * @param expira nueva fecha de expiración
+	 * @return número de turnos renovados
+	 */
+	public int renovar(List<Long> ids, Date expira) {
+		return jdbcTemplate.update(SQL_RENOVAR,
+				new MapSqlParameterSource().addValue("ids", ids).addValue("expira", expira));
+	}
+}
@@ -0,0 +1,55 @@
+package com.kucw.presentacion.repositorios;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio JDBC de solo lectura para los días inhábiles en TB_NSAR_DIA_INHABIL.
+ */
+@Repository
+public class NonBusinessDayJdbcRepository {
+
+	private static final String SQL_CONSULTAR = "SELECT CH_PARAMETRO, FC_DIA_INHABIL FROM TB_NSAR_DIA_INHABIL "
+			+ "WHERE FC_DIA_INHABIL BETWEEN :desde AND :hasta";
+
+	/**
+	 * Resumen del contenido: número de días y suma de un hash de identificador, parámetro y fecha
+	 * de cada uno. Cambia al insertar, eliminar o modificar días, incluso si el número de registros
+	 * y el mayor identificador se mantienen.
+	 */
+	private static final String SQL_VERSION = "SELECT COUNT(*) || ':' || COALESCE(SUM(ORA_HASH(ID_DIA_INHABIL "
+			+ "|| '|' || CH_PARAMETRO || '|' || TO_CHAR(FC_DIA_INHABIL, 'YYYYMMDD'))), 0) FROM TB_NSAR_DIA_INHABIL";
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/**
+	 * Consulta los días inhábiles de todos los parámetros dentro del intervalo.
+	 *
+	 * @param desde primer día del intervalo
+	 * @param hasta último día del intervalo
+	 * @return arreglos {parámetro, día}
+	 */
+	public List<Object[]> consultar(LocalDate desde, LocalDate hasta) {
+		return jdbcTemplate.query(SQL_CONSULTAR,
+				new MapSqlParameterSource().addValue("desde", Date.valueOf(desde)).addValue("hasta", Date.valueOf(hasta)),
+				(rs, i) -> new Object[] { rs.getString(1), rs.getDate(2).toLocalDate() });
+	}
+
+	/**
+	 * Versión del contenido de la tabla, para detectar cambios sin leerla completa.
+	 *
+	 * @return número de registros y suma de verificación de su contenido
+	 */
+	public String version() {
+		return jdbcTemplate.getJdbcTemplate().queryForObject(SQL_VERSION, String.class);
+	}
+}
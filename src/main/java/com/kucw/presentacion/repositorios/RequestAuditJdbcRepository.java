@@ -0,0 +1,47 @@
+package com.kucw.presentacion.repositorios;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio JDBC para la auditoría de peticiones en TB_NSAR_AUDITORIA_PETICION.
+ *
+ * La tabla solo recibe inserciones, que se envían en un lote JDBC por cada vaciado de
+ * RequestAuditWriter; no participa en la adquisición ni en la liberación de bloqueos.
+ */
+@Repository
+public class RequestAuditJdbcRepository {
+
+	private static final String SQL_INSERTAR = "INSERT INTO TB_NSAR_AUDITORIA_PETICION (ID_AUDITORIA_PETICION, "
+			+ "CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO, CH_NOMBRE_SERVICIO, CH_MOTIVO, FC_REGISTRO, FC_EXPIRA_AUDITORIA, "
+			+ "NU_TAMANO_REQUEST, BL_REQUEST) VALUES (SEQ_TB_NSAR_AUDITORIA_PETICION.NEXTVAL, "
+			+ ":llave, :proceso, :servicio, :motivo, :registro, :expira, :tamano, :request)";
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	/**
+	 * Inserta varios registros de auditoría en un solo lote JDBC.
+	 *
+	 * @param registros arreglos {llave, proceso, servicio, motivo, registro, expiración, tamaño original, contenido comprimido}
+	 * @return número de registros enviados
+	 */
+	public int insertarLote(List<Object[]> registros) {
+		SqlParameterSource[] params = new SqlParameterSource[registros.size()];
+		for (int i = 0; i < params.length; i++) {
+			Object[] registro = registros.get(i);
+			params[i] = new MapSqlParameterSource().addValue("llave", registro[0]).addValue("proceso", registro[1])
+					.addValue("servicio", registro[2]).addValue("motivo", registro[3]).addValue("registro", registro[4])
+					.addValue("expira", registro[5]).addValue("tamano", registro[6]).addValue("request", registro[7]);
+		}
+		jdbcTemplate.batchUpdate(SQL_INSERTAR, params);
+		return params.length;
+	}
+}
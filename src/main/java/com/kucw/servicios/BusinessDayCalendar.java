@@ -0,0 +1,169 @@
+package com.kucw.servicios;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Calendario inmutable de días hábiles de un intervalo de fechas, indexado en un arreglo de bits.
+ *
+ * Cada día del intervalo ocupa un bit (1 = hábil), por lo que varios años ocupan unos cuantos
+ * cientos de bytes. Junto a los bits se guardan:
+ * - el número de días hábiles anteriores a cada palabra de 64 días, con el que se cuentan los
+ *   días hábiles antes de cualquier fecha con un solo conteo de bits
+ * - la posición de cada día hábil, con la que se obtiene el siguiente día hábil directamente
+ *
+ * Todas las consultas son de tiempo constante. Las fechas fuera del intervalo se rechazan con
+ * IllegalArgumentException.
+ */
+public final class BusinessDayCalendar {
+
+	private final LocalDate inicio;
+
+	private final LocalDate fin;
+
+	private final long base;
+
+	/** Bit por día del intervalo; 1 si el día es hábil. */
+	private final long[] bits;
+
+	/** Días hábiles anteriores a cada palabra de bits; el último elemento es el total. */
+	private final int[] rango;
+
+	/** Desplazamiento desde inicio de cada día hábil, en orden. */
+	private final int[] posiciones;
+
+	/**
+	 * Construye el calendario del intervalo.
+	 *
+	 * @param inicio      primer día del intervalo
+	 * @param fin         último día del intervalo
+	 * @param finDeSemana días de la semana inhábiles
+	 * @param inhabiles   días inhábiles adicionales; se ignoran los que están fuera del intervalo
+	 */
+	public BusinessDayCalendar(LocalDate inicio, LocalDate fin, Set<DayOfWeek> finDeSemana,
+			Collection<LocalDate> inhabiles) {
+		if (fin.isBefore(inicio)) {
+			throw new IllegalArgumentException("El calendario termina antes de iniciar: " + inicio + " - " + fin);
+		}
+		this.inicio = inicio;
+		this.fin = fin;
+		this.base = inicio.toEpochDay();
+		int dias = (int) (fin.toEpochDay() - base + 1);
+		int palabras = (dias + 63) >>> 6;
+
+		bits = new long[palabras];
+		LocalDate dia = inicio;
+		for (int i = 0; i < dias; i++, dia = dia.plusDays(1)) {
+			if (!finDeSemana.contains(dia.getDayOfWeek())) {
+				bits[i >>> 6] |= 1L << i;
+			}
+		}
+		for (LocalDate inhabil : inhabiles) {
+			if (covers(inhabil)) {
+				int i = desplazamiento(inhabil);
+				bits[i >>> 6] &= ~(1L << i);
+			}
+		}
+
+		rango = new int[palabras + 1];
+		for (int w = 0; w < palabras; w++) {
+			rango[w + 1] = rango[w] + Long.bitCount(bits[w]);
+		}
+		posiciones = new int[rango[palabras]];
+		for (int w = 0, k = 0; w < palabras; w++) {
+			for (long palabra = bits[w]; palabra != 0; palabra &= palabra - 1) {
+				posiciones[k++] = (w << 6) + Long.numberOfTrailingZeros(palabra);
+			}
+		}
+	}
+
+	/**
+	 * @return primer día del intervalo
+	 */
+	public LocalDate getInicio() {
+		return inicio;
+	}
+
+	/**
+	 * @return último día del intervalo
+	 */
+	public LocalDate getFin() {
+		return fin;
+	}
+
+	/**
+	 * Indica si la fecha está dentro del intervalo del calendario.
+	 *
+	 * @param fecha fecha a consultar
+	 * @return true si el calendario tiene información de la fecha
+	 */
+	public boolean covers(LocalDate fecha) {
+		return !fecha.isBefore(inicio) && !fecha.isAfter(fin);
+	}
+
+	/**
+	 * Indica si la fecha es día hábil.
+	 *
+	 * @param fecha fecha dentro del intervalo
+	 * @return true si es día hábil
+	 */
+	public boolean isBusinessDay(LocalDate fecha) {
+		int i = desplazamientoValido(fecha);
+		return (bits[i >>> 6] & (1L << i)) != 0;
+	}
+
+	/**
+	 * Siguiente día hábil posterior a la fecha.
+	 *
+	 * @param fecha fecha dentro del intervalo
+	 * @return siguiente día hábil
+	 * @throws IllegalArgumentException si la fecha o el siguiente día hábil están fuera del intervalo
+	 */
+	public LocalDate nextBusinessDay(LocalDate fecha) {
+		int k = habilesAntes(desplazamientoValido(fecha) + 1);
+		if (k >= posiciones.length) {
+			throw new IllegalArgumentException("El siguiente día hábil de " + fecha + " es posterior a " + fin);
+		}
+		return LocalDate.ofEpochDay(base + posiciones[k]);
+	}
+
+	/**
+	 * Número de días hábiles desde una fecha (incluida) hasta otra (excluida).
+	 *
+	 * @param desde primer día, dentro del intervalo
+	 * @param hasta día siguiente al último, dentro del intervalo o el día siguiente a su fin
+	 * @return días hábiles; negativo si hasta es anterior a desde
+	 */
+	public int businessDaysBetween(LocalDate desde, LocalDate hasta) {
+		int i = desplazamientoValido(desde);
+		int j = hasta.equals(fin.plusDays(1)) ? desplazamiento(hasta) : desplazamientoValido(hasta);
+		return habilesAntes(j) - habilesAntes(i);
+	}
+
+	/**
+	 * Días hábiles anteriores al desplazamiento indicado (0 a número de días).
+	 */
+	private int habilesAntes(int i) {
+		int w = i >>> 6;
+		int b = i & 63;
+		return b == 0 ? rango[w] : rango[w] + Long.bitCount(bits[w] & ((1L << b) - 1));
+	}
+
+	private int desplazamiento(LocalDate fecha) {
+		return (int) (fecha.toEpochDay() - base);
+	}
+
+	private int desplazamientoValido(LocalDate fecha) {
+		if (!covers(fecha)) {
+			throw new IllegalArgumentException("La fecha " + fecha + " está fuera del calendario " + inicio + " - " + fin);
+		}
+		return desplazamiento(fecha);
+	}
+
+	@Override
+	public String toString() {
+		return "BusinessDayCalendar[" + inicio + " - " + fin + ", " + posiciones.length + " días hábiles]";
+	}
+}
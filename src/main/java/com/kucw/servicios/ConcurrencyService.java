@@ -1,10 +1,25 @@
 package com.kucw.servicios;
 
+import java.util.Collection;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.kucw.presentacion.excepciones.ConcurrencyException;
@@ -24,13 +39,6 @@ import com.kucw.presentacion.excepciones.ConcurrencyException;
 @Service
 public class ConcurrencyService {
 
-	/** 
-	 * Prefijo utilizado para crear identificadores temporales durante las verificaciones
-	 * de bloqueo. Este prefijo ayuda a distinguir las operaciones de verificación de las
-	 * operaciones normales de bloqueo.
-	 */
-	private static final String PREFIJO_CHECK = "check-";
-
 	/** 
 	 * Servicio para la gestión de bloqueos distribuidos.
 	 * Este componente es responsable de la adquisición y liberación de bloqueos
@@ -40,6 +48,65 @@ public class ConcurrencyService {
 	@Autowired
 	private LockManagerService lockManager;
 
+	/**
+	 * Tiempo máximo en milisegundos que executeWithLock espera a que se libere un recurso ocupado.
+	 * Se configura mediante la propiedad lock.wait.timeout.ms con un valor predeterminado de 1500.
+	 */
+	@Value("${lock.wait.timeout.ms:1500}")
+	private long waitTimeoutMs;
+
+	/**
+	 * Tiempo máximo en milisegundos que executeQueued espera su turno en la cola de la llave.
+	 * Se configura mediante la propiedad lock.queue.wait.ms con un valor predeterminado de 10000.
+	 */
+	@Value("${lock.queue.wait.ms:10000}")
+	private long queueWaitMs;
+
+	/**
+	 * Cola de espera por llave utilizada por executeQueued.
+	 */
+	@Autowired
+	private LockQueue lockQueue;
+
+	/**
+	 * Servicio de semáforos distribuidos utilizado por executeWithPermit.
+	 */
+	@Autowired
+	private PermitManagerService permitManager;
+
+	/**
+	 * Cola de espera local; permite que las esperas asíncronas despierten en cuanto
+	 * un proceso de este nodo libera la llave.
+	 */
+	@Autowired
+	private LockReleaseNotifier releaseNotifier;
+
+	/**
+	 * Planificador de las pausas entre intentos de executeWithLockAsync. Solo programa
+	 * los reintentos; los intentos y las acciones se ejecutan en el executor del llamador.
+	 */
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Crea el planificador de reintentos asíncronos.
+	 */
+	@PostConstruct
+	void iniciarPlanificador() {
+		scheduler = Executors.newSingleThreadScheduledExecutor(tarea -> {
+			Thread hilo = new Thread(tarea, "lock-wait-scheduler");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+	}
+
+	/**
+	 * Detiene el planificador de reintentos asíncronos.
+	 */
+	@PreDestroy
+	void detenerPlanificador() {
+		scheduler.shutdownNow();
+	}
+
 	/**
 	 * Ejecuta una acción con bloqueo distribuido, garantizando exclusión mutua.
 	 * 
@@ -48,8 +115,13 @@ public class ConcurrencyService {
 	 * 2. Si se obtiene el bloqueo, se ejecuta la acción proporcionada
 	 * 3. Al finalizar, se libera el bloqueo independientemente del resultado
 	 * 
-	 * El método realiza hasta 3 intentos para adquirir el bloqueo, con una pausa
-	 * de 500ms entre cada intento, para manejar situaciones de alta concurrencia.
+	 * Si el recurso está ocupado, el método espera hasta lock.wait.timeout.ms: despierta en
+	 * cuanto un proceso de este nodo libera la llave y, si el propietario está en otro nodo,
+	 * reintenta con retroceso exponencial (ver LockManagerService.tryLock).
+	 * 
+	 * Si el bloqueo deja de pertenecer al proceso mientras la acción se ejecuta (la renovación lo
+	 * encuentra tomado por otro proceso o se libera de forma forzada), el resultado se descarta y
+	 * se lanza ConcurrencyException.
 	 *
 	 * @param <T>        Tipo de retorno de la acción a ejecutar
 	 * @param resourceId Identificador único del recurso a bloquear. Debe ser consistente
@@ -57,8 +129,9 @@ public class ConcurrencyService {
 	 * @param action     Función a ejecutar mientras se tiene el bloqueo. Esta función
 	 *                   se ejecutará de forma atómica respecto al recurso especificado
 	 * @return Resultado de la acción ejecutada
-	 * @throws ConcurrencyException si no se puede adquirir el bloqueo después de los reintentos
-	 *                             o si ocurre una interrupción durante la espera
+	 * @throws ConcurrencyException si no se puede adquirir el bloqueo dentro del plazo,
+	 *                             si se pierde durante la acción o si ocurre una
+	 *                             interrupción durante la espera
 	 */
 	public <T> T executeWithLock(String resourceId, Supplier<T> action) {
 		// Generamos un identificador único para este proceso específico
@@ -67,23 +140,10 @@ public class ConcurrencyService {
 		boolean lockAcquired = false;
 
 		try {
-			// Bucle de reintentos: intentamos obtener el bloqueo hasta 3 veces
-			// Esto aumenta la probabilidad de éxito en situaciones de alta concurrencia
-			for (int i = 0; i < 3; i++) {
-				// Intentamos adquirir el bloqueo para el recurso con nuestro ID de proceso
-				lockAcquired = lockManager.acquireLock(resourceId, processId);
-				
-				// Si logramos adquirir el bloqueo, salimos del bucle de reintentos
-				if (lockAcquired) {
-					break;
-				}
-				
-				// Si no pudimos adquirir el bloqueo, esperamos 500ms antes de reintentar
-				// Esta pausa reduce la contención y permite que otros procesos liberen el bloqueo
-				Thread.sleep(500);
-			}
+			// Esperamos el bloqueo hasta el plazo configurado
+			lockAcquired = lockManager.tryLock(resourceId, processId, resourceId, waitTimeoutMs);
 
-			// Si después de los reintentos no pudimos adquirir el bloqueo,
+			// Si dentro del plazo no pudimos adquirir el bloqueo,
 			// lanzamos una excepción indicando el problema
 			if (!lockAcquired) {
 				throw new ConcurrencyException(
@@ -93,7 +153,11 @@ public class ConcurrencyService {
 			// En este punto tenemos el bloqueo adquirido, por lo que podemos
 			// ejecutar la acción proporcionada de forma segura
 			// El método get() de Supplier ejecuta la función y devuelve su resultado
-			return action.get();
+			T resultado = action.get();
+
+			// Si el bloqueo se perdió durante la acción, otro proceso pudo ejecutar sobre el mismo recurso
+			verificarVigente(resourceId, processId);
+			return resultado;
 
 		} catch (InterruptedException e) {
 			// Si el hilo es interrumpido mientras espera, restauramos la bandera de interrupción
@@ -113,10 +177,370 @@ public class ConcurrencyService {
 	}
 
 	/**
-	 * Verifica si un recurso está actualmente bloqueado sin intentar adquirir un bloqueo permanente.
+	 * Ejecuta una acción con bloqueo distribuido; si el recurso está ocupado, la petición espera
+	 * su turno en la cola de la llave en lugar de rechazarse.
+	 * 
+	 * Las peticiones de la misma llave se ejecutan una tras otra en orden de llegada en todos los
+	 * nodos (ver LockQueue). Una petición cuyo antecesor en la cola está en este nodo despierta en
+	 * cuanto éste libera el bloqueo, sin consultas periódicas. La cola está acotada por
+	 * lock.queue.max.depth y la espera por lock.queue.wait.ms.
+	 *
+	 * @param <T>        Tipo de retorno de la acción a ejecutar
+	 * @param resourceId Identificador único del recurso a bloquear
+	 * @param action     Función a ejecutar mientras se tiene el bloqueo
+	 * @return Resultado de la acción ejecutada
+	 * @throws ConcurrencyException si la cola de la llave está llena (sin esperar), si no se
+	 *                             obtiene el bloqueo dentro del plazo o si ocurre una
+	 *                             interrupción durante la espera
+	 */
+	public <T> T executeQueued(String resourceId, Supplier<T> action) {
+		String processId = UUID.randomUUID().toString();
+		LockQueue.Turno turno = null;
+
+		try {
+			turno = lockQueue.acquire(resourceId, processId, queueWaitMs);
+			if (turno == null) {
+				throw new ConcurrencyException(
+						StringUtils.join("No se obtuvo el turno en la cola del recurso: ", resourceId));
+			}
+			T resultado = action.get();
+			verificarVigente(resourceId, processId);
+			return resultado;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConcurrencyException("Interrupción mientras se esperaba el turno", e);
+		} finally {
+			if (turno != null) {
+				lockQueue.release(turno);
+			}
+		}
+	}
+
+	/**
+	 * Ejecuta una acción con bloqueo distribuido sobre varios recursos a la vez.
+	 * 
+	 * Todas las llaves se adquieren como una sola operación en orden canónico, por lo que
+	 * dos flujos que bloquean el mismo conjunto en distinto orden no pueden interbloquearse.
+	 * Si alguna llave está ocupada no se conserva ningún bloqueo y se reintenta hasta
+	 * lock.wait.timeout.ms. Al terminar la acción se liberan todas las llaves juntas.
+	 *
+	 * @param <T>         Tipo de retorno de la acción a ejecutar
+	 * @param resourceIds Identificadores de los recursos a bloquear (por ejemplo NSS, CURP y folio)
+	 * @param action      Función a ejecutar mientras se tienen todos los bloqueos
+	 * @return Resultado de la acción ejecutada
+	 * @throws ConcurrencyException si no se pueden adquirir los bloqueos dentro del plazo
+	 *                             o si ocurre una interrupción durante la espera
+	 */
+	public <T> T executeWithLocks(Collection<String> resourceIds, Supplier<T> action) {
+		String processId = UUID.randomUUID().toString();
+		boolean locksAcquired = false;
+
+		try {
+			locksAcquired = lockManager.tryLocks(resourceIds, processId, String.valueOf(resourceIds), waitTimeoutMs);
+			if (!locksAcquired) {
+				throw new ConcurrencyException(
+						StringUtils.join("No se pudieron obtener los bloqueos para los recursos: ", resourceIds));
+			}
+			T resultado = action.get();
+			for (String resourceId : resourceIds) {
+				verificarVigente(resourceId, processId);
+			}
+			return resultado;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConcurrencyException("Interrupción mientras se esperaban los bloqueos", e);
+		} finally {
+			if (locksAcquired) {
+				lockManager.releaseLocks(resourceIds, processId);
+			}
+		}
+	}
+
+	/**
+	 * Ejecuta una acción de lectura con bloqueo compartido: varias lecturas del mismo recurso
+	 * pueden ejecutarse a la vez, pero ninguna mientras exista una escritura (ver
+	 * executeWithExclusiveLock). Si el recurso tiene un escritor se espera hasta lock.wait.timeout.ms.
+	 *
+	 * @param <T>        Tipo de retorno de la acción a ejecutar
+	 * @param resourceId Identificador único del recurso a bloquear
+	 * @param action     Función de lectura a ejecutar mientras se tiene el bloqueo compartido
+	 * @return Resultado de la acción ejecutada
+	 * @throws ConcurrencyException si no se puede adquirir el bloqueo dentro del plazo
+	 *                             o si ocurre una interrupción durante la espera
+	 */
+	public <T> T executeWithSharedLock(String resourceId, Supplier<T> action) {
+		String processId = UUID.randomUUID().toString();
+		boolean lockAcquired = false;
+
+		try {
+			lockAcquired = lockManager.tryLockShared(resourceId, processId, waitTimeoutMs);
+			if (!lockAcquired) {
+				throw new ConcurrencyException(
+						StringUtils.join("No se pudo obtener el bloqueo compartido para el recurso: ", resourceId));
+			}
+			return action.get();
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConcurrencyException("Interrupción mientras se esperaba el bloqueo", e);
+		} finally {
+			if (lockAcquired) {
+				lockManager.releaseSharedLock(resourceId, processId);
+			}
+		}
+	}
+
+	/**
+	 * Ejecuta una acción de escritura con bloqueo exclusivo sobre un recurso que también se lee
+	 * con executeWithSharedLock. La acción se ejecuta cuando no quedan lectores; mientras espera,
+	 * la política lock.rw.writer.preference decide si los nuevos lectores quedan detenidos.
+	 *
+	 * @param <T>        Tipo de retorno de la acción a ejecutar
+	 * @param resourceId Identificador único del recurso a bloquear
+	 * @param action     Función de escritura a ejecutar mientras se tiene el bloqueo exclusivo
+	 * @return Resultado de la acción ejecutada
+	 * @throws ConcurrencyException si no se puede adquirir el bloqueo dentro del plazo
+	 *                             o si ocurre una interrupción durante la espera
+	 */
+	public <T> T executeWithExclusiveLock(String resourceId, Supplier<T> action) {
+		String processId = UUID.randomUUID().toString();
+		boolean lockAcquired = false;
+
+		try {
+			lockAcquired = lockManager.acquireExclusiveLock(resourceId, processId, resourceId, waitTimeoutMs);
+			if (!lockAcquired) {
+				throw new ConcurrencyException(
+						StringUtils.join("No se pudo obtener el bloqueo exclusivo para el recurso: ", resourceId));
+			}
+			T resultado = action.get();
+			verificarVigente(resourceId, processId);
+			return resultado;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConcurrencyException("Interrupción mientras se esperaba el bloqueo", e);
+		} finally {
+			if (lockAcquired) {
+				lockManager.releaseLock(resourceId, processId);
+			}
+		}
+	}
+
+	/**
+	 * Ejecuta una acción limitando a N las ejecuciones simultáneas sobre la misma llave en todos
+	 * los nodos (por ejemplo, certificaciones en curso por AFORE). Si ya hay N ejecuciones en
+	 * curso se espera un permiso hasta lock.wait.timeout.ms.
+	 *
+	 * @param <T>    Tipo de retorno de la acción a ejecutar
+	 * @param key    Identificador del semáforo
+	 * @param limit  Número máximo de ejecuciones simultáneas para la llave
+	 * @param action Función a ejecutar mientras se tiene el permiso
+	 * @return Resultado de la acción ejecutada
+	 * @throws ConcurrencyException si no se obtiene un permiso dentro del plazo
+	 *                             o si ocurre una interrupción durante la espera
+	 */
+	public <T> T executeWithPermit(String key, int limit, Supplier<T> action) {
+		String processId = UUID.randomUUID().toString();
+		boolean permitAcquired = false;
+
+		try {
+			permitAcquired = permitManager.tryAcquirePermit(key, processId, limit, waitTimeoutMs);
+			if (!permitAcquired) {
+				throw new ConcurrencyException(
+						StringUtils.join("No se pudo obtener un permiso para el recurso: ", key));
+			}
+			return action.get();
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConcurrencyException("Interrupción mientras se esperaba un permiso", e);
+		} finally {
+			if (permitAcquired) {
+				permitManager.releasePermit(key, processId);
+			}
+		}
+	}
+
+	/**
+	 * Ejecuta una acción con bloqueo distribuido de forma asíncrona.
+	 * 
+	 * A diferencia de executeWithLock, ningún hilo queda detenido mientras el recurso está
+	 * ocupado: cada intento de adquisición y la acción se ejecutan en el executor indicado, y
+	 * la espera entre intentos la programa un planificador interno o la dispara la liberación
+	 * local de la llave (LockReleaseNotifier). El plazo total es lock.wait.timeout.ms.
 	 * 
-	 * Este método realiza una verificación no intrusiva del estado de bloqueo de un recurso
-	 * intentando adquirir temporalmente el bloqueo y liberándolo inmediatamente si tiene éxito.
+	 * La liberación del bloqueo está garantizada:
+	 * - Al terminar la acción, tanto si concluye normalmente como si lanza una excepción
+	 * - Si el futuro se cancela mientras se espera el bloqueo, se suspenden los reintentos
+	 * - Si el futuro se cancela justo después de adquirir el bloqueo, se libera sin ejecutar la acción
+	 * Cancelar el futuro no interrumpe una acción que ya está en ejecución; el bloqueo se libera
+	 * cuando ésta termina, para no romper la exclusión mutua. Igual que en executeWithLock, si el
+	 * bloqueo se pierde durante la acción el futuro se completa con ConcurrencyException.
+	 *
+	 * @param <T>        Tipo de retorno de la acción a ejecutar
+	 * @param resourceId Identificador único del recurso a bloquear
+	 * @param action     Función a ejecutar mientras se tiene el bloqueo
+	 * @param executor   Executor donde se realizan los intentos de adquisición y la acción
+	 * @return Futuro con el resultado de la acción; se completa con ConcurrencyException si no
+	 *         se obtiene el bloqueo dentro del plazo
+	 */
+	public <T> CompletableFuture<T> executeWithLockAsync(String resourceId, Supplier<T> action, Executor executor) {
+		CompletableFuture<T> resultado = new CompletableFuture<>();
+		String processId = UUID.randomUUID().toString();
+		long plazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+		// Un solo gancho por ejecución suspende la espera vigente cuando el futuro se completa o se cancela
+		AtomicReference<EsperaAsync> enEspera = new AtomicReference<>();
+		resultado.whenComplete((valor, error) -> suspenderEspera(resourceId, enEspera));
+		ejecutarEn(executor, resultado,
+				() -> intentarAsync(resourceId, processId, action, executor, resultado, plazo, 0, enEspera));
+		return resultado;
+	}
+
+	/**
+	 * Un intento de adquisición asíncrono. Si el recurso sigue ocupado, programa el siguiente
+	 * intento sin detener el hilo actual y publica la espera en enEspera para que el gancho de
+	 * executeWithLockAsync la suspenda si el futuro se completa antes.
+	 */
+	private <T> void intentarAsync(String resourceId, String processId, Supplier<T> action, Executor executor,
+			CompletableFuture<T> resultado, long plazo, int intento, AtomicReference<EsperaAsync> enEspera) {
+		// Si el futuro fue cancelado durante la espera, no volvemos a intentar
+		if (resultado.isDone()) {
+			return;
+		}
+
+		// Nos registramos en la cola local antes del intento para no perder una liberación intermedia
+		LockReleaseNotifier.Espera espera = releaseNotifier.prepare(resourceId);
+		boolean lockAcquired;
+		try {
+			lockAcquired = lockManager.acquireLock(resourceId, processId, resourceId);
+		} catch (RuntimeException e) {
+			releaseNotifier.done(resourceId, espera);
+			resultado.completeExceptionally(e);
+			return;
+		}
+
+		if (lockAcquired) {
+			releaseNotifier.done(resourceId, espera);
+			try {
+				// Si el futuro se canceló mientras adquiríamos, liberamos sin ejecutar la acción
+				if (!resultado.isDone()) {
+					T valor = action.get();
+					verificarVigente(resourceId, processId);
+					resultado.complete(valor);
+				}
+			} catch (Throwable e) {
+				resultado.completeExceptionally(e);
+			} finally {
+				lockManager.releaseLock(resourceId, processId);
+			}
+			return;
+		}
+
+		long restante = TimeUnit.NANOSECONDS.toMillis(plazo - System.nanoTime());
+		if (restante <= 0) {
+			releaseNotifier.done(resourceId, espera);
+			resultado.completeExceptionally(new ConcurrencyException(
+					StringUtils.join("No se pudo obtener el bloqueo para el recurso: ", resourceId)));
+			return;
+		}
+
+		// El siguiente intento lo dispara lo que ocurra primero: la liberación local de la llave,
+		// el fin de la pausa de retroceso o la cancelación del futuro
+		EsperaAsync pendiente = new EsperaAsync(espera);
+		enEspera.set(pendiente);
+		Runnable siguiente = () -> {
+			if (pendiente.disparar()) {
+				enEspera.compareAndSet(pendiente, null);
+				releaseNotifier.done(resourceId, espera);
+				ejecutarEn(executor, resultado, () -> intentarAsync(resourceId, processId, action, executor, resultado,
+						plazo, intento + 1, enEspera));
+			}
+		};
+		pendiente.programar(scheduler.schedule(siguiente,
+				lockManager.waitPauseMillis(resourceId, intento, restante), TimeUnit.MILLISECONDS));
+		releaseNotifier.onRelease(espera).thenRun(siguiente);
+
+		// Si el futuro se completó antes de publicar la espera, el gancho ya no la encontrará
+		if (resultado.isDone()) {
+			suspenderEspera(resourceId, enEspera);
+		}
+	}
+
+	/**
+	 * Suspende la espera vigente de executeWithLockAsync: cancela su temporizador y la retira de
+	 * la cola local. No hace nada si la espera ya disparó el siguiente intento.
+	 */
+	private void suspenderEspera(String resourceId, AtomicReference<EsperaAsync> enEspera) {
+		EsperaAsync pendiente = enEspera.getAndSet(null);
+		if (pendiente != null && pendiente.disparar()) {
+			releaseNotifier.done(resourceId, pendiente.espera);
+		}
+	}
+
+	/**
+	 * Lanza ConcurrencyException si el proceso perdió el bloqueo mientras ejecutaba la acción.
+	 */
+	private void verificarVigente(String resourceId, String processId) {
+		if (lockManager.isLockLost(resourceId, processId)) {
+			throw new ConcurrencyException(
+					StringUtils.join("Se perdió el bloqueo del recurso durante la ejecución: ", resourceId));
+		}
+	}
+
+	/**
+	 * Envía una tarea al executor; si el executor la rechaza, completa el futuro con el error.
+	 */
+	private static void ejecutarEn(Executor executor, CompletableFuture<?> resultado, Runnable tarea) {
+		try {
+			executor.execute(tarea);
+		} catch (RejectedExecutionException e) {
+			resultado.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Intenta adquirir el bloqueo de un recurso esperando hasta el tiempo indicado.
+	 * 
+	 * A diferencia de executeWithLock, el llamador es responsable de liberar el bloqueo
+	 * mediante {@link #unlock(String, String)} con el identificador de proceso devuelto.
+	 *
+	 * @param resourceId Identificador único del recurso a bloquear
+	 * @param timeout    Tiempo máximo de espera
+	 * @param unit       Unidad del tiempo de espera
+	 * @return Identificador del proceso propietario si el bloqueo fue adquirido,
+	 *         o vacío si no se obtuvo dentro del plazo
+	 * @throws ConcurrencyException si ocurre una interrupción durante la espera
+	 */
+	public Optional<String> tryLock(String resourceId, long timeout, TimeUnit unit) {
+		String processId = UUID.randomUUID().toString();
+		try {
+			if (lockManager.tryLock(resourceId, processId, resourceId, unit.toMillis(timeout))) {
+				return Optional.of(processId);
+			}
+			return Optional.empty();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConcurrencyException("Interrupción mientras se esperaba el bloqueo", e);
+		}
+	}
+
+	/**
+	 * Libera un bloqueo obtenido mediante {@link #tryLock(String, long, TimeUnit)}.
+	 *
+	 * @param resourceId Identificador único del recurso bloqueado
+	 * @param processId  Identificador del proceso devuelto por tryLock
+	 */
+	public void unlock(String resourceId, String processId) {
+		lockManager.releaseLock(resourceId, processId);
+	}
+
+	/**
+	 * Verifica si un recurso está actualmente bloqueado sin intentar adquirir el bloqueo.
+	 * 
+	 * La consulta la resuelve el motor configurado (lock.engine) sin crear ni eliminar
+	 * registros, por lo que no interfiere con los procesos que intentan adquirir el recurso.
 	 * Es útil para realizar comprobaciones previas antes de intentar operaciones que requieren
 	 * bloqueo, o para mostrar información de estado en interfaces de usuario.
 	 *
@@ -125,26 +549,51 @@ public class ConcurrencyService {
 	 *         false si el recurso está disponible (no bloqueado)
 	 */
 	public boolean isResourceLocked(String resourceId) {
-		// Creamos un ID temporal único para esta verificación
-		// El prefijo ayuda a identificar que es una operación de verificación
-		String tempId = StringUtils.join(PREFIJO_CHECK, UUID.randomUUID().toString());
-
-		// Intentamos adquirir el bloqueo con el ID temporal
-		// Si podemos adquirirlo, significa que el recurso no estaba bloqueado
-		boolean canAcquire = lockManager.acquireLock(resourceId, tempId);
-
-		// Si logramos adquirir el bloqueo, debemos liberarlo inmediatamente
-		// ya que solo estamos verificando el estado, no realizando una operación
-		if (canAcquire) {
-			// Liberamos el bloqueo que acabamos de adquirir
-			lockManager.releaseLock(resourceId, tempId);
-			
-			// Devolvemos false indicando que el recurso NO está bloqueado
-			return false;
+		return lockManager.isLocked(resourceId);
+	}
+
+	/**
+	 * Espera entre dos intentos de executeWithLockAsync: su registro en la cola local y el
+	 * temporizador del retroceso. Solo el primero que la dispara (liberación, temporizador o
+	 * gancho de cancelación) continúa.
+	 */
+	private static final class EsperaAsync {
+
+		private final LockReleaseNotifier.Espera espera;
+
+		private final AtomicBoolean disparada = new AtomicBoolean();
+
+		/** Se asigna después de programarlo; sigue en null si la espera se dispara antes. */
+		private volatile ScheduledFuture<?> temporizador;
+
+		private EsperaAsync(LockReleaseNotifier.Espera espera) {
+			this.espera = espera;
 		}
 
-		// Si no pudimos adquirir el bloqueo, significa que el recurso
-		// está actualmente bloqueado por otro proceso
-		return true;
+		/**
+		 * Asigna el temporizador del retroceso; si la espera ya se disparó, lo cancela.
+		 */
+		private void programar(ScheduledFuture<?> programado) {
+			temporizador = programado;
+			if (disparada.get()) {
+				programado.cancel(false);
+			}
+		}
+
+		/**
+		 * Marca la espera como disparada y cancela su temporizador.
+		 *
+		 * @return true si esta llamada fue la primera en dispararla
+		 */
+		private boolean disparar() {
+			if (!disparada.compareAndSet(false, true)) {
+				return false;
+			}
+			ScheduledFuture<?> programado = temporizador;
+			if (programado != null) {
+				programado.cancel(false);
+			}
+			return true;
+		}
 	}
-}
\ No newline at end of file
+}
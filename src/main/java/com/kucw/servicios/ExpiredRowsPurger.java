@@ -0,0 +1,145 @@
+package com.kucw.servicios;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kucw.presentacion.repositorios.ExpiredRowsJdbcRepository;
+
+/**
+ * Depuración por lotes de los registros expirados de las tablas de bloqueos, lectores y permisos.
+ *
+ * En lugar de una sola sentencia DELETE sobre todos los registros expirados, que con millones de
+ * registros se convierte en una transacción enorme que detiene la inserción de bloqueos, cada tabla
+ * se recorre con paginación por llave en lotes de lock.cleanup.batch.size registros, cada lote se
+ * elimina en su propia transacción y entre lotes se hace una pausa de lock.cleanup.pause.ms. Cada
+ * ejecución procesa como máximo lock.cleanup.max.batches lotes por tabla; el resto queda para la
+ * siguiente ejecución, cuya frecuencia ajusta LockManagerService según el volumen encontrado.
+ *
+ * Acumula métricas de filas eliminadas, lotes y tiempo invertido.
+ */
+@Component
+public class ExpiredRowsPurger {
+
+	@Autowired
+	private ExpiredRowsJdbcRepository expiredRowsRepository;
+
+	/**
+	 * Registros por lote. Se configura mediante la propiedad lock.cleanup.batch.size con un valor
+	 * predeterminado de 500 (límite de elementos de una lista IN de Oracle: 1000).
+	 */
+	@Value("${lock.cleanup.batch.size:500}")
+	private int batchSize;
+
+	/**
+	 * Pausa en milisegundos entre lotes para ceder la base de datos a las operaciones de bloqueo.
+	 * Se configura mediante la propiedad lock.cleanup.pause.ms con un valor predeterminado de 20.
+	 */
+	@Value("${lock.cleanup.pause.ms:20}")
+	private long pauseMs;
+
+	/**
+	 * Máximo de lotes por tabla en cada ejecución. Se configura mediante la propiedad
+	 * lock.cleanup.max.batches con un valor predeterminado de 200.
+	 */
+	@Value("${lock.cleanup.max.batches:200}")
+	private int maxBatches;
+
+	private final LongAdder filasEliminadas = new LongAdder();
+
+	private final LongAdder lotes = new LongAdder();
+
+	private final LongAdder nanosInvertidos = new LongAdder();
+
+	/**
+	 * Elimina por lotes los registros expirados de una tabla.
+	 *
+	 * @param tabla         tabla a depurar
+	 * @param columnaId     columna del identificador
+	 * @param columnaExpira columna de la fecha de expiración
+	 * @param ahora         fecha de referencia para la expiración
+	 * @return número de filas eliminadas en esta ejecución
+	 */
+	public int purge(String tabla, String columnaId, String columnaExpira, Date ahora) {
+		long inicio = System.nanoTime();
+		int eliminadas = 0;
+		Date desdeExpira = new Date(0);
+		long desdeId = -1;
+		try {
+			for (int lote = 0; lote < maxBatches; lote++) {
+				List<Object[]> filas = expiredRowsRepository.siguienteLote(tabla, columnaId, columnaExpira, ahora,
+						desdeExpira, desdeId, batchSize);
+				if (filas.isEmpty()) {
+					break;
+				}
+
+				List<Long> ids = new ArrayList<>(filas.size());
+				for (Object[] fila : filas) {
+					ids.add((Long) fila[0]);
+				}
+				eliminadas += expiredRowsRepository.eliminarLote(tabla, columnaId, columnaExpira, ids, ahora);
+				lotes.increment();
+
+				Object[] ultima = filas.get(filas.size() - 1);
+				desdeId = (Long) ultima[0];
+				desdeExpira = (Date) ultima[1];
+				if (filas.size() < batchSize || !pausar()) {
+					break;
+				}
+			}
+		} finally {
+			filasEliminadas.add(eliminadas);
+			nanosInvertidos.add(System.nanoTime() - inicio);
+		}
+		return eliminadas;
+	}
+
+	/**
+	 * Total de filas eliminadas desde el arranque.
+	 *
+	 * @return filas eliminadas
+	 */
+	public long getRowsPurged() {
+		return filasEliminadas.sum();
+	}
+
+	/**
+	 * Total de lotes procesados desde el arranque.
+	 *
+	 * @return lotes procesados
+	 */
+	public long getBatches() {
+		return lotes.sum();
+	}
+
+	/**
+	 * Tiempo total invertido en la depuración desde el arranque, incluidas las pausas.
+	 *
+	 * @return tiempo en milisegundos
+	 */
+	public long getTimeSpentMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(nanosInvertidos.sum());
+	}
+
+	/**
+	 * Pausa entre lotes; devuelve false si el hilo fue interrumpido para detener la depuración.
+	 */
+	private boolean pausar() {
+		if (pauseMs <= 0) {
+			return true;
+		}
+		try {
+			TimeUnit.MILLISECONDS.sleep(pauseMs);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
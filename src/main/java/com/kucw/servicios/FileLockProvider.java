@@ -0,0 +1,288 @@
+package com.kucw.servicios;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.kucw.presentacion.excepciones.ConcurrencyException;
+import com.kucw.presentacion.modelos.DistributedLockModel;
+
+/**
+ * Motor de bloqueos basado en archivos (lock.engine=file).
+ *
+ * Cada llave corresponde a un archivo del directorio lock.file.directory y el bloqueo es un
+ * FileChannel.lock exclusivo del sistema operativo sobre ese archivo. Coordina varias JVM del
+ * mismo equipo sin base de datos: si un proceso termina, el sistema operativo libera sus
+ * bloqueos, por lo que no se requiere expiración ni renovación.
+ *
+ * El archivo se elimina al liberar el bloqueo, mientras éste sigue activo. Otro proceso pudo
+ * haberlo abierto antes de la eliminación y obtener su bloqueo después; para que no lo confunda
+ * con el archivo que se crea de nuevo con el mismo nombre, el propietario le escribe una marca
+ * antes de eliminarlo. Quien obtiene el bloqueo de un archivo marcado lo cierra y vuelve a abrir
+ * el nombre, por lo que solo se mantienen bloqueos sobre archivos vigentes y el directorio
+ * contiene únicamente los archivos de las llaves bloqueadas.
+ */
+@Service
+@ConditionalOnProperty(name = "lock.engine", havingValue = "file")
+public class FileLockProvider implements LockProvider {
+
+	private static final Logger logger = LoggerFactory.getLogger(FileLockProvider.class);
+
+	/** Contenido que el propietario escribe en el archivo antes de eliminarlo; un archivo vigente está vacío. */
+	private static final byte[] MARCA_ELIMINADO = { 'X' };
+
+	/**
+	 * Aperturas de la llave que se intentan si cada vez se obtiene un archivo marcado. Solo se
+	 * agotan si un proceso terminó entre marcar el archivo y eliminarlo.
+	 */
+	private static final int MAXIMO_APERTURAS = 5;
+
+	/**
+	 * Directorio donde se crean los archivos de bloqueo; debe ser el mismo para todas las JVM del equipo.
+	 * Se configura mediante la propiedad lock.file.directory.
+	 */
+	@Value("${lock.file.directory:${java.io.tmpdir}/kucw-locks}")
+	private String directorio;
+
+	/** Bloqueos que mantiene esta JVM por llave. */
+	private final ConcurrentMap<String, Bloqueo> bloqueos = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	void init() {
+		try {
+			Files.createDirectories(Paths.get(directorio));
+		} catch (IOException e) {
+			throw new ConcurrencyException("No se pudo crear el directorio de bloqueos: " + directorio, e);
+		}
+	}
+
+	/**
+	 * Libera los bloqueos que esta JVM mantenga al detener la aplicación.
+	 */
+	@PreDestroy
+	void detener() {
+		for (Map.Entry<String, Bloqueo> bloqueo : bloqueos.entrySet()) {
+			if (bloqueo.getValue().canal != null) {
+				eliminar(bloqueo.getKey(), bloqueo.getValue().canal);
+			}
+		}
+		bloqueos.clear();
+	}
+
+	@Override
+	public boolean acquire(DistributedLockModel bloqueo) {
+		String llave = bloqueo.getLlaveBloqueo();
+		Bloqueo nuevo = new Bloqueo(bloqueo.getProcesoBloqueo());
+		// El mapa evita que dos hilos de esta JVM intenten bloquear el mismo archivo
+		if (bloqueos.putIfAbsent(llave, nuevo) != null) {
+			return false;
+		}
+
+		Path ruta = archivo(llave);
+		FileChannel canal = null;
+		try {
+			for (int apertura = 0; apertura < MAXIMO_APERTURAS; apertura++) {
+				canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				FileLock bloqueoArchivo = canal.tryLock();
+				if (bloqueoArchivo == null) {
+					// Otra JVM mantiene el archivo
+					break;
+				}
+				if (canal.size() == 0) {
+					nuevo.canal = canal;
+					return true;
+				}
+				// El propietario anterior marcó y eliminó el archivo después de que lo abrimos
+				cerrar(canal);
+				canal = null;
+			}
+			if (canal == null) {
+				logger.error("El archivo de bloqueo {} de la llave {} sigue marcado como eliminado; "
+						+ "un proceso terminó al liberarlo y debe eliminarse manualmente", ruta, llave);
+			}
+		} catch (OverlappingFileLockException e) {
+			// Una consulta de isLocked de esta JVM mantiene el archivo en este instante
+		} catch (IOException e) {
+			logger.error("Error al adquirir el bloqueo de archivo {}", llave, e);
+		}
+
+		cerrar(canal);
+		bloqueos.remove(llave, nuevo);
+		return false;
+	}
+
+	/**
+	 * Adquiere las llaves en el orden recibido; si alguna está ocupada libera las que ya obtuvo.
+	 */
+	@Override
+	public boolean acquireAll(List<DistributedLockModel> bloqueosSolicitados) {
+		for (int i = 0; i < bloqueosSolicitados.size(); i++) {
+			if (!acquire(bloqueosSolicitados.get(i))) {
+				for (DistributedLockModel adquirido : bloqueosSolicitados.subList(0, i)) {
+					release(adquirido.getLlaveBloqueo(), adquirido.getProcesoBloqueo());
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int release(String resourceId, String processId) {
+		Bloqueo actual = bloqueos.get(resourceId);
+		if (actual == null || !actual.proceso.equals(processId) || actual.canal == null) {
+			return 0;
+		}
+		// Se elimina el archivo antes de retirar la entrada para que ningún hilo de esta JVM
+		// intente bloquearlo mientras el bloqueo sigue activo
+		eliminar(resourceId, actual.canal);
+		bloqueos.remove(resourceId, actual);
+		return 1;
+	}
+
+	@Override
+	public int releaseAll(Collection<String> resourceIds, String processId) {
+		int eliminados = 0;
+		for (String resourceId : resourceIds) {
+			eliminados += release(resourceId, processId);
+		}
+		return eliminados;
+	}
+
+	@Override
+	public void releaseBatch(List<Object[]> pares) {
+		for (Object[] par : pares) {
+			release((String) par[0], (String) par[1]);
+		}
+	}
+
+	/**
+	 * El bloqueo del sistema operativo no expira; solo se confirman los que siguen siendo del proceso.
+	 */
+	@Override
+	public List<Object[]> renew(List<Object[]> pares, Date expira) {
+		List<Object[]> vigentes = new ArrayList<>(pares.size());
+		for (Object[] par : pares) {
+			Bloqueo actual = bloqueos.get((String) par[0]);
+			if (actual != null && actual.proceso.equals(par[1])) {
+				vigentes.add(par);
+			}
+		}
+		return vigentes;
+	}
+
+	/**
+	 * Consulta si otro proceso mantiene el archivo intentando bloquearlo y liberándolo de inmediato.
+	 */
+	@Override
+	public boolean isLocked(String resourceId) {
+		if (bloqueos.containsKey(resourceId)) {
+			return true;
+		}
+		Path ruta = archivo(resourceId);
+		if (!Files.exists(ruta)) {
+			return false;
+		}
+		try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.WRITE)) {
+			FileLock bloqueoArchivo = canal.tryLock();
+			if (bloqueoArchivo == null) {
+				return true;
+			}
+			bloqueoArchivo.release();
+			return false;
+		} catch (OverlappingFileLockException e) {
+			// Un hilo de esta JVM lo adquirió durante la consulta
+			return true;
+		} catch (NoSuchFileException e) {
+			// Su propietario lo liberó y eliminó durante la consulta
+			return false;
+		} catch (IOException e) {
+			logger.error("Error al consultar el bloqueo de archivo {}", resourceId, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Los bloqueos de archivo no expiran; el sistema operativo los libera al terminar el proceso y
+	 * cada archivo se elimina al liberar su bloqueo.
+	 */
+	@Override
+	public int cleanupExpired(Date ahora) {
+		// Sin bloqueos expirados que eliminar
+		return 0;
+	}
+
+	/**
+	 * Archivo de bloqueo de la llave; el nombre es el MD5 de la llave para admitir cualquier carácter.
+	 */
+	private Path archivo(String resourceId) {
+		return Paths.get(directorio, DigestUtils.md5Hex(resourceId) + ".lock");
+	}
+
+	/**
+	 * Marca y elimina el archivo de un bloqueo mientras lo mantiene, y después lo cierra. Si no se
+	 * puede marcar, el archivo se conserva: eliminarlo sin marca permitiría que quien ya lo abrió
+	 * lo bloquee como si siguiera vigente.
+	 */
+	private void eliminar(String resourceId, FileChannel canal) {
+		try {
+			canal.write(ByteBuffer.wrap(MARCA_ELIMINADO), 0);
+			Files.deleteIfExists(archivo(resourceId));
+		} catch (IOException e) {
+			logger.error("Error al eliminar el archivo de bloqueo {}", resourceId, e);
+		} finally {
+			cerrar(canal);
+		}
+	}
+
+	private static void cerrar(FileChannel canal) {
+		if (canal == null) {
+			return;
+		}
+		try {
+			// Cerrar el canal libera el bloqueo del archivo
+			canal.close();
+		} catch (IOException e) {
+			logger.error("Error al cerrar el archivo de bloqueo", e);
+		}
+	}
+
+	/**
+	 * Proceso propietario y canal que mantiene el bloqueo del archivo.
+	 */
+	private static final class Bloqueo {
+
+		private final String proceso;
+
+		/** Se asigna una vez obtenido el bloqueo del archivo; mientras tanto la llave está reservada. */
+		private volatile FileChannel canal;
+
+		private Bloqueo(String proceso) {
+			this.proceso = proceso;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package com.kucw.servicios;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.kucw.presentacion.excepciones.ConcurrencyException;
+import com.kucw.presentacion.repositorios.IdempotentResponseJdbcRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Respuestas de peticiones ya procesadas, para entregarlas de nuevo a las peticiones idénticas.
+ *
+ * Las respuestas se conservan lock.idempotency.ttl.seconds en dos niveles:
+ * - memoria: caché acotada a lock.idempotency.max.entries respuestas que expiran por tiempo; se
+ *   consulta antes de solicitar el bloqueo y entrega la respuesta sin acceder a la base de datos
+ * - base de datos: TB_NSAR_RESPUESTA_IDEMPOTENTE, una fila por llave con la respuesta en JSON; la
+ *   consulta quien adquiere el bloqueo, para encontrar las respuestas registradas por otros nodos
+ *
+ * La respuesta se registra en ambos niveles antes de liberar el bloqueo, por lo que una petición
+ * idéntica que lo adquiere después, en cualquier nodo, la encuentra. Si la base de datos no está
+ * disponible la respuesta se conserva solo en memoria; un error del registro nunca hace fallar la
+ * petición.
+ *
+ * Métricas: lock.idempotency.entries (respuestas en memoria) y lock.idempotency.replays
+ * (respuestas entregadas de nuevo, con la etiqueta origen=memoria|base).
+ */
+@Component
+public class IdempotencyStore {
+
+	private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+	@Autowired
+	private IdempotentResponseJdbcRepository responseRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Indica si se conservan las respuestas. Se configura mediante la propiedad
+	 * lock.idempotency.enabled con un valor predeterminado de true.
+	 */
+	@Value("${lock.idempotency.enabled:true}")
+	private boolean enabled;
+
+	/**
+	 * Segundos que se conserva cada respuesta. Se configura mediante la propiedad
+	 * lock.idempotency.ttl.seconds con un valor predeterminado de 300.
+	 */
+	@Value("${lock.idempotency.ttl.seconds:300}")
+	private long ttlSeconds;
+
+	/**
+	 * Máximo de respuestas en memoria; al alcanzarlo se descartan las menos usadas. Se configura
+	 * mediante la propiedad lock.idempotency.max.entries con un valor predeterminado de 10000.
+	 */
+	@Value("${lock.idempotency.max.entries:10000}")
+	private long maxEntries;
+
+	/**
+	 * Nombre del servicio que registra las respuestas. Se configura mediante la propiedad
+	 * application.service.name con un valor predeterminado de "defaultService".
+	 */
+	@Value("${application.service.name:defaultService}")
+	private String serviceName;
+
+	private Cache<String, Respuesta> memoria;
+
+	private Counter entregadasMemoria;
+
+	private Counter entregadasBase;
+
+	@PostConstruct
+	void init() {
+		if (ttlSeconds <= 0) {
+			throw new ConcurrencyException("lock.idempotency.ttl.seconds debe ser mayor que 0: " + ttlSeconds);
+		}
+		memoria = CacheBuilder.newBuilder().maximumSize(maxEntries).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.build();
+		Gauge.builder("lock.idempotency.entries", memoria, Cache::size)
+				.description("Respuestas de peticiones procesadas en memoria").register(registry);
+		entregadasMemoria = Counter.builder("lock.idempotency.replays").tag("origen", "memoria")
+				.description("Respuestas entregadas de nuevo a peticiones idénticas").register(registry);
+		entregadasBase = Counter.builder("lock.idempotency.replays").tag("origen", "base")
+				.description("Respuestas entregadas de nuevo a peticiones idénticas").register(registry);
+	}
+
+	/**
+	 * Busca la respuesta de la petición solo en memoria.
+	 *
+	 * @param llave llave de la petición
+	 * @param tipo  clase de la respuesta
+	 * @return respuesta vigente, o null si no está en memoria
+	 */
+	public <T> T findCached(String llave, Class<T> tipo) {
+		if (!enabled) {
+			return null;
+		}
+		Respuesta respuesta = memoria.getIfPresent(llave);
+		if (respuesta == null || respuesta.expira <= System.currentTimeMillis() || !tipo.isInstance(respuesta.valor)) {
+			return null;
+		}
+		entregadasMemoria.increment();
+		return tipo.cast(respuesta.valor);
+	}
+
+	/**
+	 * Busca la respuesta de la petición en memoria y, si no está, en la base de datos. Debe
+	 * llamarse con el bloqueo de la petición adquirido.
+	 *
+	 * @param llave llave de la petición
+	 * @param tipo  clase de la respuesta
+	 * @return respuesta vigente, o null si la petición no se ha procesado
+	 */
+	public <T> T find(String llave, Class<T> tipo) {
+		T valor = findCached(llave, tipo);
+		if (valor != null || !enabled) {
+			return valor;
+		}
+		try {
+			Object[] fila = responseRepository.consultar(llave, new Date());
+			if (fila == null) {
+				return null;
+			}
+			valor = objectMapper.readValue((String) fila[0], tipo);
+			memoria.put(llave, new Respuesta(valor, ((Date) fila[1]).getTime()));
+			entregadasBase.increment();
+			return valor;
+		} catch (DataAccessException | IOException e) {
+			logger.error("No fue posible consultar la respuesta registrada de {}: {}", llave, e.getMessage(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Registra la respuesta de la petición en memoria y en la base de datos. Debe llamarse antes
+	 * de liberar el bloqueo de la petición.
+	 *
+	 * @param llave     llave de la petición
+	 * @param respuesta respuesta calculada
+	 */
+	public void store(String llave, Object respuesta) {
+		if (!enabled) {
+			return;
+		}
+		Date registro = new Date();
+		Date expira = new Date(registro.getTime() + TimeUnit.SECONDS.toMillis(ttlSeconds));
+		memoria.put(llave, new Respuesta(respuesta, expira.getTime()));
+		try {
+			responseRepository.guardar(llave, serviceName, objectMapper.writeValueAsString(respuesta), registro, expira);
+		} catch (DataAccessException | JsonProcessingException e) {
+			logger.error("No fue posible registrar la respuesta de {}: {}", llave, e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Respuesta en memoria con su expiración; las leídas de la base de datos conservan la
+	 * expiración registrada y no la extienden.
+	 */
+	private static final class Respuesta {
+
+		private final Object valor;
+
+		private final long expira;
+
+		private Respuesta(Object valor, long expira) {
+			this.valor = valor;
+			this.expira = expira;
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.kucw.servicios;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import com.kucw.presentacion.modelos.DistributedLockModel;
+import com.kucw.presentacion.repositorios.DistributedLockJdbcRepository;
+import com.kucw.presentacion.repositorios.LockShardRouter;
+
+/**
+ * Motor de bloqueos basado en JDBC directo (lock.engine=jdbc).
+ *
+ * La adquisición se resuelve con una sola sentencia MERGE condicional sin transacción
+ * explícita: la sentencia inserta, toma un bloqueo expirado o no afecta filas si el bloqueo
+ * sigue vigente. No se utilizan excepciones para detectar la contención.
+ */
+@Service
+@ConditionalOnProperty(name = "lock.engine", havingValue = "jdbc")
+public class JdbcLockProvider implements LockProvider {
+
+	private static final Logger logger = LoggerFactory.getLogger(JdbcLockProvider.class);
+
+	@Autowired
+	private DistributedLockJdbcRepository lockJdbcRepository;
+
+	@Autowired
+	private LockShardRouter shardRouter;
+
+	@Autowired
+	private ExpiredRowsPurger purger;
+
+	@Autowired
+	private LockMetrics lockMetrics;
+
+	@Autowired
+	private SimultaneousRequestRecorder simultaneas;
+
+	@Override
+	public boolean acquire(DistributedLockModel bloqueo) {
+		int filas;
+		try {
+			filas = lockJdbcRepository.adquirir(bloqueo);
+		} catch (DuplicateKeyException e) {
+			// Solo ocurre cuando dos nodos insertan la misma llave nueva en el mismo instante;
+			// el otro nodo ganó el bloqueo, por lo que se trata como contención
+			filas = 0;
+		} catch (DataAccessException e) {
+			logger.error("Error al adquirir el bloqueo {}", bloqueo.getLlaveBloqueo(), e);
+			lockMetrics.acquireError();
+			return false;
+		}
+
+		if (filas > 0) {
+			return true;
+		}
+
+		simultaneas.record(bloqueo.getLlaveBloqueo(), System.currentTimeMillis());
+		return false;
+	}
+
+	/**
+	 * Envía las sentencias MERGE de todas las llaves en un solo lote. Si alguna llave no se
+	 * concedió, elimina en una sola sentencia los bloqueos que sí se obtuvieron.
+	 */
+	@Override
+	public boolean acquireAll(List<DistributedLockModel> bloqueos) {
+		String processId = bloqueos.get(0).getProcesoBloqueo();
+		boolean todos;
+		try {
+			int[] filas = lockJdbcRepository.adquirirTodos(bloqueos);
+			todos = true;
+			for (int fila : filas) {
+				// Solo un conteo positivo confirma la adquisición; un controlador que no informe
+				// el conteo se trata como conflicto para no conservar bloqueos parciales
+				todos &= fila > 0;
+			}
+		} catch (DataAccessException e) {
+			if (!(e instanceof DuplicateKeyException)) {
+				logger.error("Error al adquirir bloqueos múltiples", e);
+				lockMetrics.acquireError();
+			}
+			todos = false;
+		}
+
+		if (!todos) {
+			List<String> llaves = new ArrayList<>(bloqueos.size());
+			for (DistributedLockModel bloqueo : bloqueos) {
+				llaves.add(bloqueo.getLlaveBloqueo());
+			}
+			releaseAll(llaves, processId);
+		}
+		return todos;
+	}
+
+	@Override
+	public int release(String resourceId, String processId) {
+		return lockJdbcRepository.liberar(resourceId, processId);
+	}
+
+	@Override
+	public int releaseAll(Collection<String> resourceIds, String processId) {
+		return lockJdbcRepository.liberarTodos(resourceIds, processId);
+	}
+
+	@Override
+	public void releaseBatch(List<Object[]> pares) {
+		lockJdbcRepository.liberarLote(pares);
+	}
+
+	@Override
+	public List<Object[]> renew(List<Object[]> pares, Date expira) {
+		return lockJdbcRepository.renovar(pares, expira);
+	}
+
+	@Override
+	public boolean isLocked(String resourceId) {
+		return lockJdbcRepository.vigente(resourceId, new Date());
+	}
+
+	@Override
+	public int cleanupExpired(Date ahora) {
+		// Cada partición se depura por separado con sus propios lotes
+		int eliminados = 0;
+		for (int shard = 0; shard < shardRouter.shards(); shard++) {
+			eliminados += purger.purge(shardRouter.tabla(shard), "ID_BLOQUEO_DISTRIBUIDO", "FC_EXPIRA_BLOQUEO", ahora);
+		}
+		return eliminados;
+	}
+}
@@ -0,0 +1,207 @@
+package com.kucw.servicios;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kucw.presentacion.entidades.DistributedLock;
+import com.kucw.presentacion.modelos.DistributedLockModel;
+import com.kucw.presentacion.repositorios.DistributedLockJdbcRepository;
+import com.kucw.presentacion.repositorios.DistributedLockRepository;
+import com.kucw.presentacion.repositorios.LockShardRouter;
+
+/**
+ * Motor de bloqueos basado en JPA.
+ *
+ * Toma en sitio el bloqueo expirado de la misma llave o inserta la entidad DistributedLock,
+ * detectando la contención mediante la violación de la restricción de unicidad sobre
+ * CH_LLAVE_BLOQUEO. La expiración global queda a cargo de la tarea programada de limpieza.
+ * Es el motor predeterminado (lock.engine=jpa).
+ */
+@Service
+@ConditionalOnProperty(name = "lock.engine", havingValue = "jpa", matchIfMissing = true)
+public class JpaLockProvider implements LockProvider {
+
+	private static final Logger logger = LoggerFactory.getLogger(JpaLockProvider.class);
+
+	@Autowired
+	private DistributedLockRepository lockRepository;
+
+	/**
+	 * La renovación por lotes compara pares llave/proceso, que JPQL no permite expresar
+	 * en una sola sentencia; se resuelve con la sentencia JDBC sobre la misma tabla.
+	 */
+	@Autowired
+	private DistributedLockJdbcRepository lockJdbcRepository;
+
+	@Autowired
+	private ExpiredRowsPurger purger;
+
+	@Autowired
+	private LockMetrics lockMetrics;
+
+	@Autowired
+	private SimultaneousRequestRecorder simultaneas;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/** Transacción SERIALIZABLE para la toma o inserción del bloqueo. */
+	private TransactionTemplate transaccionSerializable;
+
+	@PostConstruct
+	void init() {
+		transaccionSerializable = new TransactionTemplate(transactionManager);
+		transaccionSerializable.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+	}
+
+	/**
+	 * Adquiere el bloqueo con aislamiento SERIALIZABLE.
+	 *
+	 * 1. Intenta tomar el bloqueo expirado de la misma llave con una actualización condicional
+	 * 2. Si no existía un bloqueo expirado, intenta crear un nuevo bloqueo con un tiempo de expiración
+	 * 
+	 * Solo se accede a la fila de la llave solicitada; no se recorren rangos del índice
+	 * IDX_FECHA_EXPIRACION que correspondan a otras llaves.
+	 * 
+	 * La violación de unicidad se produce al confirmar la transacción, por lo que la inserción
+	 * se ejecuta en su propia transacción y la contención se detecta fuera de ella; la marca de
+	 * petición simultánea se registra después mediante SimultaneousRequestRecorder.
+	 */
+	@Override
+	public boolean acquire(DistributedLockModel bloqueo) {
+		try {
+			return transaccionSerializable.execute(status -> insertar(bloqueo));
+		} catch (DataIntegrityViolationException e) {
+			// Si se produce una violación de integridad, significa que ya existe un bloqueo para este recurso
+			// Registramos que se detectó una petición simultánea; la marca se aplica de forma diferida
+			simultaneas.record(bloqueo.getLlaveBloqueo(), System.currentTimeMillis());
+			return false; // No se pudo adquirir el bloqueo
+		} catch (Exception e) {
+			// Capturamos cualquier otra excepción que pueda ocurrir durante el proceso
+			// Esto nos permite manejar casos no previstos sin interrumpir la ejecución
+			lockMetrics.acquireError();
+			return false; // No se pudo adquirir el bloqueo debido a un error inesperado
+		}
+	}
+
+	/**
+	 * Adquiere todos los bloqueos en una sola transacción SERIALIZABLE. Si alguna llave está
+	 * ocupada la confirmación falla y la transacción completa se revierte.
+	 */
+	@Override
+	public boolean acquireAll(List<DistributedLockModel> bloqueos) {
+		try {
+			return transaccionSerializable.execute(status -> {
+				for (DistributedLockModel bloqueo : bloqueos) {
+					insertar(bloqueo);
+				}
+				return true;
+			});
+		} catch (DataIntegrityViolationException e) {
+			return false; // Alguna llave estaba ocupada; no se conserva ningún bloqueo
+		} catch (Exception e) {
+			logger.error("Error al adquirir bloqueos múltiples: " + e.getMessage(), e);
+			lockMetrics.acquireError();
+			return false;
+		}
+	}
+
+	/**
+	 * Toma el bloqueo expirado de la llave o inserta uno nuevo dentro de la transacción en curso.
+	 */
+	private boolean insertar(DistributedLockModel bloqueo) {
+		// Si existe un bloqueo expirado para esta misma llave, lo tomamos en sitio
+		int tomados = lockRepository.takeOverExpiredLock(bloqueo.getLlaveBloqueo(), bloqueo.getProcesoBloqueo(),
+				bloqueo.getFechaInicioBloqueo(), bloqueo.getFechaExpiraBloqueo(),
+				bloqueo.getUsuarioModificador(), bloqueo.getNombreServicio());
+		if (tomados > 0) {
+			lockMetrics.expiredTakeover();
+			return true; // Bloqueo expirado tomado por este proceso
+		}
+
+		// Creamos un nuevo objeto de bloqueo con los datos necesarios
+		DistributedLock lock = new DistributedLock();
+		lock.setLlaveBloqueo(bloqueo.getLlaveBloqueo());               // Identificador del recurso bloqueado
+		lock.setProcesoBloqueo(bloqueo.getProcesoBloqueo());           // Identificador del proceso que adquiere el bloqueo
+		lock.setFechaInicioBloqueo(bloqueo.getFechaInicioBloqueo());   // Momento en que se adquiere el bloqueo
+		lock.setFechaExpiraBloqueo(bloqueo.getFechaExpiraBloqueo());   // Momento en que expirará el bloqueo
+		lock.setUsuarioModificador(bloqueo.getUsuarioModificador());   // Usuario que realiza la operación
+		lock.setNombreServicio(bloqueo.getNombreServicio());           // Servicio que adquiere el bloqueo
+		lock.setPeticionSimultanea("FALSE");      // Por defecto, no es una petición simultánea
+
+		// Guardamos el bloqueo en la base de datos
+		// La confirmación fallará con DataIntegrityViolationException si otro proceso
+		// ya ha creado un bloqueo con el mismo resourceId (debido a la restricción de unicidad)
+		lockRepository.save(lock);
+		return true; // Bloqueo adquirido exitosamente
+	}
+
+	/**
+	 * Busca el bloqueo, verifica que el processId coincida con el que lo adquirió y lo elimina.
+	 */
+	@Override
+	@Transactional
+	public int release(String resourceId, String processId) {
+		// Buscamos el bloqueo por su identificador de recurso
+		return lockRepository.findByLlaveBloqueo(resourceId).map(lock -> {
+			// Verificamos que el proceso que intenta liberar el bloqueo sea el mismo que lo adquirió
+			if (lock.getProcesoBloqueo().equals(processId)) {
+				// Si coincide, eliminamos el bloqueo de la base de datos
+				lockRepository.delete(lock);
+				return 1;
+			}
+			// Si no coincide, no hacemos nada (el bloqueo permanece)
+			return 0;
+		}).orElse(0);
+	}
+
+	/**
+	 * Elimina en una sola sentencia los bloqueos de las llaves que pertenecen al proceso.
+	 */
+	@Override
+	@Transactional
+	public int releaseAll(Collection<String> resourceIds, String processId) {
+		return lockRepository.deleteAllByLlaveBloqueoInAndProcesoBloqueo(resourceIds, processId);
+	}
+
+	/**
+	 * Elimina por llave y proceso con la sentencia JDBC sobre la misma tabla, sin cargar las
+	 * entidades: JPQL no permite enviar las eliminaciones de varios propietarios en un lote.
+	 */
+	@Override
+	public void releaseBatch(List<Object[]> pares) {
+		lockJdbcRepository.liberarLote(pares);
+	}
+
+	@Override
+	public List<Object[]> renew(List<Object[]> pares, Date expira) {
+		return lockJdbcRepository.renovar(pares, expira);
+	}
+
+	@Override
+	public boolean isLocked(String resourceId) {
+		return lockRepository.findValidLock(resourceId, new Date()).isPresent();
+	}
+
+	/**
+	 * Depura por lotes, cada uno en su propia transacción, en lugar de una sola eliminación masiva.
+	 */
+	@Override
+	public int cleanupExpired(Date ahora) {
+		return purger.purge(LockShardRouter.TABLA_BASE, "ID_BLOQUEO_DISTRIBUIDO", "FC_EXPIRA_BLOQUEO", ahora);
+	}
+}
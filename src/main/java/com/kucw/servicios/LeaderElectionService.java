@@ -0,0 +1,190 @@
+package com.kucw.servicios;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import com.kucw.presentacion.excepciones.ConcurrencyException;
+import com.kucw.presentacion.modelos.DistributedLockModel;
+
+/**
+ * Elección de un nodo líder para las tareas de mantenimiento del clúster.
+ *
+ * El liderazgo es un bloqueo con arrendamiento sobre una llave conocida (lock.leader.key) en el
+ * propio motor de bloqueos: el nodo que lo obtiene lo renueva cada lock.leader.heartbeat.ms y los
+ * demás intentan tomarlo en el mismo ciclo. La llave se registra con una vigencia de
+ * lock.leader.lease.ms menos un latido, de modo que si el líder cae la llave expira y otro nodo
+ * la toma en sitio en su siguiente ciclo, a más tardar lock.leader.lease.ms después de la última
+ * renovación; al detenerse de forma ordenada el líder la libera para que el relevo sea inmediato.
+ *
+ * Un nodo sólo se considera líder mientras su arrendamiento local siga vigente, de modo que si la
+ * renovación se retrasa deja de ejecutar mantenimiento antes de que otro nodo pueda tomar la llave.
+ * Las tareas de mantenimiento (limpieza de bloqueos expirados, entre otras) consultan isLeader()
+ * antes de ejecutarse, por lo que su carga sobre la base de datos no crece con el número de nodos.
+ */
+@Service
+public class LeaderElectionService {
+
+	private static final Logger logger = LoggerFactory.getLogger(LeaderElectionService.class);
+
+	/** Motor de bloqueos configurado (lock.engine); almacena la llave del líder. */
+	@Autowired
+	private LockProvider lockProvider;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Indica si la elección está activa. Con false todos los nodos se consideran líderes y ejecutan
+	 * el mantenimiento, como en un despliegue de un solo nodo.
+	 * Se configura mediante la propiedad lock.leader.enabled.
+	 */
+	@Value("${lock.leader.enabled:true}")
+	private boolean enabled;
+
+	/**
+	 * Llave conocida del liderazgo en la tabla de bloqueos.
+	 * Se configura mediante la propiedad lock.leader.key.
+	 */
+	@Value("${lock.leader.key:cluster:leader:maintenance}")
+	private String leaderKey;
+
+	/**
+	 * Duración del arrendamiento en milisegundos; es el tiempo máximo que tarda el relevo cuando
+	 * el líder cae, contado desde su última renovación. Se configura mediante la propiedad
+	 * lock.leader.lease.ms con un valor predeterminado de 30000.
+	 */
+	@Value("${lock.leader.lease.ms:30000}")
+	private long leaseMs;
+
+	/**
+	 * Intervalo en milisegundos entre renovaciones del líder e intentos de los demás nodos; debe
+	 * ser como máximo la mitad de lock.leader.lease.ms. Se configura mediante la propiedad
+	 * lock.leader.heartbeat.ms con un valor predeterminado de 10000.
+	 */
+	@Value("${lock.leader.heartbeat.ms:10000}")
+	private long heartbeatMs;
+
+	@Value("${application.service.name:defaultService}")
+	private String serviceName;
+
+	@Value("${application.user.default:SYSTEM}")
+	private String defaultUser;
+
+	/** Identificador de este nodo como propietario de la llave del líder. */
+	private final String nodeId = UUID.randomUUID().toString();
+
+	/** Momento (System.currentTimeMillis) hasta el cual este nodo es líder; 0 si no lo es. */
+	private volatile long leaderUntilMillis;
+
+	@PostConstruct
+	void init() {
+		if (enabled && (heartbeatMs <= 0 || heartbeatMs * 2 > leaseMs)) {
+			throw new ConcurrencyException("lock.leader.heartbeat.ms debe ser como máximo la mitad de lock.leader.lease.ms");
+		}
+		Gauge.builder("lock.leader", this, l -> l.isLeader() ? 1 : 0)
+				.description("1 si este nodo es el líder del clúster").register(registry);
+	}
+
+	/**
+	 * Indica si este nodo es el líder y su arrendamiento sigue vigente.
+	 *
+	 * @return true si este nodo debe ejecutar las tareas de mantenimiento del clúster
+	 */
+	public boolean isLeader() {
+		return !enabled || System.currentTimeMillis() < leaderUntilMillis;
+	}
+
+	/**
+	 * Identificador de este nodo como propietario de la llave del líder.
+	 *
+	 * @return identificador del nodo
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * Ciclo de la elección: el líder renueva su arrendamiento y los demás nodos intentan tomarlo.
+	 *
+	 * El arrendamiento local se calcula desde el inicio del ciclo, antes de llegar a la base de
+	 * datos, por lo que nunca excede al registrado en la tabla.
+	 */
+	@Scheduled(fixedDelayString = "${lock.leader.heartbeat.ms:10000}")
+	public void heartbeat() {
+		if (!enabled) {
+			return;
+		}
+
+		long inicio = System.currentTimeMillis();
+		// Se descuenta un latido para que el siguiente intento de los demás nodos caiga dentro del arrendamiento
+		long vigenciaMs = leaseMs - heartbeatMs;
+		Date expira = new Date(inicio + vigenciaMs);
+		boolean eraLider = inicio < leaderUntilMillis;
+		boolean lider = false;
+		try {
+			// Un ciclo retrasado pudo vencer el arrendamiento local con la llave aún vigente a su nombre
+			if (leaderUntilMillis != 0) {
+				lider = !lockProvider.renew(Collections.singletonList(new Object[] { leaderKey, nodeId }), expira).isEmpty();
+			}
+			// Mientras otro nodo mantenga la llave basta una lectura, sin intentar la inserción
+			if (!lider && !lockProvider.isLocked(leaderKey)) {
+				lider = lockProvider.acquire(nuevoArrendamiento(new Date(inicio), expira));
+			}
+		} catch (DataAccessException e) {
+			// Sin acceso a la base de datos no se puede confirmar el arrendamiento
+			logger.warn("No fue posible renovar el liderazgo del clúster: {}", e.getMessage());
+			lider = false;
+		}
+
+		leaderUntilMillis = lider ? inicio + vigenciaMs : 0;
+		if (lider != eraLider) {
+			logger.info(lider ? "El nodo {} ({}) es ahora el líder del clúster"
+					: "El nodo {} ({}) dejó de ser el líder del clúster", nodeId, serviceName);
+		}
+	}
+
+	/**
+	 * Libera el liderazgo al detener el nodo para que otro lo tome sin esperar la expiración.
+	 */
+	@PreDestroy
+	public void resign() {
+		if (!enabled || leaderUntilMillis == 0) {
+			return;
+		}
+		leaderUntilMillis = 0;
+		try {
+			lockProvider.release(leaderKey, nodeId);
+		} catch (RuntimeException e) {
+			logger.warn("No fue posible liberar el liderazgo del clúster: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Construye el registro del arrendamiento del líder.
+	 */
+	private DistributedLockModel nuevoArrendamiento(Date inicio, Date expira) {
+		DistributedLockModel lock = new DistributedLockModel();
+		lock.setLlaveBloqueo(leaderKey);
+		lock.setProcesoBloqueo(nodeId);
+		lock.setFechaInicioBloqueo(inicio);
+		lock.setFechaExpiraBloqueo(expira);
+		lock.setUsuarioModificador(defaultUser);
+		lock.setNombreServicio(serviceName);
+		return lock;
+	}
+}
@@ -0,0 +1,308 @@
+package com.kucw.servicios;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.kucw.presentacion.repositorios.DistributedPermitJdbcRepository;
+import com.kucw.presentacion.repositorios.DistributedSharedLockJdbcRepository;
+import com.kucw.presentacion.repositorios.LockTicketJdbcRepository;
+
+/**
+ * Servicio que renueva periódicamente los bloqueos que mantiene este nodo.
+ *
+ * Permite configurar un lock.timeout.seconds corto (3 a 5 segundos) sin perder la exclusividad
+ * en las operaciones largas: mientras la acción que posee el bloqueo siga en ejecución, cada
+ * ciclo extiende la expiración de todos los bloqueos registrados en una sola sentencia. Si el
+ * nodo cae, las renovaciones se detienen y otro nodo puede tomar el bloqueo en cuanto expira.
+ *
+ * LockManagerService registra cada bloqueo adquirido y lo retira al liberarlo, por lo que la
+ * renovación se detiene en cuanto termina la acción propietaria. Un bloqueo que el motor no
+ * renueva (expiró y otro proceso lo tomó, o se liberó de forma forzada) deja de renovarse, se
+ * retira su reserva local y queda marcado como perdido hasta que su propietario lo libera; el
+ * propietario lo consulta con isLost antes de confirmar su resultado. Los lectores de bloqueos
+ * compartidos y los permisos de semáforos se renuevan en el mismo ciclo con una sentencia
+ * propia sobre su tabla. El turno de cola del propietario de un bloqueo (ver LockQueue) se
+ * renueva en el mismo ciclo que su bloqueo y solo si éste se renovó, para que no expire
+ * mientras la acción sigue en ejecución.
+ */
+@Service
+public class LeaseRenewalService {
+
+	private static final Logger logger = LoggerFactory.getLogger(LeaseRenewalService.class);
+
+	/** Máximo de pares llave/proceso por sentencia (límite de elementos en una lista IN de Oracle). */
+	private static final int MAXIMO_POR_SENTENCIA = 500;
+
+	/** Motor de bloqueos configurado (lock.engine); renueva los bloqueos exclusivos. */
+	@Autowired
+	private LockProvider lockProvider;
+
+	@Autowired
+	private DistributedSharedLockJdbcRepository sharedLockJdbcRepository;
+
+	@Autowired
+	private DistributedPermitJdbcRepository permitJdbcRepository;
+
+	@Autowired
+	private LockTicketJdbcRepository ticketJdbcRepository;
+
+	@Autowired
+	private LocalLockRegistry localLocks;
+
+	/** Tiempo de expiración de los bloqueos en segundos; cada renovación lo vuelve a otorgar completo. */
+	@Value("${lock.timeout.seconds:30}")
+	private int lockTimeoutSeconds;
+
+	/** Bloqueos vigentes de este nodo: llave y proceso propietario. */
+	private final ConcurrentMap<String, String> bloqueosRenovables = new ConcurrentHashMap<>();
+
+	/** Bloqueos de este nodo que dejaron de pertenecer a su proceso antes de que éste los liberara. */
+	private final Set<Map.Entry<String, String>> bloqueosPerdidos = ConcurrentHashMap.newKeySet();
+
+	/** Turnos de cola de los bloqueos vigentes de este nodo, por llave y proceso propietario. */
+	private final ConcurrentMap<Map.Entry<String, String>, Long> turnosRenovables = new ConcurrentHashMap<>();
+
+	/** Lectores vigentes de este nodo: varios procesos pueden compartir la misma llave. */
+	private final Set<Map.Entry<String, String>> lectoresRenovables = ConcurrentHashMap.newKeySet();
+
+	/** Permisos de semáforo vigentes de este nodo: varios procesos pueden compartir la misma llave. */
+	private final Set<Map.Entry<String, String>> permisosRenovables = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Registra un bloqueo adquirido para que sea renovado en cada ciclo.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @param processId  identificador del proceso propietario
+	 */
+	public void register(String resourceId, String processId) {
+		bloqueosRenovables.put(resourceId, processId);
+	}
+
+	/**
+	 * Retira un bloqueo de la renovación. Debe invocarse antes de liberarlo.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @param processId  identificador del proceso propietario
+	 */
+	public void unregister(String resourceId, String processId) {
+		bloqueosRenovables.remove(resourceId, processId);
+		bloqueosPerdidos.remove(new AbstractMap.SimpleImmutableEntry<>(resourceId, processId));
+	}
+
+	/**
+	 * Retira un bloqueo de la renovación y lo marca como perdido para su propietario. Lo invoca
+	 * la liberación forzada; solo marca los bloqueos que se renuevan en este nodo, y la marca se
+	 * retira cuando el propietario lo libera (unregister).
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @param processId  identificador del proceso propietario
+	 */
+	public void revoke(String resourceId, String processId) {
+		perder(resourceId, processId);
+	}
+
+	/**
+	 * Indica si el bloqueo dejó de pertenecer al proceso mientras éste lo mantenía.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @param processId  identificador del proceso propietario
+	 * @return true si la renovación lo encontró en manos de otro proceso o si se liberó de forma forzada
+	 */
+	public boolean isLost(String resourceId, String processId) {
+		return bloqueosPerdidos.contains(new AbstractMap.SimpleImmutableEntry<>(resourceId, processId));
+	}
+
+	/**
+	 * Registra el turno de cola del propietario de un bloqueo para que se renueve junto con éste.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @param processId  identificador del proceso propietario
+	 * @param ticketId   identificador del turno
+	 */
+	public void registerTicket(String resourceId, String processId, long ticketId) {
+		turnosRenovables.put(new AbstractMap.SimpleImmutableEntry<>(resourceId, processId), ticketId);
+	}
+
+	/**
+	 * Retira el turno de cola de un bloqueo de la renovación. Debe invocarse antes de eliminarlo.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @param processId  identificador del proceso propietario
+	 */
+	public void unregisterTicket(String resourceId, String processId) {
+		turnosRenovables.remove(new AbstractMap.SimpleImmutableEntry<>(resourceId, processId));
+	}
+
+	/**
+	 * Registra un lector de un bloqueo compartido para que sea renovado en cada ciclo.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @param processId  identificador del proceso lector
+	 */
+	public void registerShared(String resourceId, String processId) {
+		lectoresRenovables.add(new AbstractMap.SimpleImmutableEntry<>(resourceId, processId));
+	}
+
+	/**
+	 * Retira a un lector de la renovación. Debe invocarse antes de liberarlo.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @param processId  identificador del proceso lector
+	 */
+	public void unregisterShared(String resourceId, String processId) {
+		lectoresRenovables.remove(new AbstractMap.SimpleImmutableEntry<>(resourceId, processId));
+	}
+
+	/**
+	 * Registra un permiso de semáforo para que sea renovado en cada ciclo.
+	 *
+	 * @param key       clave del semáforo
+	 * @param processId identificador del proceso propietario del permiso
+	 */
+	public void registerPermit(String key, String processId) {
+		permisosRenovables.add(new AbstractMap.SimpleImmutableEntry<>(key, processId));
+	}
+
+	/**
+	 * Retira un permiso de la renovación. Debe invocarse antes de devolverlo.
+	 *
+	 * @param key       clave del semáforo
+	 * @param processId identificador del proceso propietario del permiso
+	 */
+	public void unregisterPermit(String key, String processId) {
+		permisosRenovables.remove(new AbstractMap.SimpleImmutableEntry<>(key, processId));
+	}
+
+	/**
+	 * Número de bloqueos que se renuevan actualmente.
+	 *
+	 * @return número de bloqueos registrados
+	 */
+	public int size() {
+		return bloqueosRenovables.size();
+	}
+
+	/**
+	 * Ciclo de renovación: extiende la expiración de todos los bloqueos registrados.
+	 *
+	 * Se ejecuta cada lock.renewal.interval.ms (1 segundo por defecto), que debe ser
+	 * claramente menor que lock.timeout.seconds.
+	 */
+	@Scheduled(fixedDelayString = "${lock.renewal.interval.ms:1000}")
+	public void renewHeldLocks() {
+		Date expira = new Date(System.currentTimeMillis() + (lockTimeoutSeconds * 1000L));
+
+		if (!bloqueosRenovables.isEmpty()) {
+			List<Map.Entry<String, String>> vigentes = new ArrayList<>(bloqueosRenovables.entrySet());
+			for (int desde = 0; desde < vigentes.size(); desde += MAXIMO_POR_SENTENCIA) {
+				List<Map.Entry<String, String>> lote = vigentes.subList(desde,
+						Math.min(vigentes.size(), desde + MAXIMO_POR_SENTENCIA));
+				Set<String> renovados = new HashSet<>();
+				try {
+					for (Object[] par : lockProvider.renew(pares(lote), expira)) {
+						renovados.add((String) par[0]);
+					}
+				} catch (Exception e) {
+					logger.error("Error al renovar bloqueos: " + e.getMessage(), e);
+					continue;
+				}
+
+				List<Long> turnos = new ArrayList<>();
+				for (Map.Entry<String, String> bloqueo : lote) {
+					if (renovados.contains(bloqueo.getKey())) {
+						localLocks.renew(bloqueo.getKey(), bloqueo.getValue(), expira.getTime());
+						Long turno = turnosRenovables.get(bloqueo);
+						if (turno != null) {
+							turnos.add(turno);
+						}
+					} else if (perder(bloqueo.getKey(), bloqueo.getValue())) {
+						logger.warn("El bloqueo {} del proceso {} ya no le pertenece; se deja de renovar",
+								bloqueo.getKey(), bloqueo.getValue());
+					}
+				}
+				renovarTurnos(turnos, expira);
+			}
+		}
+
+		renovarTodos(lectoresRenovables, expira, sharedLockJdbcRepository::renovar, "lectores");
+		renovarTodos(permisosRenovables, expira, permitJdbcRepository::renovar, "permisos");
+	}
+
+	/**
+	 * Retira el bloqueo de la renovación y de la reserva local y lo marca como perdido, si su
+	 * propietario no lo ha liberado ya.
+	 *
+	 * @return true si el bloqueo seguía registrado
+	 */
+	private boolean perder(String resourceId, String processId) {
+		// La marca se agrega antes de retirar la renovación para que un unregister concurrente la elimine
+		Map.Entry<String, String> bloqueo = new AbstractMap.SimpleImmutableEntry<>(resourceId, processId);
+		bloqueosPerdidos.add(bloqueo);
+		if (!bloqueosRenovables.remove(resourceId, processId)) {
+			bloqueosPerdidos.remove(bloqueo);
+			return false;
+		}
+		localLocks.release(resourceId, processId);
+		return true;
+	}
+
+	/**
+	 * Renueva los turnos de cola de los bloqueos que se acaban de renovar.
+	 */
+	private void renovarTurnos(List<Long> turnos, Date expira) {
+		if (turnos.isEmpty()) {
+			return;
+		}
+		try {
+			ticketJdbcRepository.renovar(turnos, expira);
+		} catch (Exception e) {
+			logger.error("Error al renovar turnos: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Renueva por lotes los registros de un conjunto con la sentencia indicada.
+	 */
+	private void renovarTodos(Set<Map.Entry<String, String>> renovables, Date expira,
+			BiFunction<List<Object[]>, Date, Integer> renovar, String descripcion) {
+		if (renovables.isEmpty()) {
+			return;
+		}
+		List<Map.Entry<String, String>> vigentes = new ArrayList<>(renovables);
+		for (int desde = 0; desde < vigentes.size(); desde += MAXIMO_POR_SENTENCIA) {
+			List<Map.Entry<String, String>> lote = vigentes.subList(desde,
+					Math.min(vigentes.size(), desde + MAXIMO_POR_SENTENCIA));
+			try {
+				renovar.apply(pares(lote), expira);
+			} catch (Exception e) {
+				logger.error("Error al renovar " + descripcion + ": " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Convierte un lote de llave/proceso en los pares de la lista IN.
+	 */
+	private static List<Object[]> pares(List<Map.Entry<String, String>> lote) {
+		List<Object[]> pares = new ArrayList<>(lote.size());
+		for (Map.Entry<String, String> bloqueo : lote) {
+			pares.add(new Object[] { bloqueo.getKey(), bloqueo.getValue() });
+		}
+		return pares;
+	}
+}
@@ -0,0 +1,122 @@
+package com.kucw.servicios;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Registro en memoria de los bloqueos que mantiene este nodo.
+ *
+ * Funciona como un primer nivel delante del bloqueo en base de datos: una petición duplicada
+ * que llega al mismo nodo mientras la original sigue en proceso se rechaza aquí, sin consultar
+ * la base de datos. La exclusión entre nodos sigue dependiendo del registro en la tabla de bloqueos.
+ *
+ * Cada reserva local conserva la misma fecha de expiración que el bloqueo en base de datos, de modo
+ * que una reserva cuyo plazo venció puede ser tomada igual que se toma un bloqueo expirado en la tabla.
+ * El registro se apoya en un ConcurrentHashMap, por lo que las operaciones sobre llaves distintas
+ * no compiten entre sí.
+ */
+@Component
+public class LocalLockRegistry {
+
+	/** Llave del recurso bloqueado en este nodo y reserva vigente. */
+	private final ConcurrentMap<String, Reserva> bloqueosLocales = new ConcurrentHashMap<>();
+
+	/**
+	 * Reserva la llave para el proceso indicado si ningún otro proceso de este nodo la mantiene
+	 * o si la reserva existente ya expiró.
+	 *
+	 * @param resourceId clave del recurso
+	 * @param processId  identificador del proceso
+	 * @param expiraMillis instante de expiración de la reserva en milisegundos
+	 * @return true si la llave quedó reservada para el proceso, false si la llave ya está reservada en este nodo
+	 */
+	public boolean tryAcquire(String resourceId, String processId, long expiraMillis) {
+		Reserva nueva = new Reserva(processId, expiraMillis, System.nanoTime());
+		Reserva actual = bloqueosLocales.putIfAbsent(resourceId, nueva);
+		if (actual == null) {
+			return true;
+		}
+		// Una reserva vencida se toma en sitio, igual que el bloqueo expirado en la tabla
+		return actual.expiraMillis <= System.currentTimeMillis() && bloqueosLocales.replace(resourceId, actual, nueva);
+	}
+
+	/**
+	 * Libera la llave únicamente si pertenece al proceso indicado.
+	 *
+	 * @param resourceId clave del recurso
+	 * @param processId  identificador del proceso propietario
+	 * @return true si la llave fue liberada
+	 */
+	public boolean release(String resourceId, String processId) {
+		Reserva actual = bloqueosLocales.get(resourceId);
+		return actual != null && actual.processId.equals(processId) && bloqueosLocales.remove(resourceId, actual);
+	}
+
+	/**
+	 * Extiende la expiración de la reserva si sigue perteneciendo al proceso indicado.
+	 *
+	 * @param resourceId   clave del recurso
+	 * @param processId    identificador del proceso propietario
+	 * @param expiraMillis nuevo instante de expiración en milisegundos
+	 * @return true si la reserva fue renovada
+	 */
+	public boolean renew(String resourceId, String processId, long expiraMillis) {
+		Reserva actual = bloqueosLocales.get(resourceId);
+		return actual != null && actual.processId.equals(processId)
+				&& bloqueosLocales.replace(resourceId, actual, new Reserva(processId, expiraMillis, actual.adquiridaNanos));
+	}
+
+	/**
+	 * Tiempo que el proceso lleva reservando la llave, para medir la retención de los bloqueos.
+	 *
+	 * @param resourceId clave del recurso
+	 * @param processId  identificador del proceso propietario
+	 * @return nanosegundos desde la reserva, o -1 si el proceso no mantiene la llave
+	 */
+	public long heldNanos(String resourceId, String processId) {
+		Reserva actual = bloqueosLocales.get(resourceId);
+		return actual != null && actual.processId.equals(processId) ? System.nanoTime() - actual.adquiridaNanos : -1;
+	}
+
+	/**
+	 * Indica si algún proceso de este nodo mantiene una reserva vigente sobre la llave.
+	 *
+	 * @param resourceId clave del recurso
+	 * @return true si la llave está reservada localmente
+	 */
+	public boolean isHeld(String resourceId) {
+		Reserva actual = bloqueosLocales.get(resourceId);
+		return actual != null && actual.expiraMillis > System.currentTimeMillis();
+	}
+
+	/**
+	 * Número de llaves reservadas actualmente en este nodo.
+	 *
+	 * @return número de bloqueos locales
+	 */
+	public int size() {
+		return bloqueosLocales.size();
+	}
+
+	/**
+	 * Reserva local: proceso propietario, expiración y momento de la reserva. La igualdad es por identidad para que
+	 * replace/remove solo afecten a la reserva observada.
+	 */
+	private static final class Reserva {
+
+		private final String processId;
+
+		private final long expiraMillis;
+
+		/** Momento de la reserva (System.nanoTime); se conserva al renovarla. */
+		private final long adquiridaNanos;
+
+		private Reserva(String processId, long expiraMillis, long adquiridaNanos) {
+			this.processId = processId;
+			this.expiraMillis = expiraMillis;
+			this.adquiridaNanos = adquiridaNanos;
+		}
+	}
+}
@@ -0,0 +1,299 @@
+package com.kucw.servicios;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Service;
+
+import com.kucw.presentacion.modelos.DistributedLockPageModel;
+import com.kucw.presentacion.modelos.DistributedLockSummaryModel;
+import com.kucw.presentacion.repositorios.LockInspectionJdbcRepository;
+import com.kucw.presentacion.repositorios.LockShardRouter;
+
+/**
+ * Servicio de inspección y liberación forzada de bloqueos para los endpoints administrativos.
+ *
+ * Solo está disponible con los motores que guardan los bloqueos en la base de datos (jpa y jdbc);
+ * los motores memory y file no tienen una tabla que consultar.
+ *
+ * Las consultas recorren todas las particiones de LockShardRouter: cada partición aporta como
+ * máximo una página ordenada por su índice y el resultado se combina en orden de (fecha,
+ * partición, identificador). Esa terna es la posición que se devuelve para pedir la siguiente
+ * página, con el formato fechaNanos.particion.identificador (la fecha en nanosegundos conserva
+ * la precisión completa del TIMESTAMP), de modo que ninguna página depende de un OFFSET ni lee
+ * más de limite filas por partición.
+ *
+ * La liberación forzada lee primero el proceso propietario y elimina el bloqueo por llave y
+ * proceso mediante LockManagerService, igual que una liberación normal: si el bloqueo cambió de
+ * propietario entre la lectura y la eliminación no se toca, y si el propietario está en este
+ * nodo también se retira su reserva local y su renovación, se despierta a quienes esperaban y el
+ * bloqueo queda marcado como perdido para el propietario (LockManagerService.isLockLost). La
+ * eliminación forzada es síncrona aun con lock.release.mode=async, y cada operación informa solo
+ * los bloqueos que realmente eliminó.
+ */
+@Service
+@ConditionalOnExpression("'${lock.engine:jpa}' == 'jpa' or '${lock.engine:jpa}' == 'jdbc'")
+public class LockAdminService {
+
+	private static final Logger logger = LoggerFactory.getLogger(LockAdminService.class);
+
+	/** Llaves que se leen por partición en cada ronda de la liberación por proceso. */
+	private static final int LLAVES_POR_RONDA = 500;
+
+	/** Límite de rondas de la liberación por proceso, para no ciclar si las llaves no se pueden eliminar. */
+	private static final int MAXIMO_RONDAS = 20;
+
+	private static final Comparator<Fila> ORDEN = Comparator.comparingLong((Fila fila) -> fila.fecha)
+			.thenComparingInt(fila -> fila.shard).thenComparingLong(fila -> fila.bloqueo.getIdBloqueoDistribuido());
+
+	@Autowired
+	private LockInspectionJdbcRepository inspectionRepository;
+
+	@Autowired
+	private LockShardRouter shardRouter;
+
+	@Autowired
+	private LockManagerService lockManagerService;
+
+	/**
+	 * Tamaño de página cuando la consulta no indica uno. Se configura mediante la propiedad
+	 * lock.admin.page.size con un valor predeterminado de 100.
+	 */
+	@Value("${lock.admin.page.size:100}")
+	private int pageSize;
+
+	/**
+	 * Tamaño máximo de página que se acepta. Se configura mediante la propiedad
+	 * lock.admin.page.max con un valor predeterminado de 500.
+	 */
+	@Value("${lock.admin.page.max:500}")
+	private int pageMax;
+
+	/**
+	 * Lista los bloqueos vigentes de un servicio, del más antiguo al más reciente.
+	 *
+	 * @param servicio           nombre del servicio que adquirió los bloqueos
+	 * @param edadMinimaSegundos solo bloqueos adquiridos hace al menos estos segundos (0 para todos)
+	 * @param desde              posición devuelta por la página anterior, o null para la primera
+	 * @param limite             tamaño de página, o null para el predeterminado
+	 * @return página de bloqueos
+	 */
+	public DistributedLockPageModel listByService(String servicio, long edadMinimaSegundos, String desde,
+			Integer limite) {
+		if (edadMinimaSegundos < 0) {
+			throw new IllegalArgumentException("edadMinimaSegundos no puede ser negativa: " + edadMinimaSegundos);
+		}
+		Posicion posicion = Posicion.leer(desde);
+		int tamano = tamanoPagina(limite);
+		Date ahora = new Date();
+		Date hasta = new Date(ahora.getTime() - edadMinimaSegundos * 1000L);
+
+		List<Fila> filas = new ArrayList<>();
+		boolean completa = false;
+		for (int shard = 0; shard < shardRouter.shards(); shard++) {
+			List<DistributedLockSummaryModel> parcial = inspectionRepository.porServicio(shard, servicio, hasta, ahora,
+					posicion.fecha, posicion.desdeId(shard), tamano);
+			for (DistributedLockSummaryModel bloqueo : parcial) {
+				filas.add(new Fila(shard, nanos(bloqueo.getFechaInicioBloqueo()), bloqueo));
+			}
+			completa |= parcial.size() == tamano;
+		}
+		return pagina(filas, completa, tamano);
+	}
+
+	/**
+	 * Lista los bloqueos vigentes en los que se detectó una petición simultánea, en el orden en
+	 * que llegó la otra petición. Un bloqueo que recibe una nueva petición simultánea mientras se
+	 * recorren las páginas avanza al final del recorrido, por lo que puede aparecer dos veces pero
+	 * nunca se omite.
+	 *
+	 * @param desde  posición devuelta por la página anterior, o null para la primera
+	 * @param limite tamaño de página, o null para el predeterminado
+	 * @return página de bloqueos
+	 */
+	public DistributedLockPageModel listSimultaneous(String desde, Integer limite) {
+		Posicion posicion = Posicion.leer(desde);
+		int tamano = tamanoPagina(limite);
+		Date ahora = new Date();
+
+		List<Fila> filas = new ArrayList<>();
+		boolean completa = false;
+		for (int shard = 0; shard < shardRouter.shards(); shard++) {
+			List<DistributedLockSummaryModel> parcial = inspectionRepository.simultaneos(shard, ahora, posicion.fecha,
+					posicion.desdeId(shard), tamano);
+			for (DistributedLockSummaryModel bloqueo : parcial) {
+				filas.add(new Fila(shard, nanos(bloqueo.getFechaLlegoOtraPeticion()), bloqueo));
+			}
+			completa |= parcial.size() == tamano;
+		}
+		return pagina(filas, completa, tamano);
+	}
+
+	/**
+	 * Libera el bloqueo de una llave sin importar qué proceso lo mantiene.
+	 *
+	 * @param llave clave del bloqueo
+	 * @return el bloqueo liberado, o null si la llave no tenía registro
+	 * @throws IllegalStateException si el bloqueo cambió de propietario o se liberó entre la
+	 *                               lectura y la eliminación, por lo que no se eliminó nada
+	 */
+	public DistributedLockSummaryModel forceRelease(String llave) {
+		DistributedLockSummaryModel bloqueo = inspectionRepository.porLlave(llave);
+		if (bloqueo == null) {
+			return null;
+		}
+		logger.warn("Liberación forzada del bloqueo {} del proceso {} (servicio {}, adquirido {})", llave,
+				bloqueo.getProcesoBloqueo(), bloqueo.getNombreServicio(), bloqueo.getFechaInicioBloqueo());
+		if (!lockManagerService.revokeLock(llave, bloqueo.getProcesoBloqueo())) {
+			throw new IllegalStateException(StringUtils.join("El bloqueo ", llave,
+					" cambió de propietario o se liberó antes de eliminarlo; no se eliminó"));
+		}
+		return bloqueo;
+	}
+
+	/**
+	 * Libera todos los bloqueos que mantiene un proceso.
+	 *
+	 * @param proceso identificador del proceso propietario
+	 * @return número de bloqueos eliminados
+	 */
+	public int forceReleaseProcess(String proceso) {
+		int liberadas = 0;
+		// Una llave que no se pudo eliminar no se vuelve a intentar en las rondas siguientes
+		Set<String> revocadas = new HashSet<>();
+		for (int ronda = 0; ronda < MAXIMO_RONDAS; ronda++) {
+			List<String> llaves = new ArrayList<>();
+			for (int shard = 0; shard < shardRouter.shards(); shard++) {
+				for (String llave : inspectionRepository.llavesDeProceso(shard, proceso, LLAVES_POR_RONDA)) {
+					if (revocadas.add(llave)) {
+						llaves.add(llave);
+					}
+				}
+			}
+			if (llaves.isEmpty()) {
+				break;
+			}
+			int eliminadas = lockManagerService.revokeLocks(llaves, proceso);
+			logger.warn("Liberación forzada de {} de {} bloqueos del proceso {}", eliminadas, llaves.size(), proceso);
+			liberadas += eliminadas;
+		}
+		return liberadas;
+	}
+
+	private int tamanoPagina(Integer limite) {
+		if (limite == null) {
+			return Math.min(pageSize, pageMax);
+		}
+		if (limite < 1 || limite > pageMax) {
+			throw new IllegalArgumentException("limite debe estar entre 1 y " + pageMax + ": " + limite);
+		}
+		return limite;
+	}
+
+	/**
+	 * Fecha en nanosegundos desde la época, con la precisión completa si la fecha es un TIMESTAMP.
+	 */
+	private static long nanos(Date fecha) {
+		long segundos = Math.floorDiv(fecha.getTime(), 1000L);
+		long fraccion = fecha instanceof Timestamp ? ((Timestamp) fecha).getNanos()
+				: Math.floorMod(fecha.getTime(), 1000L) * 1_000_000L;
+		return segundos * 1_000_000_000L + fraccion;
+	}
+
+	/**
+	 * Combina las páginas de las particiones y conserva las primeras en el orden global.
+	 */
+	private static DistributedLockPageModel pagina(List<Fila> filas, boolean completa, int tamano) {
+		filas.sort(ORDEN);
+		List<DistributedLockSummaryModel> bloqueos = new ArrayList<>(Math.min(filas.size(), tamano));
+		for (int i = 0; i < filas.size() && i < tamano; i++) {
+			bloqueos.add(filas.get(i).bloqueo);
+		}
+		// Puede haber más páginas si se descartaron filas o alguna partición llenó su página
+		String siguiente = null;
+		if (!bloqueos.isEmpty() && (filas.size() > tamano || completa)) {
+			Fila ultima = filas.get(bloqueos.size() - 1);
+			siguiente = ultima.fecha + "." + ultima.shard + "." + ultima.bloqueo.getIdBloqueoDistribuido();
+		}
+		return new DistributedLockPageModel(bloqueos, siguiente);
+	}
+
+	/**
+	 * Bloqueo leído de una partición junto con su fecha de ordenamiento.
+	 */
+	private static final class Fila {
+
+		private final int shard;
+
+		private final long fecha;
+
+		private final DistributedLockSummaryModel bloqueo;
+
+		private Fila(int shard, long fecha, DistributedLockSummaryModel bloqueo) {
+			this.shard = shard;
+			this.fecha = fecha;
+			this.bloqueo = bloqueo;
+		}
+	}
+
+	/**
+	 * Última posición leída: fecha, partición e identificador.
+	 */
+	private static final class Posicion {
+
+		private static final Posicion INICIO = new Posicion(new Timestamp(0), -1, -1);
+
+		private final Timestamp fecha;
+
+		private final int shard;
+
+		private final long id;
+
+		private Posicion(Timestamp fecha, int shard, long id) {
+			this.fecha = fecha;
+			this.shard = shard;
+			this.id = id;
+		}
+
+		private static Posicion leer(String desde) {
+			if (desde == null || desde.isEmpty()) {
+				return INICIO;
+			}
+			String[] partes = desde.split("\\.");
+			try {
+				if (partes.length == 3) {
+					long nanos = Long.parseLong(partes[0]);
+					Timestamp fecha = new Timestamp(Math.floorDiv(nanos, 1_000_000_000L) * 1000L);
+					fecha.setNanos((int) Math.floorMod(nanos, 1_000_000_000L));
+					return new Posicion(fecha, Integer.parseInt(partes[1]), Long.parseLong(partes[2]));
+				}
+			} catch (NumberFormatException e) {
+				// Se reporta abajo como posición inválida
+			}
+			throw new IllegalArgumentException("Posición de página inválida: " + desde);
+		}
+
+		/**
+		 * Identificador desde el cual continuar en la partición cuando la fecha coincide con la
+		 * de la posición: las particiones anteriores ya entregaron esa fecha completa y las
+		 * posteriores aún no entregan ninguna fila de ella.
+		 */
+		private long desdeId(int particion) {
+			if (particion < shard) {
+				return Long.MAX_VALUE;
+			}
+			return particion == shard ? id : -1;
+		}
+	}
+}
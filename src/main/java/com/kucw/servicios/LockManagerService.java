@@ -1,18 +1,23 @@
 package com.kucw.servicios;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
-import java.util.Optional;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataAccessException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
 
-import com.kucw.presentacion.entidades.DistributedLock;
-import com.kucw.presentacion.repositorios.DistributedLockRepository;
+import com.kucw.presentacion.modelos.DistributedLockModel;
+import com.kucw.presentacion.repositorios.DistributedSharedLockJdbcRepository;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +32,10 @@ import org.slf4j.LoggerFactory;
  * 
  * El servicio implementa operaciones para:
  * - Adquirir bloqueos con un tiempo de expiración configurable
+ * - Renovar los bloqueos mantenidos mientras la acción propietaria sigue en ejecución
+ * - Esperar la liberación de un bloqueo con un plazo máximo
+ * - Adquirir y liberar varios bloqueos como una sola operación, en orden canónico
+ * - Adquirir bloqueos compartidos (lectores) y exclusivos (escritores) sobre la misma llave
  * - Liberar bloqueos de forma segura
  * - Limpiar automáticamente bloqueos expirados
  * - Identificar el servicio y usuario que realiza las operaciones
@@ -41,12 +50,133 @@ public class LockManagerService {
 	private static final Logger logger = LoggerFactory.getLogger(LockManagerService.class);
 
 	/**
-	 * Repositorio para acceder a la entidad DistributedLock en la base de datos.
-	 * Este componente proporciona las operaciones CRUD y consultas personalizadas
-	 * necesarias para implementar el mecanismo de bloqueo.
+	 * Motor de almacenamiento de bloqueos seleccionado mediante la propiedad lock.engine
+	 * (jpa, jdbc, memory o file).
 	 */
 	@Autowired
-	private DistributedLockRepository lockRepository;
+	private LockProvider lockProvider;
+
+	/**
+	 * Registro en memoria de las llaves que mantiene este nodo. Evita que las peticiones
+	 * duplicadas que llegan al mismo nodo consulten la base de datos.
+	 */
+	@Autowired
+	private LocalLockRegistry localLocks;
+
+	/**
+	 * Indica si se utiliza el registro local de bloqueos delante de la base de datos.
+	 * Se configura mediante la propiedad lock.local.enabled con un valor predeterminado de true.
+	 */
+	@Value("${lock.local.enabled:true}")
+	private boolean localLockEnabled;
+
+	/**
+	 * Servicio que extiende periódicamente la expiración de los bloqueos mantenidos por este nodo.
+	 */
+	@Autowired
+	private LeaseRenewalService leaseRenewal;
+
+	/**
+	 * Indica si los bloqueos adquiridos se renuevan mientras la acción propietaria sigue en ejecución.
+	 * Se configura mediante la propiedad lock.renewal.enabled con un valor predeterminado de true.
+	 */
+	@Value("${lock.renewal.enabled:true}")
+	private boolean renewalEnabled;
+
+	/**
+	 * Cola de espera local que despierta a los procesos de este nodo cuando se libera una llave.
+	 */
+	@Autowired
+	private LockReleaseNotifier releaseNotifier;
+
+	/**
+	 * Liberación asíncrona por lotes (lock.release.mode=async). Con lock.release.mode=sync
+	 * (predeterminado) no encola nada y las liberaciones se hacen en el hilo que las solicita.
+	 */
+	@Autowired
+	private LockReleaseWriter releaseWriter;
+
+	/**
+	 * Auditoría del contenido de las peticiones; el bloqueo no guarda el contenido en su fila.
+	 */
+	@Autowired
+	private RequestAuditWriter requestAudit;
+
+	/**
+	 * Registro diferido de peticiones simultáneas; también recibe los duplicados que rechaza el
+	 * registro local, que no llegan al motor de bloqueos.
+	 */
+	@Autowired
+	private SimultaneousRequestRecorder simultaneas;
+
+	/**
+	 * Repositorio de los lectores de bloqueos compartidos (una fila por lector).
+	 */
+	@Autowired
+	private DistributedSharedLockJdbcRepository sharedLockRepository;
+
+	/**
+	 * Depuración por lotes de los bloqueos, lectores y permisos expirados.
+	 */
+	@Autowired
+	private ExpiredRowsPurger purger;
+
+	/**
+	 * Métricas de adquisición, liberación y retención de los bloqueos.
+	 */
+	@Autowired
+	private LockMetrics lockMetrics;
+
+	/**
+	 * Elección del líder del clúster; sólo el líder ejecuta la limpieza de bloqueos expirados.
+	 */
+	@Autowired
+	private LeaderElectionService leaderElection;
+
+	/**
+	 * Intervalo mínimo en milisegundos entre limpiezas, usado mientras se encuentran registros
+	 * expirados. Se configura mediante la propiedad lock.cleanup.min.interval.ms con un valor
+	 * predeterminado de 5000.
+	 */
+	@Value("${lock.cleanup.min.interval.ms:5000}")
+	private long cleanupMinIntervalMs;
+
+	/**
+	 * Intervalo máximo en milisegundos entre limpiezas, alcanzado cuando no hay registros expirados.
+	 * Se configura mediante la propiedad lock.cleanup.interval.ms con un valor predeterminado de 300000.
+	 */
+	@Value("${lock.cleanup.interval.ms:300000}")
+	private long cleanupMaxIntervalMs;
+
+	/** Intervalo actual de limpieza; se ajusta según los registros encontrados en cada ejecución. */
+	private volatile long cleanupIntervalMs;
+
+	/** Momento (System.currentTimeMillis) a partir del cual corresponde la siguiente limpieza. */
+	private volatile long nextCleanupMillis;
+
+	/**
+	 * Política de los bloqueos de lectura/escritura. Con true (predeterminado) el escritor conserva
+	 * su registro mientras espera a que salgan los lectores, por lo que los nuevos lectores quedan
+	 * detenidos y el escritor no sufre inanición. Con false el escritor cede su registro y reintenta
+	 * mientras haya lectores, dando preferencia a la lectura.
+	 * Se configura mediante la propiedad lock.rw.writer.preference.
+	 */
+	@Value("${lock.rw.writer.preference:true}")
+	private boolean writerPreference;
+
+	/**
+	 * Pausa inicial en milisegundos entre reintentos cuando el bloqueo lo mantiene otro nodo.
+	 * Se configura mediante la propiedad lock.wait.backoff.initial.ms con un valor predeterminado de 25.
+	 */
+	@Value("${lock.wait.backoff.initial.ms:25}")
+	private long backoffInitialMs;
+
+	/**
+	 * Pausa máxima en milisegundos entre reintentos cuando el bloqueo lo mantiene otro nodo.
+	 * Se configura mediante la propiedad lock.wait.backoff.max.ms con un valor predeterminado de 400.
+	 */
+	@Value("${lock.wait.backoff.max.ms:400}")
+	private long backoffMaxMs;
 
 	/**
 	 * Tiempo de expiración de los bloqueos en segundos.
@@ -78,106 +208,543 @@ public class LockManagerService {
 	/**
 	 * Intenta adquirir un bloqueo distribuido para un recurso específico.
 	 * 
-	 * Este método implementa el siguiente algoritmo para garantizar la exclusión mutua:
-	 * 1. Limpia los bloqueos expirados para evitar deadlocks
-	 * 2. Intenta crear un nuevo bloqueo con un tiempo de expiración
+	 * Antes de consultar la base de datos, la llave se reserva en el registro local del nodo
+	 * (LocalLockRegistry, si lock.local.enabled=true): una petición duplicada que llega al mismo
+	 * nodo mientras la original sigue en proceso se rechaza sin viajar a la base de datos. La
+	 * llegada se anota en SimultaneousRequestRecorder, que la registra en el bloqueo en su
+	 * siguiente ciclo, igual que las rechazadas por el motor.
 	 * 
-	 * La operación se ejecuta con aislamiento SERIALIZABLE para garantizar
-	 * la consistencia en entornos altamente concurrentes. Esto evita condiciones
-	 * de carrera donde múltiples procesos podrían adquirir el mismo bloqueo
-	 * simultáneamente.
+	 * Para las llaves que este nodo no mantiene, el método construye el registro del bloqueo
+	 * (fechas de inicio y expiración, usuario y servicio) y delega la adquisición al motor
+	 * configurado mediante la propiedad lock.engine:
+	 * - jpa (predeterminado): toma en sitio el bloqueo expirado de la misma llave o inserta la
+	 *   entidad en una transacción SERIALIZABLE, detectando la contención por violación de unicidad
+	 * - jdbc: resuelve la adquisición, la toma de un bloqueo expirado o el conflicto en una
+	 *   sola sentencia MERGE condicional, decidiendo por el número de filas afectadas
 	 * 
 	 * @param resourceId Identificador único del recurso que se desea bloquear.
 	 *                   Debe ser consistente en todas las instancias de la aplicación.
 	 * @param processId  Identificador único del proceso que solicita el bloqueo.
 	 *                   Típicamente un UUID generado para cada operación.
 	 * @param requestJson Contenido JSON de la petición que se está procesando.
-	 *                   Este valor se guardará en el campo request cuando se detecte
-	 *                   una petición simultánea.
+	 *                   No se guarda en el bloqueo: se registra en la auditoría de peticiones
+	 *                   (RequestAuditWriter) cuando el recurso está ocupado o cuando la
+	 *                   petición resulta seleccionada por el muestreo (lock.audit.sample.rate).
 	 * @return true si el bloqueo fue adquirido exitosamente, false si el recurso
 	 *         ya está bloqueado por otro proceso o si ocurrió un error al intentar
 	 *         adquirir el bloqueo.
 	 */
-	@Transactional(isolation = Isolation.SERIALIZABLE)
 	public boolean acquireLock(String resourceId, String processId, String requestJson) {
+		return acquireLock(resourceId, processId, contenido(requestJson));
+	}
+
+	/**
+	 * Intenta adquirir un bloqueo distribuido para un recurso específico, recibiendo el contenido
+	 * de la petición tal como llegó (UTF-8). Evita decodificar el cuerpo en cada petición: la
+	 * auditoría lo registra en bytes y solo cuando corresponde.
+	 * 
+	 * @param resourceId Identificador único del recurso que se desea bloquear.
+	 * @param processId  Identificador único del proceso que solicita el bloqueo.
+	 * @param request    Contenido de la petición en UTF-8, o null para no auditarla.
+	 * @return true si el bloqueo fue adquirido exitosamente, false si el recurso
+	 *         ya está bloqueado por otro proceso o si ocurrió un error.
+	 */
+	public boolean acquireLock(String resourceId, String processId, byte[] request) {
+		long inicio = System.nanoTime();
 		// Obtenemos la fecha y hora actual para registrar cuándo se adquiere el bloqueo
 		Date now = new Date();
 		// Calculamos la fecha y hora de expiración sumando el tiempo de timeout configurado
 		Date expiryTime = new Date(now.getTime() + (lockTimeoutSeconds * 1000));
 
-		// Limpiamos los bloqueos expirados antes de intentar adquirir uno nuevo
-		// Esto evita acumulación de registros obsoletos y mejora el rendimiento
-		lockRepository.cleanExpiredLocks(now);
+		// Si otro proceso de este nodo ya mantiene la llave, rechazamos sin consultar la base de datos
+		if (localLockEnabled && !localLocks.tryAcquire(resourceId, processId, expiryTime.getTime())) {
+			simultaneas.record(resourceId, now.getTime());
+			lockMetrics.recordAcquire(System.nanoTime() - inicio, false);
+			requestAudit.contended(resourceId, processId, serviceName, request);
+			return false;
+		}
+
+		DistributedLockModel lock = nuevoBloqueo(resourceId, processId, now, expiryTime);
 
+		boolean adquirido = false;
 		try {
-			// Creamos un nuevo objeto de bloqueo con los datos necesarios
-			DistributedLock lock = new DistributedLock();
-			lock.setLlaveBloqueo(resourceId);      // Identificador del recurso bloqueado
-			lock.setProcesoBloqueo(processId);     // Identificador del proceso que adquiere el bloqueo
-			lock.setFechaInicioBloqueo(now);       // Momento en que se adquiere el bloqueo
-			lock.setFechaExpiraBloqueo(expiryTime); // Momento en que expirará el bloqueo
-			lock.setUsuarioModificador(defaultUser); // Usuario que realiza la operación
-			lock.setNombreServicio(serviceName);    // Servicio que adquiere el bloqueo
-			lock.setPeticionSimultanea("FALSE");      // Por defecto, no es una petición simultánea
-			lock.setRequest(requestJson);           // Guardamos el JSON de la petición
-
-			// Guardamos el bloqueo en la base de datos
-			// Esta operación fallará con DataIntegrityViolationException si otro proceso
-			// ya ha creado un bloqueo con el mismo resourceId (debido a la restricción de unicidad)
-			lockRepository.save(lock);
-			return true; // Bloqueo adquirido exitosamente
-		} catch (DataIntegrityViolationException e) {
-			// Si se produce una violación de integridad, significa que ya existe un bloqueo para este recurso
-			try {
-				// Actualizamos el bloqueo existente para marcar que se detectó una petición simultánea
-				lockRepository.updateLockWithSimultaneousRequest(resourceId);
-			} catch (Exception updateEx) {
-				// Si falla la actualización, simplemente lo registramos pero continuamos con el proceso
-				logger.error("Error al actualizar el bloqueo con petición simultánea: " + updateEx.getMessage(), updateEx);
+			// Si este nodo liberó la llave y su eliminación sigue en cola, la completamos aquí
+			releaseWriter.settle(resourceId);
+			adquirido = lockProvider.acquire(lock);
+			// Mientras el bloqueo siga registrado, su expiración se extiende en cada ciclo de renovación
+			if (adquirido && renewalEnabled) {
+				leaseRenewal.register(resourceId, processId);
 			}
-			return false; // No se pudo adquirir el bloqueo
-		} catch (Exception e) {
-			// Capturamos cualquier otra excepción que pueda ocurrir durante el proceso
-			// Esto nos permite manejar casos no previstos sin interrumpir la ejecución
-			// En un entorno de producción, sería recomendable registrar esta excepción en logs
-			return false; // No se pudo adquirir el bloqueo debido a un error inesperado
+			auditar(resourceId, processId, request, adquirido);
+			return adquirido;
+		} catch (RuntimeException e) {
+			lockMetrics.acquireError();
+			throw e;
+		} finally {
+			// Si la base de datos no concedió el bloqueo (otro nodo lo mantiene), liberamos la reserva local
+			if (localLockEnabled && !adquirido) {
+				localLocks.release(resourceId, processId);
+			}
+			lockMetrics.recordAcquire(System.nanoTime() - inicio, adquirido);
 		}
 	}
 	
 	/**
 	 * Intenta adquirir un bloqueo distribuido para un recurso específico.
-	 * Sobrecarga del método acquireLock que no requiere el parámetro requestJson.
+	 * Sobrecarga del método acquireLock que no requiere el parámetro requestJson; la petición
+	 * no se registra en la auditoría.
 	 * 
 	 * @param resourceId Identificador único del recurso que se desea bloquear.
 	 * @param processId  Identificador único del proceso que solicita el bloqueo.
 	 * @return true si el bloqueo fue adquirido exitosamente, false si el recurso
 	 *         ya está bloqueado por otro proceso o si ocurrió un error.
 	 */
-	@Transactional(isolation = Isolation.SERIALIZABLE)
 	public boolean acquireLock(String resourceId, String processId) {
-		return acquireLock(resourceId, processId, resourceId);
+		return acquireLock(resourceId, processId, (byte[]) null);
+	}
+
+	/**
+	 * Intenta adquirir los bloqueos de varios recursos como una sola operación.
+	 * 
+	 * Las llaves se ordenan de forma canónica (orden natural de String, sin duplicados) para que
+	 * dos flujos que bloquean el mismo conjunto en distinto orden no puedan interbloquearse.
+	 * Primero se reservan en el registro local y después se registran en la base de datos en un
+	 * solo viaje (lote JDBC o una transacción, según lock.engine). Si alguna llave está ocupada
+	 * se liberan todas y el método devuelve false.
+	 * 
+	 * @param resourceIds Identificadores de los recursos que se desean bloquear.
+	 * @param processId   Identificador único del proceso; es el propietario de todos los bloqueos.
+	 * @param requestJson Contenido JSON de la petición que se está procesando.
+	 * @return true si se adquirieron todos los bloqueos, false si alguno estaba ocupado
+	 */
+	public boolean acquireLocks(Collection<String> resourceIds, String processId, String requestJson) {
+		List<String> llaves = new ArrayList<>(new TreeSet<>(resourceIds));
+		if (llaves.isEmpty()) {
+			return true;
+		}
+		long inicio = System.nanoTime();
+
+		Date now = new Date();
+		Date expiryTime = new Date(now.getTime() + (lockTimeoutSeconds * 1000));
+
+		// Reservamos las llaves localmente en orden; si alguna está ocupada en este nodo, deshacemos
+		int reservadas = 0;
+		if (localLockEnabled) {
+			for (String llave : llaves) {
+				if (!localLocks.tryAcquire(llave, processId, expiryTime.getTime())) {
+					break;
+				}
+				reservadas++;
+			}
+			if (reservadas < llaves.size()) {
+				for (String llave : llaves.subList(0, reservadas)) {
+					localLocks.release(llave, processId);
+				}
+				// La llegada se registra sobre la llave que mantiene otro proceso de este nodo
+				simultaneas.record(llaves.get(reservadas), now.getTime());
+				lockMetrics.recordAcquire(System.nanoTime() - inicio, false);
+				requestAudit.contended(llaves.get(0), processId, serviceName, contenido(requestJson));
+				return false;
+			}
+		}
+
+		List<DistributedLockModel> bloqueos = new ArrayList<>(llaves.size());
+		for (String llave : llaves) {
+			bloqueos.add(nuevoBloqueo(llave, processId, now, expiryTime));
+		}
+
+		boolean adquiridos = false;
+		try {
+			for (String llave : llaves) {
+				releaseWriter.settle(llave);
+			}
+			adquiridos = lockProvider.acquireAll(bloqueos);
+			if (adquiridos && renewalEnabled) {
+				for (String llave : llaves) {
+					leaseRenewal.register(llave, processId);
+				}
+			}
+			// La petición se audita una sola vez, bajo la primera llave en orden canónico
+			auditar(llaves.get(0), processId, contenido(requestJson), adquiridos);
+			return adquiridos;
+		} catch (RuntimeException e) {
+			lockMetrics.acquireError();
+			throw e;
+		} finally {
+			if (localLockEnabled && !adquiridos) {
+				for (String llave : llaves) {
+					localLocks.release(llave, processId);
+				}
+			}
+			lockMetrics.recordAcquire(System.nanoTime() - inicio, adquiridos);
+		}
+	}
+
+	/**
+	 * Intenta adquirir los bloqueos de varios recursos esperando hasta el tiempo indicado.
+	 * 
+	 * Cada intento es atómico (ver acquireLocks). Entre intentos se espera la liberación local
+	 * de la primera llave que mantenga este nodo o, si ninguna es local, se aplica el retroceso
+	 * exponencial de waitPauseMillis.
+	 * 
+	 * @param resourceIds   Identificadores de los recursos que se desean bloquear.
+	 * @param processId     Identificador único del proceso propietario.
+	 * @param requestJson   Contenido JSON de la petición que se está procesando.
+	 * @param timeoutMillis Tiempo máximo total de espera en milisegundos.
+	 * @return true si se adquirieron todos los bloqueos antes de que venciera el plazo
+	 * @throws InterruptedException si el hilo es interrumpido mientras espera
+	 */
+	public boolean tryLocks(Collection<String> resourceIds, String processId, String requestJson, long timeoutMillis)
+			throws InterruptedException {
+		List<String> llaves = new ArrayList<>(new TreeSet<>(resourceIds));
+		long plazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		for (int intento = 0;; intento++) {
+			// Nos registramos en la cola local de todas las llaves antes del intento
+			List<LockReleaseNotifier.Espera> esperas = new ArrayList<>(llaves.size());
+			for (String llave : llaves) {
+				esperas.add(releaseNotifier.prepare(llave));
+			}
+			try {
+				if (acquireLocks(llaves, processId, requestJson)) {
+					return true;
+				}
+
+				long restante = TimeUnit.NANOSECONDS.toMillis(plazo - System.nanoTime());
+				if (restante <= 0) {
+					return false;
+				}
+
+				int ocupada = 0;
+				while (ocupada < llaves.size() - 1 && !(localLockEnabled && localLocks.isHeld(llaves.get(ocupada)))) {
+					ocupada++;
+				}
+				releaseNotifier.await(esperas.get(ocupada), waitPauseMillis(llaves.get(ocupada), intento, restante));
+			} finally {
+				for (int i = 0; i < llaves.size(); i++) {
+					releaseNotifier.done(llaves.get(i), esperas.get(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Intenta adquirir un bloqueo esperando hasta el tiempo indicado si el recurso está ocupado.
+	 * 
+	 * La espera combina dos mecanismos:
+	 * - Si el bloqueo lo mantiene un proceso de este nodo, se espera en la cola local
+	 *   (LockReleaseNotifier) y el proceso despierta en cuanto el propietario lo libera.
+	 * - Si lo mantiene otro nodo, se reintenta con retroceso exponencial con variación aleatoria
+	 *   (lock.wait.backoff.initial.ms hasta lock.wait.backoff.max.ms), lo que también evita que
+	 *   varios procesos reintenten al mismo tiempo contra la base de datos.
+	 * 
+	 * @param resourceId    Identificador único del recurso que se desea bloquear.
+	 * @param processId     Identificador único del proceso que solicita el bloqueo.
+	 * @param requestJson   Contenido JSON de la petición que se está procesando.
+	 * @param timeoutMillis Tiempo máximo total de espera en milisegundos.
+	 * @return true si el bloqueo fue adquirido antes de que venciera el plazo
+	 * @throws InterruptedException si el hilo es interrumpido mientras espera
+	 */
+	public boolean tryLock(String resourceId, String processId, String requestJson, long timeoutMillis)
+			throws InterruptedException {
+		long plazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		for (int intento = 0;; intento++) {
+			// Nos registramos en la cola local antes del intento para no perder una liberación intermedia
+			LockReleaseNotifier.Espera espera = releaseNotifier.prepare(resourceId);
+			try {
+				if (acquireLock(resourceId, processId, requestJson)) {
+					return true;
+				}
+
+				long restante = TimeUnit.NANOSECONDS.toMillis(plazo - System.nanoTime());
+				if (restante <= 0) {
+					return false;
+				}
+
+				releaseNotifier.await(espera, waitPauseMillis(resourceId, intento, restante));
+			} finally {
+				releaseNotifier.done(resourceId, espera);
+			}
+		}
+	}
+
+	/**
+	 * Intenta adquirir un bloqueo compartido (de lectura) sobre un recurso.
+	 * 
+	 * Varios procesos pueden mantener a la vez el bloqueo compartido de la misma llave; cada uno
+	 * registra su propia fila en TB_NSAR_BLOQUEO_COMPARTIDO, por lo que los lectores no compiten
+	 * por una fila común. El bloqueo se niega mientras la llave tenga un escritor vigente, es
+	 * decir, un registro exclusivo en TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS.
+	 * 
+	 * El lector se registra con una inserción condicional y después vuelve a comprobar que no
+	 * exista un escritor; el escritor, a la inversa, registra su bloqueo y después cuenta los
+	 * lectores (ver acquireExclusiveLock). Como cada lado escribe antes de leer, al menos uno de
+	 * los dos ve al otro y cede, aunque ambos lleguen al mismo tiempo desde nodos distintos.
+	 * Como los escritores se buscan en la tabla de bloqueos, requiere lock.engine=jpa o jdbc.
+	 * 
+	 * @param resourceId Identificador único del recurso que se desea bloquear.
+	 * @param processId  Identificador único del proceso lector.
+	 * @return true si el bloqueo compartido fue adquirido, false si existe un escritor
+	 *         o si ocurrió un error.
+	 */
+	public boolean acquireSharedLock(String resourceId, String processId) {
+		// Si un escritor de este nodo mantiene la llave, rechazamos sin consultar la base de datos
+		if (localLockEnabled && localLocks.isHeld(resourceId)) {
+			return false;
+		}
+
+		Date now = new Date();
+		Date expiryTime = new Date(now.getTime() + (lockTimeoutSeconds * 1000));
+		try {
+			releaseWriter.settle(resourceId);
+			if (sharedLockRepository.unirLector(resourceId, processId, now, expiryTime, serviceName) == 0) {
+				return false;
+			}
+			// Un escritor pudo registrarse mientras insertábamos; en ese caso cedemos
+			if (sharedLockRepository.existeEscritor(resourceId, new Date())) {
+				sharedLockRepository.salirLector(resourceId, processId);
+				return false;
+			}
+		} catch (DataAccessException e) {
+			logger.error("Error al adquirir el bloqueo compartido {}", resourceId, e);
+			return false;
+		}
+
+		if (renewalEnabled) {
+			leaseRenewal.registerShared(resourceId, processId);
+		}
+		return true;
+	}
+
+	/**
+	 * Intenta adquirir un bloqueo compartido esperando hasta el tiempo indicado mientras la
+	 * llave tenga un escritor. La espera sigue las mismas reglas que tryLock.
+	 * 
+	 * @param resourceId    Identificador único del recurso que se desea bloquear.
+	 * @param processId     Identificador único del proceso lector.
+	 * @param timeoutMillis Tiempo máximo total de espera en milisegundos.
+	 * @return true si el bloqueo compartido fue adquirido antes de que venciera el plazo
+	 * @throws InterruptedException si el hilo es interrumpido mientras espera
+	 */
+	public boolean tryLockShared(String resourceId, String processId, long timeoutMillis) throws InterruptedException {
+		long plazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		for (int intento = 0;; intento++) {
+			LockReleaseNotifier.Espera espera = releaseNotifier.prepare(resourceId);
+			try {
+				if (acquireSharedLock(resourceId, processId)) {
+					return true;
+				}
+
+				long restante = TimeUnit.NANOSECONDS.toMillis(plazo - System.nanoTime());
+				if (restante <= 0) {
+					return false;
+				}
+
+				releaseNotifier.await(espera, waitPauseMillis(resourceId, intento, restante));
+			} finally {
+				releaseNotifier.done(resourceId, espera);
+			}
+		}
+	}
+
+	/**
+	 * Libera un bloqueo compartido adquirido con acquireSharedLock.
+	 * 
+	 * @param resourceId Identificador único del recurso
+	 * @param processId  Identificador del proceso lector
+	 */
+	public void releaseSharedLock(String resourceId, String processId) {
+		leaseRenewal.unregisterShared(resourceId, processId);
+		try {
+			sharedLockRepository.salirLector(resourceId, processId);
+		} finally {
+			// Despertamos a los escritores de este nodo que esperan la salida de los lectores
+			releaseNotifier.signalRelease(resourceId);
+		}
+	}
+
+	/**
+	 * Intenta adquirir un bloqueo exclusivo (de escritura) sobre un recurso que también se
+	 * bloquea en modo compartido, esperando hasta el tiempo indicado.
+	 * 
+	 * Primero se adquiere el registro exclusivo de la llave (ver tryLock), lo que impide la entrada
+	 * de nuevos lectores; después se espera a que salgan los lectores vigentes. Según la propiedad
+	 * lock.rw.writer.preference, el escritor conserva su registro durante la espera (preferencia de
+	 * escritura) o lo cede y reintenta mientras queden lectores (preferencia de lectura).
+	 * 
+	 * El bloqueo se libera con releaseLock. Las llaves que se bloquean en modo compartido deben
+	 * adquirirse en modo exclusivo solo mediante este método, ya que acquireLock no espera a los lectores.
+	 * 
+	 * @param resourceId    Identificador único del recurso que se desea bloquear.
+	 * @param processId     Identificador único del proceso escritor.
+	 * @param requestJson   Contenido JSON de la petición que se está procesando.
+	 * @param timeoutMillis Tiempo máximo total de espera en milisegundos.
+	 * @return true si el bloqueo exclusivo fue adquirido y no quedan lectores antes del plazo
+	 * @throws InterruptedException si el hilo es interrumpido mientras espera
+	 */
+	public boolean acquireExclusiveLock(String resourceId, String processId, String requestJson, long timeoutMillis)
+			throws InterruptedException {
+		long plazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		for (int intento = 0;; intento++) {
+			if (!tryLock(resourceId, processId, requestJson,
+					Math.max(0, TimeUnit.NANOSECONDS.toMillis(plazo - System.nanoTime())))) {
+				return false;
+			}
+
+			boolean sinLectores = false;
+			try {
+				for (int espera = 0;; espera++) {
+					// Nos registramos en la cola local antes de contar para no perder la salida de un lector
+					LockReleaseNotifier.Espera salida = releaseNotifier.prepare(resourceId);
+					try {
+						if (sharedLockRepository.contarLectores(resourceId, new Date()) == 0) {
+							sinLectores = true;
+							return true;
+						}
+
+						long restante = TimeUnit.NANOSECONDS.toMillis(plazo - System.nanoTime());
+						if (restante <= 0 || !writerPreference) {
+							break;
+						}
+						// Los lectores de este nodo avisan al salir; los de otros nodos se detectan por retroceso
+						releaseNotifier.await(salida, backoffMillis(espera, restante));
+					} finally {
+						releaseNotifier.done(resourceId, salida);
+					}
+				}
+			} catch (DataAccessException e) {
+				logger.error("Error al consultar los lectores del bloqueo {}", resourceId, e);
+				return false;
+			} finally {
+				if (!sinLectores) {
+					releaseLock(resourceId, processId);
+				}
+			}
+
+			// Preferencia de lectura: cedemos el registro y reintentamos después de una pausa
+			long restante = TimeUnit.NANOSECONDS.toMillis(plazo - System.nanoTime());
+			if (restante <= 0) {
+				return false;
+			}
+			TimeUnit.MILLISECONDS.sleep(backoffMillis(intento, restante));
+		}
+	}
+
+	/**
+	 * Calcula cuánto esperar antes del siguiente intento de adquisición.
+	 * 
+	 * Si el propietario está en este nodo se espera todo el plazo restante, porque la
+	 * liberación despierta al proceso a través de LockReleaseNotifier. Si está en otro nodo
+	 * se aplica retroceso exponencial con variación aleatoria (entre la mitad y el total del
+	 * retroceso del intento), acotado por lock.wait.backoff.max.ms y por el plazo restante.
+	 * 
+	 * @param resourceId Identificador del recurso ocupado
+	 * @param intento    Número de intentos fallidos previos, empezando en cero
+	 * @param restante   Plazo restante en milisegundos
+	 * @return pausa en milisegundos antes del siguiente intento
+	 */
+	public long waitPauseMillis(String resourceId, int intento, long restante) {
+		if (localLockEnabled && localLocks.isHeld(resourceId)) {
+			return restante;
+		}
+		return backoffMillis(intento, restante);
+	}
+
+	/**
+	 * Retroceso exponencial con variación aleatoria, acotado por lock.wait.backoff.max.ms
+	 * y por el plazo restante. Se utiliza cuando la liberación no puede notificarse localmente.
+	 * 
+	 * @param intento  Número de intentos fallidos previos, empezando en cero
+	 * @param restante Plazo restante en milisegundos
+	 * @return pausa en milisegundos antes del siguiente intento
+	 */
+	public long backoffMillis(int intento, long restante) {
+		long retroceso = Math.min(backoffMaxMs, backoffInitialMs << Math.min(intento, 20));
+		long pausa = (retroceso / 2) + ThreadLocalRandom.current().nextLong((retroceso / 2) + 1);
+		return Math.min(pausa, restante);
+	}
+
+	/**
+	 * Consulta si un recurso tiene un bloqueo vigente sin intentar adquirirlo.
+	 * 
+	 * Si un proceso de este nodo mantiene la llave se responde sin consultar el motor;
+	 * en otro caso la consulta la resuelve el motor configurado (lock.engine).
+	 * 
+	 * @param resourceId Identificador único del recurso
+	 * @return true si el recurso está bloqueado
+	 */
+	public boolean isLocked(String resourceId) {
+		if (localLockEnabled && localLocks.isHeld(resourceId)) {
+			return true;
+		}
+		// Una liberación en cola de este nodo ya dejó la llave libre aunque el registro siga en la tabla
+		if (releaseWriter.isPending(resourceId)) {
+			return false;
+		}
+		return lockProvider.isLocked(resourceId);
 	}
 
 	/**
 	 * Tarea programada que elimina periódicamente los bloqueos expirados de la base de datos.
 	 * 
-	 * Este método se ejecuta automáticamente a intervalos regulares definidos por la
-	 * propiedad lock.cleanup.interval.ms (valor predeterminado: 300000 ms = 5 minutos).
-	 * Su propósito es mantener limpia la tabla de bloqueos, eliminando aquellos que
-	 * han superado su tiempo de expiración y ya no son válidos.
+	 * La tarea se revisa cada lock.cleanup.min.interval.ms (valor predeterminado: 5000 ms) pero
+	 * la limpieza sólo se ejecuta cuando vence el intervalo actual, que se adapta al volumen:
+	 * si la ejecución eliminó registros el intervalo vuelve al mínimo, y si no encontró ninguno
+	 * se duplica hasta lock.cleanup.interval.ms (valor predeterminado: 300000 ms = 5 minutos).
 	 * 
 	 * La limpieza periódica es crucial para:
 	 * - Evitar la acumulación de registros obsoletos en la base de datos
 	 * - Liberar recursos que podrían haber quedado bloqueados por fallos en la aplicación
 	 * - Mejorar el rendimiento general del sistema de bloqueos
 	 * 
-	 * Este método es transaccional para garantizar la consistencia de la operación.
+	 * El método no es transaccional: la eliminación se hace por lotes acotados, cada uno en su
+	 * propia transacción corta (ver ExpiredRowsPurger), para no detener la inserción de bloqueos.
+	 * La eliminación de los bloqueos exclusivos la realiza el motor configurado (lock.engine).
+	 * 
+	 * Sólo el nodo líder del clúster ejecuta la limpieza (ver LeaderElectionService), por lo que
+	 * la carga sobre la base de datos no crece al agregar nodos.
 	 */
-	@Scheduled(fixedRateString = "${lock.cleanup.interval.ms:300000}")
-	@Transactional
+	@Scheduled(fixedDelayString = "${lock.cleanup.min.interval.ms:5000}")
 	public void cleanupExpiredLocks() {
-		// Eliminamos todos los bloqueos cuya fecha de expiración es anterior a la fecha actual
-		lockRepository.cleanExpiredLocks(new Date());
+		if (!leaderElection.isLeader() || System.currentTimeMillis() < nextCleanupMillis) {
+			return;
+		}
+
+		// Eliminamos los bloqueos cuya fecha de expiración es anterior a la fecha actual
+		Date now = new Date();
+		int purged = lockProvider.cleanupExpired(now);
+		// Los lectores de bloqueos compartidos y los permisos que dejaron de renovarse también expiran
+		purged += purger.purge("TB_NSAR_BLOQUEO_COMPARTIDO", "ID_BLOQUEO_COMPARTIDO", "FC_EXPIRA_BLOQUEO", now);
+		purged += purger.purge("TB_NSAR_PERMISO_CONCURRENCIA", "ID_PERMISO_CONCURRENCIA", "FC_EXPIRA_PERMISO", now);
+		// Los registros de auditoría de peticiones vencen según lock.audit.retention.hours
+		purged += purger.purge("TB_NSAR_AUDITORIA_PETICION", "ID_AUDITORIA_PETICION", "FC_EXPIRA_AUDITORIA", now);
+		// Las respuestas de peticiones procesadas vencen según lock.idempotency.ttl.seconds
+		purged += purger.purge("TB_NSAR_RESPUESTA_IDEMPOTENTE", "ID_RESPUESTA_IDEMPOTENTE", "FC_EXPIRA_RESPUESTA", now);
+		// Los turnos de las colas de espera que dejó un nodo caído
+		purged += purger.purge("TB_NSAR_TURNO_BLOQUEO", "ID_TURNO_BLOQUEO", "FC_EXPIRA_TURNO", now);
+
+		long interval = cleanupIntervalMs;
+		if (purged > 0) {
+			interval = cleanupMinIntervalMs;
+			logger.info("Limpieza de bloqueos expirados: {} registros eliminados (total: {} registros en {} lotes, {} ms)",
+					purged, purger.getRowsPurged(), purger.getBatches(), purger.getTimeSpentMillis());
+		} else {
+			interval = Math.min(Math.max(interval, cleanupMinIntervalMs) * 2, cleanupMaxIntervalMs);
+		}
+		cleanupIntervalMs = interval;
+		nextCleanupMillis = System.currentTimeMillis() + interval;
+	}
+
+	/**
+	 * Intervalo actual entre limpiezas de bloqueos expirados.
+	 *
+	 * @return intervalo en milisegundos
+	 */
+	public long getCleanupIntervalMs() {
+		return cleanupIntervalMs;
 	}
 
 	/**
@@ -188,28 +755,177 @@ public class LockManagerService {
 	 * situaciones donde un proceso podría liberar accidentalmente el bloqueo
 	 * adquirido por otro.
 	 * 
-	 * El método realiza las siguientes operaciones:
-	 * 1. Busca el bloqueo asociado al recurso especificado
-	 * 2. Verifica que el processId coincida con el que adquirió el bloqueo
-	 * 3. Si coincide, elimina el bloqueo de la base de datos
+	 * La verificación del propietario y la eliminación las realiza el motor configurado
+	 * (lock.engine): el motor JPA busca la entidad y compara el proceso, mientras que el
+	 * motor JDBC elimina por llave y proceso en una sola sentencia.
 	 * 
-	 * La operación es transaccional para garantizar la atomicidad y consistencia.
+	 * Con lock.release.mode=async la eliminación se encola para LockReleaseWriter, que la envía
+	 * por lotes en su propio hilo; el método regresa sin esperar a la base de datos y la llave
+	 * queda libre de inmediato para los procesos de este nodo.
 	 * 
 	 * @param resourceId Identificador único del recurso cuyo bloqueo se desea liberar
 	 * @param processId  Identificador del proceso que intenta liberar el bloqueo.
 	 *                   Debe coincidir con el processId que adquirió originalmente el bloqueo.
 	 */
-	@Transactional
 	public void releaseLock(String resourceId, String processId) {
-		// Buscamos el bloqueo por su identificador de recurso
-		lockRepository.findByLlaveBloqueo(resourceId).ifPresent(lock -> {
-			// Verificamos que el proceso que intenta liberar el bloqueo sea el mismo que lo adquirió
-			if (lock.getProcesoBloqueo().equals(processId)) {
-				// Si coincide, eliminamos el bloqueo de la base de datos
-				lockRepository.delete(lock);
-			}
-			// Si no coincide, no hacemos nada (el bloqueo permanece)
-		});
+		// Dejamos de renovar el bloqueo antes de eliminarlo para no extender un registro que se libera
+		leaseRenewal.unregister(resourceId, processId);
+		liberar(resourceId, processId, false);
+	}
+
+	/**
+	 * Libera el bloqueo de un proceso sin su intervención (liberación forzada de LockAdminService).
+	 * 
+	 * Igual que releaseLock, pero si el propietario está en este nodo su bloqueo queda marcado
+	 * como perdido (ver isLockLost) hasta que él mismo lo libere. La eliminación es siempre
+	 * síncrona, aun con lock.release.mode=async, para informar si realmente se eliminó.
+	 * 
+	 * @param resourceId Identificador único del recurso cuyo bloqueo se desea liberar
+	 * @param processId  Identificador del proceso propietario del bloqueo
+	 * @return true si se eliminó el bloqueo; false si ya no pertenecía al proceso
+	 */
+	public boolean revokeLock(String resourceId, String processId) {
+		leaseRenewal.revoke(resourceId, processId);
+		return liberar(resourceId, processId, true) > 0;
+	}
+
+	/**
+	 * Indica si el bloqueo dejó de pertenecer al proceso antes de que éste lo liberara: la
+	 * renovación lo encontró expirado y tomado por otro proceso, o se liberó de forma forzada.
+	 * Solo se detecta para los bloqueos que se renuevan (lock.renewal.enabled=true).
+	 * 
+	 * @param resourceId Identificador único del recurso bloqueado
+	 * @param processId  Identificador del proceso que adquirió el bloqueo
+	 * @return true si el proceso perdió el bloqueo
+	 */
+	public boolean isLockLost(String resourceId, String processId) {
+		return leaseRenewal.isLost(resourceId, processId);
+	}
+
+	/**
+	 * Elimina el bloqueo del proceso y su reserva local, y despierta a los procesos de este nodo
+	 * que esperaban la llave.
+	 *
+	 * @param sincrona true para eliminar en este hilo aun con lock.release.mode=async
+	 * @return número de bloqueos eliminados; 0 si la eliminación quedó en cola
+	 */
+	private int liberar(String resourceId, String processId, boolean sincrona) {
+		long inicio = System.nanoTime();
+		try {
+			// En modo asíncrono la eliminación queda en cola y la llave se marca con una lápida local
+			if (!sincrona && releaseWriter.enqueue(resourceId, processId)) {
+				return 0;
+			}
+			return lockProvider.release(resourceId, processId);
+		} finally {
+			if (localLockEnabled) {
+				registrarRetencion(resourceId, processId);
+				localLocks.release(resourceId, processId);
+			}
+			// Despertamos a los procesos de este nodo que esperaban la llave
+			releaseNotifier.signalRelease(resourceId);
+			lockMetrics.recordRelease(System.nanoTime() - inicio);
+		}
+	}
+
+	/**
+	 * Libera en una sola operación los bloqueos adquiridos con acquireLocks o tryLocks.
+	 * 
+	 * @param resourceIds Identificadores de los recursos cuyos bloqueos se desean liberar
+	 * @param processId   Identificador del proceso propietario de los bloqueos
+	 */
+	public void releaseLocks(Collection<String> resourceIds, String processId) {
+		Set<String> llaves = new TreeSet<>(resourceIds);
+		for (String llave : llaves) {
+			leaseRenewal.unregister(llave, processId);
+		}
+		liberarTodos(llaves, processId, false);
+	}
+
+	/**
+	 * Libera de forma forzada varios bloqueos de un proceso; ver revokeLock.
+	 * 
+	 * @param resourceIds Identificadores de los recursos cuyos bloqueos se desean liberar
+	 * @param processId   Identificador del proceso propietario de los bloqueos
+	 * @return número de bloqueos eliminados
+	 */
+	public int revokeLocks(Collection<String> resourceIds, String processId) {
+		Set<String> llaves = new TreeSet<>(resourceIds);
+		for (String llave : llaves) {
+			leaseRenewal.revoke(llave, processId);
+		}
+		return liberarTodos(llaves, processId, true);
+	}
+
+	/**
+	 * Elimina en una sola operación los bloqueos del proceso y sus reservas locales.
+	 *
+	 * @param sincrona true para eliminar en este hilo aun con lock.release.mode=async
+	 * @return número de bloqueos eliminados en este hilo, sin contar los que quedaron en cola
+	 */
+	private int liberarTodos(Set<String> llaves, String processId, boolean sincrona) {
+		long inicio = System.nanoTime();
+		try {
+			List<String> sincronas = new ArrayList<>();
+			for (String llave : llaves) {
+				if (sincrona || !releaseWriter.enqueue(llave, processId)) {
+					sincronas.add(llave);
+				}
+			}
+			return sincronas.isEmpty() ? 0 : lockProvider.releaseAll(sincronas, processId);
+		} finally {
+			for (String llave : llaves) {
+				if (localLockEnabled) {
+					registrarRetencion(llave, processId);
+					localLocks.release(llave, processId);
+				}
+				releaseNotifier.signalRelease(llave);
+			}
+			lockMetrics.recordRelease(System.nanoTime() - inicio);
+		}
+	}
+
+	/**
+	 * Registra el tiempo que el proceso mantuvo la llave, tomado de su reserva local.
+	 */
+	private void registrarRetencion(String resourceId, String processId) {
+		long retenido = localLocks.heldNanos(resourceId, processId);
+		if (retenido >= 0) {
+			lockMetrics.recordHeld(retenido);
+		}
+	}
+
+	/**
+	 * Entrega la petición a la auditoría: siempre si encontró el recurso ocupado y según el
+	 * muestreo si adquirió el bloqueo.
+	 */
+	private void auditar(String resourceId, String processId, byte[] request, boolean adquirido) {
+		if (adquirido) {
+			requestAudit.acquired(resourceId, processId, serviceName, request);
+		} else {
+			requestAudit.contended(resourceId, processId, serviceName, request);
+		}
+	}
+
+	/**
+	 * Contenido en UTF-8 de una petición recibida como texto.
+	 */
+	private static byte[] contenido(String requestJson) {
+		return requestJson != null ? requestJson.getBytes(StandardCharsets.UTF_8) : null;
+	}
+
+	/**
+	 * Construye el registro de un bloqueo con el usuario y servicio configurados.
+	 */
+	private DistributedLockModel nuevoBloqueo(String resourceId, String processId, Date now, Date expiryTime) {
+		DistributedLockModel lock = new DistributedLockModel();
+		lock.setLlaveBloqueo(resourceId);       // Identificador del recurso bloqueado
+		lock.setProcesoBloqueo(processId);      // Identificador del proceso que adquiere el bloqueo
+		lock.setFechaInicioBloqueo(now);        // Momento en que se adquiere el bloqueo
+		lock.setFechaExpiraBloqueo(expiryTime); // Momento en que expirará el bloqueo
+		lock.setUsuarioModificador(defaultUser); // Usuario que realiza la operación
+		lock.setNombreServicio(serviceName);    // Servicio que adquiere el bloqueo
+		return lock;
 	}
 
 	/**
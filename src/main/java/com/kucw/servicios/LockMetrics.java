@@ -0,0 +1,133 @@
+package com.kucw.servicios;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Métricas del sistema de bloqueos, expuestas por Micrometer en /actuator/prometheus.
+ *
+ * Todos los medidores se registran al arrancar y se conservan en campos, de modo que registrar
+ * una medición no busca etiquetas ni crea objetos: los tiempos se toman con System.nanoTime y se
+ * registran como long. Las métricas publicadas son:
+ * - lock.acquire (histograma, etiqueta outcome=acquired|contended): latencia y número de intentos
+ *   de adquisición; los intentos rechazados por error también cuentan como contended
+ * - lock.acquire.errors: intentos en los que el motor reportó un error de base de datos
+ * - lock.expired.takeovers: bloqueos expirados tomados en sitio. Solo se registra con los motores
+ *   jpa y memory: el MERGE del motor jdbc toma o inserta en una sola sentencia y el número de
+ *   filas no distingue uno de otro, y los bloqueos del motor file no expiran
+ * - lock.release (histograma): latencia de liberación
+ * - lock.held (histograma): tiempo que se mantuvo cada bloqueo, medido con el registro local
+ * - lock.duplicate.rejections: peticiones rechazadas con 02/532 por estar duplicadas
+ * - lock.cleanup.rows, lock.cleanup.batches y lock.cleanup.time: depuración de registros expirados
+ */
+@Component
+public class LockMetrics {
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Autowired
+	private ExpiredRowsPurger purger;
+
+	/** Motor de bloqueos configurado; decide si se registra lock.expired.takeovers. */
+	@Value("${lock.engine:jpa}")
+	private String engine;
+
+	private Timer adquiridos;
+
+	private Timer contendidos;
+
+	private Timer liberaciones;
+
+	private Timer retenciones;
+
+	private Counter errores;
+
+	/** Null con los motores que no distinguen la toma de un bloqueo expirado. */
+	private Counter tomasExpiradas;
+
+	private Counter duplicados;
+
+	@PostConstruct
+	void init() {
+		adquiridos = histograma("lock.acquire", "Latencia de adquisición de bloqueos", "outcome", "acquired");
+		contendidos = histograma("lock.acquire", "Latencia de adquisición de bloqueos", "outcome", "contended");
+		liberaciones = histograma("lock.release", "Latencia de liberación de bloqueos");
+		retenciones = histograma("lock.held", "Tiempo que se mantuvo cada bloqueo");
+		errores = Counter.builder("lock.acquire.errors").description("Errores de base de datos al adquirir bloqueos")
+				.register(registry);
+		if ("jpa".equals(engine) || "memory".equals(engine)) {
+			tomasExpiradas = Counter.builder("lock.expired.takeovers")
+					.description("Bloqueos expirados tomados en sitio").register(registry);
+		}
+		duplicados = Counter.builder("lock.duplicate.rejections")
+				.description("Peticiones rechazadas con 02/532 por estar duplicadas").register(registry);
+
+		FunctionCounter.builder("lock.cleanup.rows", purger, ExpiredRowsPurger::getRowsPurged)
+				.description("Registros expirados eliminados").register(registry);
+		FunctionCounter.builder("lock.cleanup.batches", purger, ExpiredRowsPurger::getBatches)
+				.description("Lotes de depuración procesados").register(registry);
+		FunctionCounter.builder("lock.cleanup.time", purger, p -> p.getTimeSpentMillis() / 1000.0)
+				.baseUnit("seconds").description("Tiempo invertido en la depuración").register(registry);
+	}
+
+	/**
+	 * Registra un intento de adquisición.
+	 *
+	 * @param nanos     duración del intento en nanosegundos
+	 * @param adquirido true si el bloqueo fue concedido
+	 */
+	public void recordAcquire(long nanos, boolean adquirido) {
+		(adquirido ? adquiridos : contendidos).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Registra una liberación.
+	 *
+	 * @param nanos duración de la liberación en nanosegundos
+	 */
+	public void recordRelease(long nanos) {
+		liberaciones.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Registra el tiempo que se mantuvo un bloqueo.
+	 *
+	 * @param nanos tiempo entre la adquisición y la liberación en nanosegundos
+	 */
+	public void recordHeld(long nanos) {
+		retenciones.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/** Registra un error de base de datos al adquirir un bloqueo. */
+	public void acquireError() {
+		errores.increment();
+	}
+
+	/** Registra la toma en sitio de un bloqueo expirado. */
+	public void expiredTakeover() {
+		if (tomasExpiradas != null) {
+			tomasExpiradas.increment();
+		}
+	}
+
+	/** Registra una petición rechazada con 02/532 por estar duplicada. */
+	public void duplicateRejected() {
+		duplicados.increment();
+	}
+
+	private Timer histograma(String nombre, String descripcion, String... etiquetas) {
+		return Timer.builder(nombre).description(descripcion).tags(etiquetas).publishPercentileHistogram()
+				.register(registry);
+	}
+}
@@ -0,0 +1,89 @@
+package com.kucw.servicios;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import com.kucw.presentacion.modelos.DistributedLockModel;
+
+/**
+ * Motor de almacenamiento de bloqueos distribuidos utilizado por LockManagerService.
+ *
+ * Cada implementación decide dónde mantener el bloqueo y se selecciona mediante la propiedad
+ * lock.engine:
+ * - jpa (predeterminado) y jdbc: tabla TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS, para varios nodos
+ * - memory: mapa en memoria, para instalaciones de un solo nodo y pruebas
+ * - file: FileChannel.lock sobre archivos de un directorio local, para varias JVM en el mismo equipo
+ */
+public interface LockProvider {
+
+	/**
+	 * Intenta adquirir el bloqueo descrito por el modelo.
+	 *
+	 * @param bloqueo datos del bloqueo (llave, proceso, fechas de inicio y expiración, usuario y servicio)
+	 * @return true si el bloqueo fue adquirido, false si otro proceso lo mantiene o si ocurrió un error
+	 */
+	boolean acquire(DistributedLockModel bloqueo);
+
+	/**
+	 * Intenta adquirir varios bloqueos como una sola operación: o se adquieren todos o ninguno.
+	 *
+	 * @param bloqueos bloqueos a adquirir, ordenados canónicamente por llave
+	 * @return true si se adquirieron todos, false si alguna llave estaba ocupada o si ocurrió un error
+	 */
+	boolean acquireAll(List<DistributedLockModel> bloqueos);
+
+	/**
+	 * Libera el bloqueo si pertenece al proceso indicado.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @param processId  identificador del proceso propietario
+	 * @return número de bloqueos eliminados: 0 si la llave no tenía bloqueo o pertenece a otro proceso
+	 */
+	int release(String resourceId, String processId);
+
+	/**
+	 * Libera los bloqueos de las llaves indicadas que pertenecen al proceso.
+	 *
+	 * @param resourceIds claves de los bloqueos
+	 * @param processId   identificador del proceso propietario
+	 * @return número de bloqueos eliminados
+	 */
+	int releaseAll(Collection<String> resourceIds, String processId);
+
+	/**
+	 * Libera en una sola operación bloqueos de procesos distintos, cada uno únicamente si
+	 * pertenece a su proceso. Lo utiliza la liberación asíncrona (LockReleaseWriter).
+	 *
+	 * @param pares pares {llave, proceso} de los bloqueos a liberar
+	 */
+	void releaseBatch(List<Object[]> pares);
+
+	/**
+	 * Extiende la expiración de los bloqueos indicados, únicamente si siguen perteneciendo
+	 * al proceso que los adquirió.
+	 *
+	 * @param pares  pares {llave, proceso} de los bloqueos a renovar
+	 * @param expira nueva fecha de expiración
+	 * @return pares renovados, tomados de la lista recibida; los que faltan ya no pertenecen a su
+	 *         proceso (expiraron y otro los tomó, o se liberaron de forma forzada)
+	 */
+	List<Object[]> renew(List<Object[]> pares, Date expira);
+
+	/**
+	 * Consulta si la llave tiene un bloqueo vigente, sin adquirirlo.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @return true si otro proceso mantiene el bloqueo
+	 */
+	boolean isLocked(String resourceId);
+
+	/**
+	 * Elimina los bloqueos expirados. Lo invoca la tarea programada de limpieza; los motores de
+	 * tabla eliminan por lotes acotados (ver ExpiredRowsPurger).
+	 *
+	 * @param ahora fecha de referencia
+	 * @return número de bloqueos eliminados
+	 */
+	int cleanupExpired(Date ahora);
+}
@@ -0,0 +1,223 @@
+package com.kucw.servicios;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.kucw.presentacion.excepciones.ConcurrencyException;
+import com.kucw.presentacion.repositorios.LockTicketJdbcRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cola de espera por llave: los procesos que encuentran la llave ocupada adquieren el bloqueo
+ * uno tras otro, en orden de llegada, en lugar de rechazarse (ver ConcurrencyService.executeQueued).
+ *
+ * El orden lo define un turno en TB_NSAR_TURNO_BLOQUEO cuyo identificador se toma de una
+ * secuencia, por lo que es el mismo en todos los nodos. Cada proceso espera únicamente al turno
+ * inmediatamente anterior al suyo y, cuando ya no queda ninguno, adquiere el bloqueo:
+ * - si el turno anterior es de un proceso de este nodo, espera la señal que ese proceso emite al
+ *   salir de la cola, sin consultar la base de datos mientras tanto; al liberar el bloqueo solo
+ *   despierta el proceso siguiente
+ * - si es de otro nodo, vuelve a consultar con retroceso exponencial (ver
+ *   LockManagerService.backoffMillis)
+ *
+ * La cola está acotada a lock.queue.max.depth turnos vigentes por llave, contando al propietario:
+ * con la cola llena la petición se rechaza de inmediato, sin esperar. La espera de cada proceso
+ * está acotada por el plazo que indica el llamador. Los turnos expiran tras el plazo de espera
+ * más lock.timeout.seconds, por lo que los de un nodo caído no detienen la cola; el turno del
+ * propietario se renueva en el mismo ciclo que su bloqueo (ver LeaseRenewalService), por lo que
+ * no expira mientras la acción siga en ejecución.
+ */
+@Component
+public class LockQueue {
+
+	@Autowired
+	private LockTicketJdbcRepository ticketRepository;
+
+	@Autowired
+	private LockManagerService lockManager;
+
+	@Autowired
+	private LeaseRenewalService leaseRenewal;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Número máximo de turnos vigentes por llave, incluido el del propietario del bloqueo. Se
+	 * configura mediante la propiedad lock.queue.max.depth con un valor predeterminado de 20.
+	 */
+	@Value("${lock.queue.max.depth:20}")
+	private int maxDepth;
+
+	/**
+	 * Duración del bloqueo en segundos; se suma al plazo de espera para la expiración del turno.
+	 * Se configura mediante la propiedad lock.timeout.seconds con un valor predeterminado de 30.
+	 */
+	@Value("${lock.timeout.seconds:30}")
+	private int lockTimeoutSeconds;
+
+	/** Señal de salida de cada proceso de este nodo que tiene un turno, por proceso. */
+	private final ConcurrentMap<String, CompletableFuture<Void>> salidas = new ConcurrentHashMap<>();
+
+	private Counter rechazados;
+
+	private Counter vencidos;
+
+	@PostConstruct
+	void init() {
+		if (maxDepth < 1) {
+			throw new ConcurrencyException("lock.queue.max.depth debe ser mayor que 0: " + maxDepth);
+		}
+		Gauge.builder("lock.queue.waiting", salidas, ConcurrentMap::size)
+				.description("Procesos de este nodo con un turno en la cola de una llave").register(registry);
+		rechazados = Counter.builder("lock.queue.rejected")
+				.description("Peticiones rechazadas por cola de espera llena").register(registry);
+		vencidos = Counter.builder("lock.queue.timeouts")
+				.description("Esperas en cola que vencieron antes de obtener el bloqueo").register(registry);
+	}
+
+	/**
+	 * Toma un turno en la cola de la llave y espera hasta adquirir el bloqueo. Si la llave está
+	 * libre y no hay turnos anteriores, el bloqueo se adquiere sin esperar.
+	 *
+	 * @param resourceId    clave del recurso
+	 * @param processId     identificador del proceso
+	 * @param timeoutMillis tiempo máximo de espera en milisegundos
+	 * @return turno con el bloqueo adquirido, que debe entregarse a release; null si el plazo
+	 *         venció antes de obtener el bloqueo
+	 * @throws ConcurrencyException si la cola de la llave está llena
+	 * @throws InterruptedException si el hilo es interrumpido mientras espera
+	 */
+	public Turno acquire(String resourceId, String processId, long timeoutMillis) throws InterruptedException {
+		long plazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		Date ahora = new Date();
+		Date expira = new Date(ahora.getTime() + timeoutMillis + TimeUnit.SECONDS.toMillis(lockTimeoutSeconds));
+
+		// La señal se registra antes que el turno para que un sucesor de este nodo siempre la encuentre
+		CompletableFuture<Void> salida = new CompletableFuture<>();
+		salidas.put(processId, salida);
+		Long id;
+		try {
+			id = ticketRepository.tomar(resourceId, processId, ahora, expira, maxDepth);
+		} catch (RuntimeException e) {
+			salidas.remove(processId);
+			throw e;
+		}
+		if (id == null) {
+			salidas.remove(processId);
+			rechazados.increment();
+			throw new ConcurrencyException(StringUtils.join("Cola de espera llena para el recurso: ", resourceId));
+		}
+
+		Turno turno = new Turno(resourceId, processId, id, salida);
+		boolean adquirido = false;
+		try {
+			adquirido = esperarTurno(turno, plazo);
+		} finally {
+			if (!adquirido) {
+				salir(turno);
+			}
+		}
+		if (!adquirido) {
+			vencidos.increment();
+			return null;
+		}
+		leaseRenewal.registerTicket(resourceId, processId, id);
+		return turno;
+	}
+
+	/**
+	 * Libera el bloqueo y cede el turno al proceso siguiente de la cola.
+	 *
+	 * @param turno turno devuelto por acquire
+	 */
+	public void release(Turno turno) {
+		leaseRenewal.unregisterTicket(turno.resourceId, turno.processId);
+		try {
+			lockManager.releaseLock(turno.resourceId, turno.processId);
+		} finally {
+			salir(turno);
+		}
+	}
+
+	/**
+	 * Espera a que no quede un turno anterior y adquiere el bloqueo.
+	 */
+	private boolean esperarTurno(Turno turno, long plazo) throws InterruptedException {
+		for (int intento = 0;; intento++) {
+			long restante = TimeUnit.NANOSECONDS.toMillis(plazo - System.nanoTime());
+			if (restante <= 0) {
+				return false;
+			}
+
+			String anterior = ticketRepository.anterior(turno.resourceId, turno.id, new Date());
+			if (anterior == null) {
+				// Primero de la cola: el bloqueo puede seguir en poder de un proceso que no usa la cola
+				return lockManager.tryLock(turno.resourceId, turno.processId, turno.resourceId, restante);
+			}
+
+			CompletableFuture<Void> salidaAnterior = salidas.get(anterior);
+			if (salidaAnterior != null) {
+				esperar(salidaAnterior, restante);
+			} else {
+				TimeUnit.MILLISECONDS.sleep(lockManager.backoffMillis(intento, restante));
+			}
+		}
+	}
+
+	private static void esperar(CompletableFuture<Void> salida, long esperaMillis) throws InterruptedException {
+		try {
+			salida.get(esperaMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException | ExecutionException e) {
+			// Al vencer la espera se revisa el plazo; la señal solo se completa de forma normal
+		}
+	}
+
+	/**
+	 * Elimina el turno y despierta al proceso siguiente si es de este nodo.
+	 */
+	private void salir(Turno turno) {
+		try {
+			ticketRepository.eliminar(turno.id);
+		} finally {
+			salidas.remove(turno.processId, turno.salida);
+			turno.salida.complete(null);
+		}
+	}
+
+	/**
+	 * Turno de un proceso en la cola de una llave.
+	 */
+	public static final class Turno {
+
+		private final String resourceId;
+
+		private final String processId;
+
+		private final long id;
+
+		private final CompletableFuture<Void> salida;
+
+		private Turno(String resourceId, String processId, long id, CompletableFuture<Void> salida) {
+			this.resourceId = resourceId;
+			this.processId = processId;
+			this.id = id;
+			this.salida = salida;
+		}
+	}
+}
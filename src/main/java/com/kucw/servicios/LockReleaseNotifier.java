@@ -0,0 +1,123 @@
+package com.kucw.servicios;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Cola de espera local para los procesos que esperan la liberación de un bloqueo.
+ *
+ * Cuando un proceso de este nodo libera un bloqueo, todos los procesos del mismo nodo que
+ * esperaban esa llave despiertan de inmediato en lugar de esperar el siguiente reintento.
+ *
+ * El proceso que espera debe registrarse con {@link #prepare(String)} antes de intentar
+ * adquirir el bloqueo, para que una liberación que ocurra entre el intento fallido y la espera
+ * no se pierda, y debe llamar a {@link #done(String, Espera)} al terminar.
+ */
+@Component
+public class LockReleaseNotifier {
+
+	/** Espera vigente por llave; se reemplaza en cada liberación y se elimina al salir el último proceso. */
+	private final ConcurrentMap<String, Espera> esperas = new ConcurrentHashMap<>();
+
+	/**
+	 * Registra al proceso como interesado en la próxima liberación de la llave.
+	 *
+	 * @param resourceId clave del recurso
+	 * @return espera que se activará en la próxima liberación
+	 */
+	public Espera prepare(String resourceId) {
+		return esperas.compute(resourceId, (llave, actual) -> {
+			Espera espera = actual != null ? actual : new Espera();
+			espera.procesos++;
+			return espera;
+		});
+	}
+
+	/**
+	 * Espera la liberación de la llave hasta el tiempo indicado.
+	 *
+	 * @param espera       espera obtenida con prepare
+	 * @param esperaMillis tiempo máximo de espera en milisegundos
+	 * @return true si la llave fue liberada durante la espera
+	 * @throws InterruptedException si el hilo es interrumpido mientras espera
+	 */
+	public boolean await(Espera espera, long esperaMillis) throws InterruptedException {
+		try {
+			espera.liberacion.get(esperaMillis, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		} catch (ExecutionException e) {
+			// La señal solo se completa de forma normal
+			return true;
+		}
+	}
+
+	/**
+	 * Señal de liberación para esperas sin bloquear el hilo: se completa en la próxima
+	 * liberación de la llave. Se devuelve un futuro dependiente para que el llamador no
+	 * pueda completar la señal compartida.
+	 *
+	 * @param espera espera obtenida con prepare
+	 * @return futuro que se completa al liberarse la llave
+	 */
+	public CompletableFuture<Void> onRelease(Espera espera) {
+		return espera.liberacion.thenApply(senal -> senal);
+	}
+
+	/**
+	 * Retira al proceso de la espera; la entrada de la llave se elimina al salir el último.
+	 *
+	 * @param resourceId clave del recurso
+	 * @param espera     espera obtenida con prepare
+	 */
+	public void done(String resourceId, Espera espera) {
+		esperas.computeIfPresent(resourceId, (llave, actual) -> {
+			if (actual != espera) {
+				return actual;
+			}
+			return --actual.procesos == 0 ? null : actual;
+		});
+	}
+
+	/**
+	 * Despierta a todos los procesos de este nodo que esperan la llave.
+	 *
+	 * @param resourceId clave del recurso liberado
+	 */
+	public void signalRelease(String resourceId) {
+		Espera espera = esperas.remove(resourceId);
+		if (espera != null) {
+			espera.liberacion.complete(null);
+		}
+	}
+
+	/**
+	 * Número de llaves con procesos en espera.
+	 *
+	 * @return número de llaves en espera
+	 */
+	public int size() {
+		return esperas.size();
+	}
+
+	/**
+	 * Espera sobre una llave: señal de liberación y número de procesos registrados.
+	 * El contador solo se modifica dentro de las operaciones atómicas del mapa.
+	 */
+	public static final class Espera {
+
+		private final CompletableFuture<Void> liberacion = new CompletableFuture<>();
+
+		private int procesos;
+
+		private Espera() {
+		}
+	}
+}
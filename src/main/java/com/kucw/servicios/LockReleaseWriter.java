@@ -0,0 +1,240 @@
+package com.kucw.servicios;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import com.kucw.presentacion.excepciones.ConcurrencyException;
+
+/**
+ * Liberación asíncrona de bloqueos (lock.release.mode=async).
+ *
+ * LockManagerService encola la liberación y regresa de inmediato, de modo que la respuesta HTTP
+ * no espera a la base de datos. Un hilo dedicado toma las liberaciones pendientes y las envía
+ * como eliminaciones condicionales por llave y proceso en un lote JDBC por partición
+ * (LockProvider.releaseBatch): con poca carga cada liberación sale sola en cuanto llega y con
+ * mucha carga se agrupan hasta lock.release.batch.size por lote.
+ *
+ * Mientras la eliminación está pendiente la llave queda marcada con una lápida local: para los
+ * procesos de este nodo la llave está libre de inmediato. El primero que intenta adquirirla
+ * reclama la lápida y elimina el registro anterior en su propio hilo (ver settle), sin esperar
+ * al hilo de escritura. Para los demás nodos la llave se libera cuando se ejecuta el lote.
+ *
+ * Si la cola está llena (lock.release.queue.capacity) la liberación se hace de forma síncrona en
+ * el hilo que la solicita. Si un lote falla, los bloqueos se liberan al expirar, igual que si el
+ * nodo hubiera caído. Al detener el nodo se envían las liberaciones pendientes.
+ */
+@Component
+public class LockReleaseWriter {
+
+	private static final Logger logger = LoggerFactory.getLogger(LockReleaseWriter.class);
+
+	/** Marca que detiene el hilo de escritura después de enviar lo que tenga en cola. */
+	private static final Pendiente FIN = new Pendiente(null, null);
+
+	/** Motor de bloqueos configurado (lock.engine); ejecuta las eliminaciones. */
+	@Autowired
+	private LockProvider lockProvider;
+
+	@Autowired
+	private LockReleaseNotifier releaseNotifier;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Modo de liberación: sync (predeterminado) libera en el hilo que termina la acción; async
+	 * encola la liberación para el hilo de escritura. Se configura mediante la propiedad
+	 * lock.release.mode.
+	 */
+	@Value("${lock.release.mode:sync}")
+	private String mode;
+
+	/**
+	 * Máximo de liberaciones por lote. Se configura mediante la propiedad lock.release.batch.size
+	 * con un valor predeterminado de 500.
+	 */
+	@Value("${lock.release.batch.size:500}")
+	private int batchSize;
+
+	/**
+	 * Máximo de liberaciones pendientes. Se configura mediante la propiedad
+	 * lock.release.queue.capacity con un valor predeterminado de 10000.
+	 */
+	@Value("${lock.release.queue.capacity:10000}")
+	private int queueCapacity;
+
+	/** Liberaciones pendientes en orden de llegada. */
+	private BlockingQueue<Pendiente> cola;
+
+	/** Lápidas: llave liberada por este nodo cuyo registro aún no se elimina. */
+	private final ConcurrentMap<String, Pendiente> lapidas = new ConcurrentHashMap<>();
+
+	private Thread escritor;
+
+	/** Indica si las liberaciones se encolan; deja de hacerlo al detener el nodo. */
+	private volatile boolean activo;
+
+	@PostConstruct
+	void init() {
+		if (!"sync".equals(mode) && !"async".equals(mode)) {
+			throw new ConcurrencyException("lock.release.mode debe ser sync o async: " + mode);
+		}
+		if (!"async".equals(mode)) {
+			return;
+		}
+		cola = new LinkedBlockingQueue<>(queueCapacity);
+		Gauge.builder("lock.release.pending", cola, BlockingQueue::size)
+				.description("Liberaciones de bloqueos pendientes de enviar").register(registry);
+		escritor = new Thread(this::escribir, "lock-release-writer");
+		escritor.setDaemon(true);
+		activo = true;
+		escritor.start();
+	}
+
+	/**
+	 * Envía las liberaciones pendientes y detiene el hilo de escritura.
+	 */
+	@PreDestroy
+	void detener() throws InterruptedException {
+		if (!activo) {
+			return;
+		}
+		// Las liberaciones que lleguen a partir de aquí se hacen de forma síncrona
+		activo = false;
+		cola.put(FIN);
+		escritor.join(TimeUnit.SECONDS.toMillis(10));
+	}
+
+	/**
+	 * Encola la liberación del bloqueo y marca la llave con una lápida local.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @param processId  identificador del proceso propietario
+	 * @return true si la liberación quedó en cola; false si el modo es sync o la cola está llena,
+	 *         en cuyo caso el llamador debe liberar el bloqueo de forma síncrona
+	 */
+	public boolean enqueue(String resourceId, String processId) {
+		if (!activo) {
+			return false;
+		}
+		Pendiente pendiente = new Pendiente(resourceId, processId);
+		Pendiente anterior = lapidas.put(resourceId, pendiente);
+		if (anterior != null) {
+			// La llave se volvió a adquirir sin pasar por settle; su liberación ya no tiene lápida
+			lockProvider.release(anterior.llave, anterior.proceso);
+		}
+		if (!cola.offer(pendiente)) {
+			lapidas.remove(resourceId, pendiente);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Si la llave tiene una liberación pendiente, la reclama y elimina el registro anterior en
+	 * el hilo actual. Se invoca antes de adquirir la llave.
+	 *
+	 * @param resourceId clave del bloqueo
+	 */
+	public void settle(String resourceId) {
+		if (lapidas.isEmpty()) {
+			return;
+		}
+		Pendiente pendiente = lapidas.remove(resourceId);
+		if (pendiente != null) {
+			lockProvider.release(pendiente.llave, pendiente.proceso);
+		}
+	}
+
+	/**
+	 * Indica si la llave tiene una liberación pendiente de este nodo.
+	 *
+	 * @param resourceId clave del bloqueo
+	 * @return true si la llave está libre para este nodo aunque su registro aún no se elimine
+	 */
+	public boolean isPending(String resourceId) {
+		return !lapidas.isEmpty() && lapidas.containsKey(resourceId);
+	}
+
+	/**
+	 * Ciclo del hilo de escritura: espera la primera liberación y toma las que ya estén en cola.
+	 */
+	private void escribir() {
+		List<Pendiente> lote = new ArrayList<>(batchSize);
+		boolean fin = false;
+		while (!fin) {
+			try {
+				lote.add(cola.take());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			cola.drainTo(lote, batchSize - 1);
+			fin = lote.remove(FIN);
+			enviar(lote);
+			lote.clear();
+		}
+		// Liberaciones encoladas justo antes de detener el nodo
+		cola.drainTo(lote);
+		enviar(lote);
+	}
+
+	/**
+	 * Envía un lote. Solo se eliminan las llaves cuya lápida sigue vigente; las que un proceso
+	 * de este nodo ya reclamó se eliminaron en su propio hilo.
+	 */
+	private void enviar(List<Pendiente> lote) {
+		List<Object[]> pares = new ArrayList<>(lote.size());
+		for (Pendiente pendiente : lote) {
+			if (pendiente != FIN && lapidas.remove(pendiente.llave, pendiente)) {
+				pares.add(new Object[] { pendiente.llave, pendiente.proceso });
+			}
+		}
+		if (pares.isEmpty()) {
+			return;
+		}
+		try {
+			lockProvider.releaseBatch(pares);
+		} catch (RuntimeException e) {
+			logger.error("No fue posible liberar {} bloqueos; se liberarán al expirar: {}", pares.size(), e.getMessage(), e);
+		}
+		// Los procesos de este nodo que esperaban ya fueron notificados al encolar; este aviso
+		// despierta a los que reintentaron mientras la eliminación estaba en curso
+		for (Object[] par : pares) {
+			releaseNotifier.signalRelease((String) par[0]);
+		}
+	}
+
+	/**
+	 * Liberación pendiente. La igualdad es por identidad para que la lápida solo se retire
+	 * cuando corresponde a esta liberación.
+	 */
+	private static final class Pendiente {
+
+		private final String llave;
+
+		private final String proceso;
+
+		private Pendiente(String llave, String proceso) {
+			this.llave = llave;
+			this.proceso = proceso;
+		}
+	}
+}
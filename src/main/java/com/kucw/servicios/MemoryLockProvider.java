@@ -0,0 +1,126 @@
+package com.kucw.servicios;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.kucw.presentacion.modelos.DistributedLockModel;
+
+/**
+ * Motor de bloqueos en memoria (lock.engine=memory).
+ *
+ * Mantiene los bloqueos en un mapa concurrente del propio proceso, con la misma semántica de
+ * expiración y renovación que los motores de tabla. Está pensado para instalaciones de un solo
+ * nodo y para pruebas: no coordina varias instancias y los bloqueos se pierden al reiniciar.
+ */
+@Service
+@ConditionalOnProperty(name = "lock.engine", havingValue = "memory")
+public class MemoryLockProvider implements LockProvider {
+
+	@Autowired
+	private LockMetrics lockMetrics;
+
+	/** Bloqueos vigentes por llave; una entrada se reemplaza o elimina comparando por identidad. */
+	private final ConcurrentMap<String, Bloqueo> bloqueos = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean acquire(DistributedLockModel bloqueo) {
+		Bloqueo nuevo = new Bloqueo(bloqueo.getProcesoBloqueo(), bloqueo.getFechaExpiraBloqueo().getTime());
+		long ahora = bloqueo.getFechaInicioBloqueo().getTime();
+		// Se inserta si la llave está libre o si el bloqueo existente ya expiró
+		return bloqueos.merge(bloqueo.getLlaveBloqueo(), nuevo, (actual, propuesto) -> {
+			if (actual.expiraMillis > ahora) {
+				return actual;
+			}
+			lockMetrics.expiredTakeover();
+			return propuesto;
+		}) == nuevo;
+	}
+
+	/**
+	 * Adquiere las llaves en el orden recibido; si alguna está ocupada libera las que ya obtuvo.
+	 */
+	@Override
+	public boolean acquireAll(List<DistributedLockModel> bloqueosSolicitados) {
+		for (int i = 0; i < bloqueosSolicitados.size(); i++) {
+			if (!acquire(bloqueosSolicitados.get(i))) {
+				for (DistributedLockModel adquirido : bloqueosSolicitados.subList(0, i)) {
+					release(adquirido.getLlaveBloqueo(), adquirido.getProcesoBloqueo());
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int release(String resourceId, String processId) {
+		Bloqueo actual = bloqueos.get(resourceId);
+		return actual != null && actual.proceso.equals(processId) && bloqueos.remove(resourceId, actual) ? 1 : 0;
+	}
+
+	@Override
+	public int releaseAll(Collection<String> resourceIds, String processId) {
+		int eliminados = 0;
+		for (String resourceId : resourceIds) {
+			eliminados += release(resourceId, processId);
+		}
+		return eliminados;
+	}
+
+	@Override
+	public void releaseBatch(List<Object[]> pares) {
+		for (Object[] par : pares) {
+			release((String) par[0], (String) par[1]);
+		}
+	}
+
+	@Override
+	public List<Object[]> renew(List<Object[]> pares, Date expira) {
+		List<Object[]> renovados = new ArrayList<>(pares.size());
+		for (Object[] par : pares) {
+			String proceso = (String) par[1];
+			Bloqueo renovado = new Bloqueo(proceso, expira.getTime());
+			if (bloqueos.computeIfPresent((String) par[0],
+					(llave, actual) -> actual.proceso.equals(proceso) ? renovado : actual) == renovado) {
+				renovados.add(par);
+			}
+		}
+		return renovados;
+	}
+
+	@Override
+	public boolean isLocked(String resourceId) {
+		Bloqueo actual = bloqueos.get(resourceId);
+		return actual != null && actual.expiraMillis > System.currentTimeMillis();
+	}
+
+	@Override
+	public int cleanupExpired(Date ahora) {
+		int antes = bloqueos.size();
+		bloqueos.values().removeIf(bloqueo -> bloqueo.expiraMillis <= ahora.getTime());
+		return Math.max(0, antes - bloqueos.size());
+	}
+
+	/**
+	 * Propietario y expiración de un bloqueo.
+	 */
+	private static final class Bloqueo {
+
+		private final String proceso;
+
+		private final long expiraMillis;
+
+		private Bloqueo(String proceso, long expiraMillis) {
+			this.proceso = proceso;
+			this.expiraMillis = expiraMillis;
+		}
+	}
+}
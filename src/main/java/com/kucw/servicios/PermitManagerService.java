@@ -0,0 +1,155 @@
+package com.kucw.servicios;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import com.kucw.presentacion.repositorios.DistributedPermitJdbcRepository;
+
+/**
+ * Servicio que implementa un semáforo distribuido con N permisos por llave.
+ *
+ * A diferencia de LockManagerService, que permite un solo propietario por llave, este servicio
+ * permite hasta N procesos simultáneos sobre la misma llave (por ejemplo, certificaciones en curso
+ * por AFORE o peticiones hacia un sistema externo). Cada permiso es una fila numerada con su propia
+ * expiración en TB_NSAR_PERMISO_CONCURRENCIA, se renueva mientras la acción sigue en ejecución y se
+ * recupera automáticamente si el nodo propietario cae.
+ *
+ * Tanto la toma como la devolución de un permiso se resuelven en una sola sentencia condicional.
+ */
+@Service
+public class PermitManagerService {
+
+	private static final Logger logger = LoggerFactory.getLogger(PermitManagerService.class);
+
+	@Autowired
+	private DistributedPermitJdbcRepository permitRepository;
+
+	@Autowired
+	private LockManagerService lockManager;
+
+	@Autowired
+	private LeaseRenewalService leaseRenewal;
+
+	@Autowired
+	private LockReleaseNotifier releaseNotifier;
+
+	/**
+	 * Indica si los permisos se renuevan mientras la acción propietaria sigue en ejecución.
+	 * Comparte la propiedad lock.renewal.enabled con los bloqueos.
+	 */
+	@Value("${lock.renewal.enabled:true}")
+	private boolean renewalEnabled;
+
+	/**
+	 * Tiempo de expiración de los permisos en segundos; es el mismo que el de los bloqueos.
+	 */
+	@Value("${lock.timeout.seconds:30}")
+	private int lockTimeoutSeconds;
+
+	/**
+	 * Nombre del servicio que se registra en cada permiso.
+	 */
+	@Value("${application.service.name:defaultService}")
+	private String serviceName;
+
+	/**
+	 * Intenta tomar un permiso de la llave sin exceder el límite indicado.
+	 *
+	 * @param key       Identificador del semáforo (por ejemplo, la clave de la AFORE)
+	 * @param processId Identificador único del proceso que toma el permiso
+	 * @param limit     Número máximo de permisos vigentes para la llave
+	 * @return true si el permiso fue tomado, false si se alcanzó el límite o si ocurrió un error
+	 */
+	public boolean tryAcquirePermit(String key, String processId, int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("El límite de permisos debe ser mayor que cero");
+		}
+
+		Date now = new Date();
+		Date expiryTime = new Date(now.getTime() + (lockTimeoutSeconds * 1000));
+		int filas;
+		try {
+			filas = permitRepository.adquirir(key, processId, limit, now, expiryTime, serviceName);
+		} catch (DuplicateKeyException e) {
+			// Otro nodo tomó el mismo número de permiso en el mismo instante
+			filas = 0;
+		} catch (DataAccessException e) {
+			logger.error("Error al tomar un permiso de {}", key, e);
+			return false;
+		}
+
+		if (filas > 0 && renewalEnabled) {
+			leaseRenewal.registerPermit(key, processId);
+		}
+		return filas > 0;
+	}
+
+	/**
+	 * Intenta tomar un permiso esperando hasta el tiempo indicado si se alcanzó el límite.
+	 * Los procesos de este nodo despiertan en cuanto otro proceso del nodo devuelve un permiso
+	 * de la llave; los permisos de otros nodos se detectan con retroceso exponencial.
+	 *
+	 * @param key           Identificador del semáforo
+	 * @param processId     Identificador único del proceso que toma el permiso
+	 * @param limit         Número máximo de permisos vigentes para la llave
+	 * @param timeoutMillis Tiempo máximo total de espera en milisegundos
+	 * @return true si el permiso fue tomado antes de que venciera el plazo
+	 * @throws InterruptedException si el hilo es interrumpido mientras espera
+	 */
+	public boolean tryAcquirePermit(String key, String processId, int limit, long timeoutMillis)
+			throws InterruptedException {
+		long plazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		for (int intento = 0;; intento++) {
+			LockReleaseNotifier.Espera espera = releaseNotifier.prepare(key);
+			try {
+				if (tryAcquirePermit(key, processId, limit)) {
+					return true;
+				}
+
+				long restante = TimeUnit.NANOSECONDS.toMillis(plazo - System.nanoTime());
+				if (restante <= 0) {
+					return false;
+				}
+
+				releaseNotifier.await(espera, lockManager.backoffMillis(intento, restante));
+			} finally {
+				releaseNotifier.done(key, espera);
+			}
+		}
+	}
+
+	/**
+	 * Devuelve el permiso tomado por el proceso.
+	 *
+	 * @param key       Identificador del semáforo
+	 * @param processId Identificador del proceso propietario del permiso
+	 */
+	public void releasePermit(String key, String processId) {
+		leaseRenewal.unregisterPermit(key, processId);
+		try {
+			permitRepository.liberar(key, processId);
+		} finally {
+			// Despertamos a los procesos de este nodo que esperaban un permiso de la llave
+			releaseNotifier.signalRelease(key);
+		}
+	}
+
+	/**
+	 * Número de permisos vigentes de la llave en todos los nodos.
+	 *
+	 * @param key Identificador del semáforo
+	 * @return número de permisos vigentes
+	 */
+	public int activePermits(String key) {
+		return permitRepository.contarVigentes(key, new Date());
+	}
+}
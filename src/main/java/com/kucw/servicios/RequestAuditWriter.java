@@ -0,0 +1,227 @@
+package com.kucw.servicios;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import com.kucw.presentacion.excepciones.ConcurrencyException;
+import com.kucw.presentacion.repositorios.RequestAuditJdbcRepository;
+
+/**
+ * Auditoría del contenido de las peticiones en TB_NSAR_AUDITORIA_PETICION.
+ *
+ * El contenido de la petición ya no se guarda en la fila del bloqueo: LockManagerService entrega
+ * aquí la petición cuando encuentra la llave ocupada (motivo SIMULTANEA) y, según
+ * lock.audit.sample.rate, una fracción de las peticiones que adquieren el bloqueo (motivo
+ * MUESTRA). Las peticiones esperan en una cola acotada y una tarea programada las comprime con
+ * GZIP y las inserta en un solo lote JDBC cada lock.audit.flush.ms, fuera del hilo de la petición.
+ *
+ * Mientras una llave tiene una petición simultánea en cola, las demás de la misma llave no se
+ * encolan: su contenido es idéntico, y el número de llegadas ya se registra en el bloqueo
+ * (ver SimultaneousRequestRecorder). Si la cola está llena la petición se descarta y se cuenta en
+ * lock.audit.dropped; la auditoría nunca detiene ni hace fallar la adquisición.
+ */
+@Component
+public class RequestAuditWriter {
+
+	private static final Logger logger = LoggerFactory.getLogger(RequestAuditWriter.class);
+
+	/** Motivo de los registros de peticiones que encontraron el bloqueo ocupado. */
+	public static final String MOTIVO_SIMULTANEA = "SIMULTANEA";
+
+	/** Motivo de los registros de peticiones muestreadas que adquirieron el bloqueo. */
+	public static final String MOTIVO_MUESTRA = "MUESTRA";
+
+	@Autowired
+	private RequestAuditJdbcRepository auditRepository;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Indica si se registra el contenido de las peticiones. Se configura mediante la propiedad
+	 * lock.audit.enabled con un valor predeterminado de true.
+	 */
+	@Value("${lock.audit.enabled:true}")
+	private boolean enabled;
+
+	/**
+	 * Fracción (0 a 1) de las peticiones que adquieren el bloqueo cuyo contenido se registra. Se
+	 * configura mediante la propiedad lock.audit.sample.rate con un valor predeterminado de 0.
+	 */
+	@Value("${lock.audit.sample.rate:0}")
+	private double sampleRate;
+
+	/**
+	 * Horas que se conserva cada registro. Se configura mediante la propiedad
+	 * lock.audit.retention.hours con un valor predeterminado de 72.
+	 */
+	@Value("${lock.audit.retention.hours:72}")
+	private long retentionHours;
+
+	/**
+	 * Máximo de registros en cola. Se configura mediante la propiedad lock.audit.queue.capacity
+	 * con un valor predeterminado de 10000.
+	 */
+	@Value("${lock.audit.queue.capacity:10000}")
+	private int queueCapacity;
+
+	/**
+	 * Máximo de registros por lote. Se configura mediante la propiedad lock.audit.batch.size con
+	 * un valor predeterminado de 500.
+	 */
+	@Value("${lock.audit.batch.size:500}")
+	private int batchSize;
+
+	private BlockingQueue<Registro> cola;
+
+	/** Llaves con una petición simultánea en cola. */
+	private final Set<String> simultaneasEnCola = ConcurrentHashMap.newKeySet();
+
+	private Counter descartados;
+
+	@PostConstruct
+	void init() {
+		if (sampleRate < 0 || sampleRate > 1) {
+			throw new ConcurrencyException("lock.audit.sample.rate debe estar entre 0 y 1: " + sampleRate);
+		}
+		cola = new ArrayBlockingQueue<>(queueCapacity);
+		Gauge.builder("lock.audit.pending", cola, BlockingQueue::size)
+				.description("Peticiones pendientes de registrar en la auditoría").register(registry);
+		descartados = Counter.builder("lock.audit.dropped")
+				.description("Peticiones no auditadas por cola llena").register(registry);
+	}
+
+	/**
+	 * Registra la petición que encontró el bloqueo ocupado por otro proceso.
+	 *
+	 * @param llave    clave del bloqueo
+	 * @param proceso  identificador del proceso que lo solicitó
+	 * @param servicio nombre del servicio
+	 * @param request  contenido de la petición en UTF-8; si es null no se registra
+	 */
+	public void contended(String llave, String proceso, String servicio, byte[] request) {
+		if (!enabled || request == null || !simultaneasEnCola.add(llave)) {
+			return;
+		}
+		if (!encolar(new Registro(llave, proceso, servicio, MOTIVO_SIMULTANEA, request))) {
+			simultaneasEnCola.remove(llave);
+		}
+	}
+
+	/**
+	 * Registra, según lock.audit.sample.rate, la petición que adquirió el bloqueo.
+	 *
+	 * @param llave    clave del bloqueo
+	 * @param proceso  identificador del proceso propietario
+	 * @param servicio nombre del servicio
+	 * @param request  contenido de la petición en UTF-8; si es null no se registra
+	 */
+	public void acquired(String llave, String proceso, String servicio, byte[] request) {
+		if (!enabled || request == null || sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+			return;
+		}
+		encolar(new Registro(llave, proceso, servicio, MOTIVO_MUESTRA, request));
+	}
+
+	private boolean encolar(Registro registro) {
+		if (cola.offer(registro)) {
+			return true;
+		}
+		descartados.increment();
+		return false;
+	}
+
+	/**
+	 * Comprime e inserta los registros en cola.
+	 */
+	@Scheduled(fixedDelayString = "${lock.audit.flush.ms:1000}")
+	public void flush() {
+		List<Registro> lote = new ArrayList<>(Math.min(batchSize, queueCapacity));
+		while (cola.drainTo(lote, batchSize) > 0) {
+			escribir(lote);
+			lote.clear();
+		}
+	}
+
+	@PreDestroy
+	void detener() {
+		flush();
+	}
+
+	private void escribir(List<Registro> lote) {
+		Date ahora = new Date();
+		Date expira = new Date(ahora.getTime() + retentionHours * 3_600_000L);
+		List<Object[]> registros = new ArrayList<>(lote.size());
+		for (Registro registro : lote) {
+			if (MOTIVO_SIMULTANEA.equals(registro.motivo)) {
+				simultaneasEnCola.remove(registro.llave);
+			}
+			registros.add(new Object[] { registro.llave, registro.proceso, registro.servicio, registro.motivo, ahora,
+					expira, registro.request.length, comprimir(registro.request) });
+		}
+		try {
+			auditRepository.insertarLote(registros);
+		} catch (DataAccessException e) {
+			logger.error("No fue posible registrar {} peticiones en la auditoría: {}", registros.size(), e.getMessage(), e);
+		}
+	}
+
+	private static byte[] comprimir(byte[] contenido) {
+		ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(64, contenido.length / 4));
+		try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+			gzip.write(contenido);
+		} catch (IOException e) {
+			// Un ByteArrayOutputStream no produce errores de escritura
+			throw new ConcurrencyException("Error al comprimir la petición", e);
+		}
+		return salida.toByteArray();
+	}
+
+	/**
+	 * Petición pendiente de registrar, sin comprimir.
+	 */
+	private static final class Registro {
+
+		private final String llave;
+
+		private final String proceso;
+
+		private final String servicio;
+
+		private final String motivo;
+
+		private final byte[] request;
+
+		private Registro(String llave, String proceso, String servicio, String motivo, byte[] request) {
+			this.llave = llave;
+			this.proceso = proceso;
+			this.servicio = servicio;
+			this.motivo = motivo;
+			this.request = request;
+		}
+	}
+}
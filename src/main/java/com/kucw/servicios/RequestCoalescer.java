@@ -0,0 +1,179 @@
+package com.kucw.servicios;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Agrupa las peticiones idénticas simultáneas para que compartan una sola ejecución.
+ *
+ * Con lock.coalesce.enabled=true, la primera petición de una llave en el nodo queda a cargo
+ * (join devuelve null): solicita el bloqueo, procesa y entrega su respuesta con complete. Las
+ * peticiones idénticas que llegan mientras tanto al mismo nodo no solicitan el bloqueo: esperan
+ * la respuesta de la que está a cargo (await) hasta lock.coalesce.wait.ms.
+ *
+ * Si la petición a cargo no obtiene el bloqueo porque la procesa otro nodo, consulta con pausas
+ * crecientes la respuesta que ese nodo registra en IdempotencyStore (awaitRemote) hasta que
+ * aparece, se libera el bloqueo o vence el mismo plazo; la respuesta obtenida también la reciben
+ * las peticiones que esperan en este nodo. Al vencer el plazo el llamador responde como antes,
+ * con la petición rechazada por duplicada.
+ *
+ * Métricas: lock.coalesce.inflight (llaves en ejecución), lock.coalesce.shared (respuestas
+ * compartidas, con la etiqueta origen=nodo|remoto) y lock.coalesce.timeouts (esperas vencidas).
+ */
+@Component
+public class RequestCoalescer {
+
+	@Autowired
+	private IdempotencyStore idempotencyStore;
+
+	@Autowired
+	private LockManagerService lockManagerService;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Indica si las peticiones idénticas simultáneas comparten la respuesta en lugar de
+	 * rechazarse. Se configura mediante la propiedad lock.coalesce.enabled con un valor
+	 * predeterminado de false.
+	 */
+	@Value("${lock.coalesce.enabled:false}")
+	private boolean enabled;
+
+	/**
+	 * Tiempo máximo en milisegundos que una petición espera la respuesta de otra idéntica. Se
+	 * configura mediante la propiedad lock.coalesce.wait.ms con un valor predeterminado de 5000.
+	 */
+	@Value("${lock.coalesce.wait.ms:5000}")
+	private long waitMs;
+
+	/** Ejecución en curso de cada llave; la completa la petición a cargo. */
+	private final ConcurrentMap<String, CompletableFuture<Object>> enCurso = new ConcurrentHashMap<>();
+
+	private Counter compartidasNodo;
+
+	private Counter compartidasRemoto;
+
+	private Counter vencidas;
+
+	@PostConstruct
+	void init() {
+		Gauge.builder("lock.coalesce.inflight", enCurso, ConcurrentMap::size)
+				.description("Llaves con una ejecución en curso que otras peticiones pueden compartir").register(registry);
+		compartidasNodo = Counter.builder("lock.coalesce.shared").tag("origen", "nodo")
+				.description("Respuestas compartidas con peticiones idénticas simultáneas").register(registry);
+		compartidasRemoto = Counter.builder("lock.coalesce.shared").tag("origen", "remoto")
+				.description("Respuestas compartidas con peticiones idénticas simultáneas").register(registry);
+		vencidas = Counter.builder("lock.coalesce.timeouts")
+				.description("Esperas de una respuesta compartida que vencieron").register(registry);
+	}
+
+	/**
+	 * Indica si las peticiones idénticas simultáneas comparten la respuesta.
+	 *
+	 * @return true si lock.coalesce.enabled=true
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Se une a la ejecución en curso de la llave o, si no existe, queda a cargo de ella.
+	 *
+	 * @param llave llave de la petición
+	 * @return ejecución en curso que debe esperarse con await, o null si el llamador queda a cargo
+	 *         y debe llamar a complete al terminar
+	 */
+	public CompletableFuture<Object> join(String llave) {
+		CompletableFuture<Object> nueva = new CompletableFuture<>();
+		return enCurso.putIfAbsent(llave, nueva);
+	}
+
+	/**
+	 * Entrega la respuesta de la ejecución a cargo del llamador a las peticiones que la esperan.
+	 * Debe llamarse siempre que join devolvió null, también si la ejecución falló (respuesta null).
+	 *
+	 * @param llave     llave de la petición
+	 * @param respuesta respuesta calculada, o null si no hay respuesta que compartir
+	 */
+	public void complete(String llave, Object respuesta) {
+		CompletableFuture<Object> ejecucion = enCurso.remove(llave);
+		if (ejecucion != null) {
+			ejecucion.complete(respuesta);
+		}
+	}
+
+	/**
+	 * Espera la respuesta de una ejecución en curso en este nodo, hasta lock.coalesce.wait.ms.
+	 *
+	 * @param ejecucion ejecución devuelta por join
+	 * @param tipo      clase de la respuesta
+	 * @return respuesta compartida, o null si venció el plazo o la ejecución no tuvo respuesta
+	 * @throws InterruptedException si el hilo es interrumpido mientras espera
+	 */
+	public <T> T await(CompletableFuture<Object> ejecucion, Class<T> tipo) throws InterruptedException {
+		Object respuesta;
+		try {
+			respuesta = ejecucion.get(waitMs, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			vencidas.increment();
+			return null;
+		} catch (ExecutionException e) {
+			// complete nunca completa la ejecución con una excepción
+			return null;
+		}
+		if (!tipo.isInstance(respuesta)) {
+			return null;
+		}
+		compartidasNodo.increment();
+		return tipo.cast(respuesta);
+	}
+
+	/**
+	 * Espera la respuesta de una petición idéntica que procesa otro nodo, consultando
+	 * IdempotencyStore con retroceso exponencial (ver LockManagerService.backoffMillis) hasta
+	 * lock.coalesce.wait.ms o hasta que el bloqueo de la llave se libera.
+	 *
+	 * @param llave llave de la petición
+	 * @param tipo  clase de la respuesta
+	 * @return respuesta registrada por el otro nodo, o null si no se registró dentro del plazo
+	 * @throws InterruptedException si el hilo es interrumpido mientras espera
+	 */
+	public <T> T awaitRemote(String llave, Class<T> tipo) throws InterruptedException {
+		long plazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+		for (int intento = 0;; intento++) {
+			long restante = TimeUnit.NANOSECONDS.toMillis(plazo - System.nanoTime());
+			if (restante <= 0) {
+				vencidas.increment();
+				return null;
+			}
+			TimeUnit.MILLISECONDS.sleep(lockManagerService.backoffMillis(intento, restante));
+
+			// La respuesta se registra antes de liberar el bloqueo: si ya no hay bloqueo y
+			// tampoco respuesta, el otro nodo terminó sin una respuesta que compartir
+			boolean bloqueado = lockManagerService.isLocked(llave);
+			T respuesta = idempotencyStore.find(llave, tipo);
+			if (respuesta != null) {
+				compartidasRemoto.increment();
+				return respuesta;
+			}
+			if (!bloqueado) {
+				return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package com.kucw.servicios;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Huella canónica de 128 bits del contenido JSON de una petición.
+ *
+ * Recorre los tokens del JSON una sola vez con el analizador de flujo de Jackson, sin construir
+ * objetos ni árboles, y calcula un hash no criptográfico con el mezclado de MurmurHash3 x64 128:
+ * - los espacios y saltos de línea no forman parte de ningún token, por lo que no alteran la huella
+ * - los campos de un objeto se combinan con una suma, por lo que su orden no altera la huella
+ * - los elementos de un arreglo se combinan en orden
+ * - cadenas, números, booleanos y null se distinguen por tipo ("1" y 1 producen huellas distintas);
+ *   los números se comparan por su texto (1 y 1.0 son distintos)
+ *
+ * El estado del recorrido (una pila de acumuladores por nivel de anidamiento) se conserva por hilo
+ * y se reutiliza, de modo que calcular una huella no crea objetos salvo el analizador y la cadena
+ * del resultado.
+ */
+@Component
+public class RequestFingerprinter {
+
+	private static final JsonFactory FABRICA = new JsonFactory();
+
+	private final ThreadLocal<Estado> estados = ThreadLocal.withInitial(Estado::new);
+
+	/**
+	 * Calcula la huella del contenido JSON.
+	 *
+	 * @param datos    contenido en UTF-8
+	 * @param desde    posición del primer byte
+	 * @param longitud número de bytes
+	 * @return huella de 32 caracteres hexadecimales
+	 * @throws IOException si el contenido no es un JSON válido
+	 */
+	public String fingerprint(byte[] datos, int desde, int longitud) throws IOException {
+		Estado estado = estados.get();
+		estado.reiniciar();
+		try (JsonParser parser = FABRICA.createParser(datos, desde, longitud)) {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				switch (token) {
+				case START_OBJECT:
+					estado.abrir(Estado.OBJETO);
+					break;
+				case START_ARRAY:
+					estado.abrir(Estado.ARREGLO);
+					break;
+				case END_OBJECT:
+				case END_ARRAY:
+					estado.cerrar();
+					break;
+				case FIELD_NAME:
+					estado.campo(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+					break;
+				case VALUE_STRING:
+					estado.texto(Estado.SEMILLA_CADENA, parser.getTextCharacters(), parser.getTextOffset(),
+							parser.getTextLength());
+					break;
+				case VALUE_NUMBER_INT:
+				case VALUE_NUMBER_FLOAT:
+					estado.texto(Estado.SEMILLA_NUMERO, parser.getTextCharacters(), parser.getTextOffset(),
+							parser.getTextLength());
+					break;
+				case VALUE_TRUE:
+					estado.constante(Estado.VERDADERO);
+					break;
+				case VALUE_FALSE:
+					estado.constante(Estado.FALSO);
+					break;
+				case VALUE_NULL:
+					estado.constante(Estado.NULO);
+					break;
+				default:
+					// VALUE_EMBEDDED_OBJECT y NOT_AVAILABLE no se producen al leer texto JSON
+					break;
+				}
+			}
+		}
+		return estado.resultado();
+	}
+
+	/**
+	 * Estado del recorrido de un hilo: pila de acumuladores y registros de trabajo del hash.
+	 */
+	private static final class Estado {
+
+		private static final int OBJETO = 1;
+
+		private static final int ARREGLO = 2;
+
+		private static final long C1 = 0x87c37b91114253d5L;
+
+		private static final long C2 = 0x4cf5ad432745937fL;
+
+		private static final long SEMILLA_CAMPO = 0x9e3779b97f4a7c15L;
+
+		private static final long SEMILLA_CADENA = 0xc2b2ae3d27d4eb4fL;
+
+		private static final long SEMILLA_NUMERO = 0x165667b19e3779f9L;
+
+		private static final long VERDADERO = 0x27d4eb2f165667c5L;
+
+		private static final long FALSO = 0x85ebca77c2b2ae63L;
+
+		private static final long NULO = 0xff51afd7ed558ccdL;
+
+		private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+		/** Registros de trabajo del hash. */
+		private long h1;
+
+		private long h2;
+
+		/** Nivel actual; el nivel 0 es un arreglo implícito con los valores de primer nivel. */
+		private int nivel;
+
+		private int[] tipos = new int[16];
+
+		private long[] acumulado1 = new long[16];
+
+		private long[] acumulado2 = new long[16];
+
+		private long[] campo1 = new long[16];
+
+		private long[] campo2 = new long[16];
+
+		private long[] cuentas = new long[16];
+
+		private final char[] salida = new char[32];
+
+		private void reiniciar() {
+			nivel = -1;
+			abrir(ARREGLO);
+		}
+
+		private void abrir(int tipo) {
+			nivel++;
+			if (nivel == tipos.length) {
+				int capacidad = tipos.length * 2;
+				tipos = Arrays.copyOf(tipos, capacidad);
+				acumulado1 = Arrays.copyOf(acumulado1, capacidad);
+				acumulado2 = Arrays.copyOf(acumulado2, capacidad);
+				campo1 = Arrays.copyOf(campo1, capacidad);
+				campo2 = Arrays.copyOf(campo2, capacidad);
+				cuentas = Arrays.copyOf(cuentas, capacidad);
+			}
+			tipos[nivel] = tipo;
+			acumulado1[nivel] = 0;
+			acumulado2[nivel] = 0;
+			cuentas[nivel] = 0;
+		}
+
+		/**
+		 * Cierra el objeto o arreglo actual y entrega su hash como valor del nivel superior.
+		 */
+		private void cerrar() {
+			h1 = acumulado1[nivel] ^ tipos[nivel];
+			h2 = acumulado2[nivel];
+			mezclar(cuentas[nivel]);
+			nivel--;
+			valor(h1, h2);
+		}
+
+		private void campo(char[] caracteres, int desde, int longitud) {
+			hash(SEMILLA_CAMPO, caracteres, desde, longitud);
+			campo1[nivel] = h1;
+			campo2[nivel] = h2;
+		}
+
+		private void texto(long semilla, char[] caracteres, int desde, int longitud) {
+			hash(semilla, caracteres, desde, longitud);
+			valor(h1, h2);
+		}
+
+		private void constante(long valor) {
+			valor(valor, ~valor);
+		}
+
+		/**
+		 * Agrega un valor al nivel actual: en un objeto se combina con el nombre de su campo y
+		 * se suma (sin importar el orden); en un arreglo se mezcla en orden.
+		 */
+		private void valor(long v1, long v2) {
+			if (tipos[nivel] == OBJETO) {
+				h1 = campo1[nivel];
+				h2 = campo2[nivel];
+				bloque(v1, v2);
+				mezclar(2);
+				acumulado1[nivel] += h1;
+				acumulado2[nivel] += h2;
+			} else {
+				h1 = acumulado1[nivel];
+				h2 = acumulado2[nivel];
+				bloque(v1, v2);
+				acumulado1[nivel] = h1;
+				acumulado2[nivel] = h2;
+			}
+			cuentas[nivel]++;
+		}
+
+		/**
+		 * Hash de una secuencia de caracteres, procesada en bloques de 8 caracteres (128 bits).
+		 */
+		private void hash(long semilla, char[] c, int desde, int longitud) {
+			h1 = semilla;
+			h2 = ~semilla;
+			int fin = desde + longitud;
+			int i = desde;
+			for (; i + 8 <= fin; i += 8) {
+				bloque(c[i] | (long) c[i + 1] << 16 | (long) c[i + 2] << 32 | (long) c[i + 3] << 48,
+						c[i + 4] | (long) c[i + 5] << 16 | (long) c[i + 6] << 32 | (long) c[i + 7] << 48);
+			}
+			if (i < fin) {
+				long k1 = 0;
+				long k2 = 0;
+				for (int j = 0; i < fin; i++, j++) {
+					if (j < 4) {
+						k1 |= (long) c[i] << (16 * j);
+					} else {
+						k2 |= (long) c[i] << (16 * (j - 4));
+					}
+				}
+				bloque(k1, k2);
+			}
+			mezclar(longitud);
+		}
+
+		/** Paso de bloque de MurmurHash3 x64 128. */
+		private void bloque(long k1, long k2) {
+			k1 *= C1;
+			k1 = Long.rotateLeft(k1, 31);
+			k1 *= C2;
+			h1 ^= k1;
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52dce729;
+
+			k2 *= C2;
+			k2 = Long.rotateLeft(k2, 33);
+			k2 *= C1;
+			h2 ^= k2;
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x38495ab5;
+		}
+
+		/** Finalización de MurmurHash3 x64 128. */
+		private void mezclar(long longitud) {
+			h1 ^= longitud;
+			h2 ^= longitud;
+			h1 += h2;
+			h2 += h1;
+			h1 = fmix(h1);
+			h2 = fmix(h2);
+			h1 += h2;
+			h2 += h1;
+		}
+
+		private static long fmix(long k) {
+			k ^= k >>> 33;
+			k *= 0xff51afd7ed558ccdL;
+			k ^= k >>> 33;
+			k *= 0xc4ceb9fe1a85ec53L;
+			k ^= k >>> 33;
+			return k;
+		}
+
+		private String resultado() {
+			h1 = acumulado1[0];
+			h2 = acumulado2[0];
+			mezclar(cuentas[0]);
+			for (int i = 0; i < 16; i++) {
+				salida[i] = HEX[(int) (h1 >>> (60 - 4 * i)) & 0xf];
+				salida[16 + i] = HEX[(int) (h2 >>> (60 - 4 * i)) & 0xf];
+			}
+			return new String(salida);
+		}
+	}
+}
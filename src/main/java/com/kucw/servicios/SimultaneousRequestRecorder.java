@@ -0,0 +1,176 @@
+package com.kucw.servicios;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import com.kucw.presentacion.repositorios.DistributedLockJdbcRepository;
+
+/**
+ * Registro diferido de peticiones simultáneas.
+ *
+ * Cada petición rechazada por contención marcaba el bloqueo con una actualización sobre la misma
+ * fila que se está disputando. Con lock.simultaneous.aggregate=true (predeterminado) las llegadas
+ * se acumulan en memoria por llave (conteo, primera y última llegada) y una tarea programada las
+ * registra cada lock.simultaneous.flush.ms con una sola actualización por llave, en un lote JDBC
+ * por partición. La actualización suma el conteo en NU_PETICIONES_SIMULTANEAS, por lo que los
+ * registros de varios nodos sobre la misma llave se combinan.
+ *
+ * Si se alcanzan lock.simultaneous.max.keys llaves pendientes, las llegadas de llaves nuevas se
+ * registran de inmediato. Las llegadas de un bloqueo que se libera antes del siguiente registro
+ * no actualizan ninguna fila, igual que la marca inmediata que llegaba después de la liberación.
+ */
+@Component
+public class SimultaneousRequestRecorder {
+
+	private static final Logger logger = LoggerFactory.getLogger(SimultaneousRequestRecorder.class);
+
+	@Autowired
+	private DistributedLockJdbcRepository lockJdbcRepository;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Indica si las peticiones simultáneas se acumulan antes de registrarse. Se configura mediante
+	 * la propiedad lock.simultaneous.aggregate con un valor predeterminado de true; con false cada
+	 * llegada actualiza la fila de inmediato.
+	 */
+	@Value("${lock.simultaneous.aggregate:true}")
+	private boolean aggregate;
+
+	/**
+	 * Máximo de llaves con llegadas pendientes de registrar. Se configura mediante la propiedad
+	 * lock.simultaneous.max.keys con un valor predeterminado de 10000.
+	 */
+	@Value("${lock.simultaneous.max.keys:10000}")
+	private int maxKeys;
+
+	/** Llegadas pendientes por llave. */
+	private final ConcurrentMap<String, Acumulado> pendientes = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	void init() {
+		Gauge.builder("lock.simultaneous.pending", pendientes, Map::size)
+				.description("Llaves con peticiones simultáneas pendientes de registrar").register(registry);
+	}
+
+	/**
+	 * Registra la llegada de una petición simultánea sobre un bloqueo vigente.
+	 *
+	 * @param llave   clave del bloqueo
+	 * @param llegada fecha de llegada en milisegundos
+	 */
+	public void record(String llave, long llegada) {
+		if (aggregate) {
+			while (true) {
+				Acumulado acumulado = pendientes.get(llave);
+				if (acumulado == null) {
+					if (pendientes.size() >= maxKeys) {
+						break;
+					}
+					Acumulado nuevo = new Acumulado();
+					acumulado = pendientes.putIfAbsent(llave, nuevo);
+					if (acumulado == null) {
+						acumulado = nuevo;
+					}
+				}
+				if (acumulado.agregar(llegada)) {
+					return;
+				}
+				// El registro periódico cerró el acumulado; se intenta con uno nuevo
+				pendientes.remove(llave, acumulado);
+			}
+		}
+		Date fecha = new Date(llegada);
+		escribir(Collections.singletonList(new Object[] { llave, 1, fecha, fecha }));
+	}
+
+	/**
+	 * Registra las llegadas acumuladas desde la ejecución anterior.
+	 */
+	@Scheduled(fixedDelayString = "${lock.simultaneous.flush.ms:500}")
+	public void flush() {
+		if (pendientes.isEmpty()) {
+			return;
+		}
+		List<Object[]> marcas = new ArrayList<>(pendientes.size());
+		for (Map.Entry<String, Acumulado> entrada : pendientes.entrySet()) {
+			if (pendientes.remove(entrada.getKey(), entrada.getValue())) {
+				Object[] marca = entrada.getValue().cerrar(entrada.getKey());
+				if (marca != null) {
+					marcas.add(marca);
+				}
+			}
+		}
+		escribir(marcas);
+	}
+
+	@PreDestroy
+	void detener() {
+		flush();
+	}
+
+	private void escribir(List<Object[]> marcas) {
+		if (marcas.isEmpty()) {
+			return;
+		}
+		try {
+			lockJdbcRepository.marcarPeticionesSimultaneas(marcas);
+		} catch (DataAccessException e) {
+			logger.error("Error al registrar peticiones simultáneas de {} bloqueos: {}", marcas.size(), e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Llegadas acumuladas de una llave. Una vez cerrado no admite más llegadas, de modo que
+	 * ninguna se pierde entre la lectura del registro periódico y su retiro del mapa.
+	 */
+	private static final class Acumulado {
+
+		private int cuenta;
+
+		private long primera;
+
+		private long ultima;
+
+		private boolean cerrado;
+
+		private synchronized boolean agregar(long llegada) {
+			if (cerrado) {
+				return false;
+			}
+			if (cuenta == 0 || llegada < primera) {
+				primera = llegada;
+			}
+			if (cuenta == 0 || llegada > ultima) {
+				ultima = llegada;
+			}
+			cuenta++;
+			return true;
+		}
+
+		private synchronized Object[] cerrar(String llave) {
+			cerrado = true;
+			return cuenta == 0 ? null : new Object[] { llave, cuenta, new Date(primera), new Date(ultima) };
+		}
+	}
+}
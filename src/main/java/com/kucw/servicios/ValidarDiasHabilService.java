@@ -1,14 +1,222 @@
 package com.kucw.servicios;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.kucw.presentacion.repositorios.NonBusinessDayJdbcRepository;
+
+/**
+ * Consulta de días hábiles por código de parámetro (por ejemplo P00020).
+ *
+ * Los calendarios se mantienen en memoria, uno por parámetro, como arreglos de bits
+ * (BusinessDayCalendar) que cubren desde calendar.years.back años antes hasta
+ * calendar.years.ahead años después del año en curso. Se construyen a partir de los fines de
+ * semana (calendar.weekend) y de los días inhábiles registrados en TB_NSAR_DIA_INHABIL, por lo
+ * que cada consulta es una operación de bits sin acceso a la base de datos.
+ *
+ * Los calendarios se cargan al arrancar, se vuelven a cargar a medianoche (calendar.refresh.cron),
+ * lo que también desplaza el intervalo cubierto, y cuando cambia el contenido de la tabla, que se
+ * revisa cada calendar.refresh.check.ms. Cada carga construye todos los calendarios y los publica
+ * con un solo reemplazo de referencia: una consulta usa la versión anterior o la nueva completa.
+ * Si la carga falla se conservan los calendarios anteriores.
+ */
 @Service
 public class ValidarDiasHabilService {
 
+	private static final Logger logger = LoggerFactory.getLogger(ValidarDiasHabilService.class);
+
+	@Autowired
+	private NonBusinessDayJdbcRepository nonBusinessDayRepository;
+
+	/**
+	 * Códigos de parámetro que siempre tienen calendario, aunque no tengan días inhábiles
+	 * registrados. Se configura mediante la propiedad calendar.parameters con un valor
+	 * predeterminado de P00020.
+	 */
+	@Value("${calendar.parameters:P00020}")
+	private String[] parameters;
+
+	/**
+	 * Días de la semana inhábiles. Se configura mediante la propiedad calendar.weekend con un
+	 * valor predeterminado de SATURDAY,SUNDAY.
+	 */
+	@Value("${calendar.weekend:SATURDAY,SUNDAY}")
+	private String[] weekend;
+
+	/**
+	 * Años anteriores al año en curso que cubren los calendarios. Se configura mediante la
+	 * propiedad calendar.years.back con un valor predeterminado de 1.
+	 */
+	@Value("${calendar.years.back:1}")
+	private int yearsBack;
+
+	/**
+	 * Años posteriores al año en curso que cubren los calendarios. Se configura mediante la
+	 * propiedad calendar.years.ahead con un valor predeterminado de 5.
+	 */
+	@Value("${calendar.years.ahead:5}")
+	private int yearsAhead;
+
+	/** Calendarios vigentes; se reemplazan completos en cada carga. */
+	private volatile Calendarios calendarios = new Calendarios(Collections.emptyMap(), null);
+
+	/**
+	 * Indica si la fecha es día hábil para el parámetro.
+	 *
+	 * @param fecha     fecha a consultar
+	 * @param parametro código del parámetro
+	 * @return "1" si es día hábil, "0" si no lo es, o null si no hay calendario del parámetro
+	 *         que cubra la fecha
+	 */
 	public String obtenerDiaHabil(LocalDate fecha, String parametro) {
-		return null;
+		BusinessDayCalendar calendario = calendarios.porParametro.get(parametro);
+		if (calendario == null || !calendario.covers(fecha)) {
+			return null;
+		}
+		return calendario.isBusinessDay(fecha) ? "1" : "0";
+	}
+
+	/**
+	 * Indica si la fecha es día hábil para el parámetro.
+	 *
+	 * @param parametro código del parámetro
+	 * @param fecha     fecha dentro del intervalo cubierto
+	 * @return true si es día hábil
+	 * @throws IllegalArgumentException si no hay calendario del parámetro o la fecha está fuera de él
+	 */
+	public boolean isBusinessDay(String parametro, LocalDate fecha) {
+		return calendario(parametro).isBusinessDay(fecha);
+	}
+
+	/**
+	 * Siguiente día hábil posterior a la fecha para el parámetro.
+	 *
+	 * @param parametro código del parámetro
+	 * @param fecha     fecha dentro del intervalo cubierto
+	 * @return siguiente día hábil
+	 * @throws IllegalArgumentException si no hay calendario del parámetro o la fecha está fuera de él
+	 */
+	public LocalDate nextBusinessDay(String parametro, LocalDate fecha) {
+		return calendario(parametro).nextBusinessDay(fecha);
+	}
+
+	/**
+	 * Número de días hábiles desde una fecha (incluida) hasta otra (excluida) para el parámetro.
+	 *
+	 * @param parametro código del parámetro
+	 * @param desde     primer día
+	 * @param hasta     día siguiente al último
+	 * @return días hábiles; negativo si hasta es anterior a desde
+	 * @throws IllegalArgumentException si no hay calendario del parámetro o las fechas están fuera de él
+	 */
+	public int businessDaysBetween(String parametro, LocalDate desde, LocalDate hasta) {
+		return calendario(parametro).businessDaysBetween(desde, hasta);
+	}
+
+	private BusinessDayCalendar calendario(String parametro) {
+		BusinessDayCalendar calendario = calendarios.porParametro.get(parametro);
+		if (calendario == null) {
+			throw new IllegalArgumentException("No existe calendario de días hábiles para el parámetro: " + parametro);
+		}
+		return calendario;
 	}
 
+	/**
+	 * Carga los calendarios una sola vez cuando la aplicación está lista, con la tabla ya creada.
+	 * ContextRefreshedEvent se publicaría de nuevo por cada contexto hijo o cada refresco.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	void cargarAlIniciar() {
+		reload();
+	}
+
+	/**
+	 * Construye de nuevo todos los calendarios y los publica juntos. Se ejecuta a medianoche para
+	 * desplazar el intervalo cubierto.
+	 */
+	@Scheduled(cron = "${calendar.refresh.cron:0 0 0 * * *}")
+	public void reload() {
+		try {
+			String version = nonBusinessDayRepository.version();
+			calendarios = construir(version);
+			logger.info("Calendarios de días hábiles cargados: {} (versión {})", calendarios.porParametro.keySet(), version);
+		} catch (DataAccessException e) {
+			logger.error("No fue posible cargar los calendarios de días hábiles: {}", e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Vuelve a cargar los calendarios si cambió el contenido de TB_NSAR_DIA_INHABIL.
+	 */
+	@Scheduled(fixedDelayString = "${calendar.refresh.check.ms:60000}")
+	public void refreshIfChanged() {
+		try {
+			if (!StringUtils.equals(nonBusinessDayRepository.version(), calendarios.version)) {
+				reload();
+			}
+		} catch (DataAccessException e) {
+			logger.error("No fue posible revisar los calendarios de días hábiles: {}", e.getMessage(), e);
+		}
+	}
+
+	private Calendarios construir(String version) {
+		int anio = LocalDate.now().getYear();
+		LocalDate inicio = LocalDate.of(anio - yearsBack, 1, 1);
+		LocalDate fin = LocalDate.of(anio + yearsAhead, 12, 31);
+
+		Map<String, List<LocalDate>> inhabiles = new HashMap<>();
+		for (String parametro : parameters) {
+			if (StringUtils.isNotBlank(parametro)) {
+				inhabiles.put(parametro.trim(), new ArrayList<>());
+			}
+		}
+		for (Object[] fila : nonBusinessDayRepository.consultar(inicio, fin)) {
+			inhabiles.computeIfAbsent((String) fila[0], p -> new ArrayList<>()).add((LocalDate) fila[1]);
+		}
+
+		Set<DayOfWeek> finDeSemana = EnumSet.noneOf(DayOfWeek.class);
+		for (String dia : weekend) {
+			if (StringUtils.isNotBlank(dia)) {
+				finDeSemana.add(DayOfWeek.valueOf(dia.trim()));
+			}
+		}
+
+		Map<String, BusinessDayCalendar> porParametro = new HashMap<>();
+		inhabiles.forEach((parametro, dias) -> porParametro.put(parametro,
+				new BusinessDayCalendar(inicio, fin, finDeSemana, dias)));
+		return new Calendarios(porParametro, version);
+	}
+
+	/**
+	 * Calendarios de una carga y versión de la tabla de la que se construyeron.
+	 */
+	private static final class Calendarios {
+
+		private final Map<String, BusinessDayCalendar> porParametro;
+
+		private final String version;
+
+		private Calendarios(Map<String, BusinessDayCalendar> porParametro, String version) {
+			this.porParametro = porParametro;
+			this.version = version;
+		}
+	}
 }
@@ -0,0 +1,109 @@
+package com.kucw.servicios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.kucw.presentacion.excepciones.ConcurrencyException;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+		"spring.datasource.jdbcUrl=jdbc:h2:mem:asincrono", "spring.jmx.enabled=false", "lock.engine=jdbc",
+		"lock.leader.enabled=false", "lock.wait.timeout.ms=1000", "lock.wait.backoff.initial.ms=10",
+		"lock.wait.backoff.max.ms=20" })
+public class ConcurrencyServiceAsyncTest {
+
+	/** Bloqueo de otro nodo: la espera solo puede avanzar por retroceso. */
+	private static final String SQL_INSERTAR_REMOTO = "INSERT INTO TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS "
+			+ "(ID_BLOQUEO_DISTRIBUIDO, CH_LLAVE_BLOQUEO, CH_PROCESO_BLOQUEO, FC_INICIO_BLOQUEO, FC_EXPIRA_BLOQUEO, "
+			+ "CH_USUARIO_MODIFICADOR, CH_NOMBRE_SERVICIO, CH_PETICION_SIMULTANEA) VALUES "
+			+ "(SEQ_TB_NSAR_BLOQUEO_DISTRIBUIDO_SERVICIOS.NEXTVAL, :llave, 'remoto', :inicio, :expira, 'TEST', 'OTRO_NODO', 'FALSE')";
+
+	@Autowired
+	private ConcurrencyService concurrencyService;
+
+	@Autowired
+	private LockReleaseNotifier releaseNotifier;
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void losReintentosCompartenUnSoloGanchoDeCompletado() throws Exception {
+		String llave = "asincrono:" + UUID.randomUUID();
+		Date ahora = new Date();
+		jdbcTemplate.update(SQL_INSERTAR_REMOTO, new MapSqlParameterSource().addValue("llave", llave)
+				.addValue("inicio", ahora).addValue("expira", new Date(ahora.getTime() + 30_000L)));
+
+		CompletableFuture<String> resultado = concurrencyService.executeWithLockAsync(llave, () -> "ejecutada",
+				executor);
+		// Con pausas de 10 a 20 ms, en medio segundo se acumulan decenas de reintentos
+		Thread.sleep(500);
+		assertFalse(resultado.isDone());
+		assertEquals(1, resultado.getNumberOfDependents());
+
+		try {
+			resultado.get(5, TimeUnit.SECONDS);
+			fail("El bloqueo remoto no expira dentro del plazo");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ConcurrencyException);
+		}
+		assertEquals(0, releaseNotifier.size());
+	}
+
+	@Test
+	public void cancelarDuranteLaEsperaRetiraLaEsperaYNoEjecutaLaAccion() throws Exception {
+		String llave = "asincrono:" + UUID.randomUUID();
+		Optional<String> propietario = concurrencyService.tryLock(llave, 1, TimeUnit.SECONDS);
+		assertTrue(propietario.isPresent());
+
+		AtomicBoolean ejecutada = new AtomicBoolean();
+		CompletableFuture<Boolean> resultado = concurrencyService.executeWithLockAsync(llave,
+				() -> ejecutada.getAndSet(true), executor);
+		Thread.sleep(100);
+		assertEquals(1, releaseNotifier.size());
+
+		resultado.cancel(false);
+		assertEquals(0, releaseNotifier.size());
+
+		concurrencyService.unlock(llave, propietario.get());
+		Thread.sleep(100);
+		assertFalse(ejecutada.get());
+		assertFalse(concurrencyService.isResourceLocked(llave));
+	}
+}
@@ -0,0 +1,82 @@
+package com.kucw.servicios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.kucw.presentacion.modelos.DistributedLockModel;
+
+public class FileLockProviderTest {
+
+	@Rule
+	public TemporaryFolder carpeta = new TemporaryFolder();
+
+	private FileLockProvider provider;
+
+	@Before
+	public void setUp() {
+		provider = new FileLockProvider();
+		ReflectionTestUtils.setField(provider, "directorio", carpeta.getRoot().getPath());
+		provider.init();
+	}
+
+	@After
+	public void tearDown() {
+		provider.detener();
+	}
+
+	@Test
+	public void liberarEliminaElArchivo() {
+		assertTrue(provider.acquire(bloqueo("llave", "p1")));
+		assertFalse(provider.acquire(bloqueo("llave", "p2")));
+		assertEquals(1, archivos().length);
+
+		provider.release("llave", "p1");
+
+		assertEquals(0, archivos().length);
+		assertTrue(provider.acquire(bloqueo("llave", "p2")));
+	}
+
+	@Test
+	public void quienAbrioElArchivoAntesDeEliminarseLoEncuentraMarcado() throws Exception {
+		assertTrue(provider.acquire(bloqueo("llave", "p1")));
+		File archivo = archivos()[0];
+
+		// Otro proceso abre el archivo mientras está bloqueado y obtiene su bloqueo al liberarse
+		try (FileChannel tardio = FileChannel.open(archivo.toPath(), StandardOpenOption.WRITE)) {
+			provider.release("llave", "p1");
+			assertNotNull(tardio.tryLock());
+			assertTrue(tardio.size() > 0);
+		}
+
+		// El nombre queda libre para un archivo nuevo
+		assertTrue(provider.acquire(bloqueo("llave", "p2")));
+		assertEquals(1, archivos().length);
+	}
+
+	private File[] archivos() {
+		return carpeta.getRoot().listFiles();
+	}
+
+	private static DistributedLockModel bloqueo(String llave, String proceso) {
+		DistributedLockModel bloqueo = new DistributedLockModel();
+		bloqueo.setLlaveBloqueo(llave);
+		bloqueo.setProcesoBloqueo(proceso);
+		bloqueo.setFechaInicioBloqueo(new Date());
+		bloqueo.setFechaExpiraBloqueo(new Date(System.currentTimeMillis() + 30_000L));
+		return bloqueo;
+	}
+}
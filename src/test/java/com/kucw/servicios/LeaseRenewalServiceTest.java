@@ -0,0 +1,130 @@
+package com.kucw.servicios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.kucw.presentacion.repositorios.DistributedPermitJdbcRepository;
+import com.kucw.presentacion.repositorios.DistributedSharedLockJdbcRepository;
+import com.kucw.presentacion.repositorios.LockTicketJdbcRepository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LeaseRenewalServiceTest {
+
+	@Mock
+	private LockProvider lockProvider;
+
+	@Mock
+	private DistributedSharedLockJdbcRepository sharedLockJdbcRepository;
+
+	@Mock
+	private DistributedPermitJdbcRepository permitJdbcRepository;
+
+	@Mock
+	private LockTicketJdbcRepository ticketJdbcRepository;
+
+	@Spy
+	private LocalLockRegistry localLocks = new LocalLockRegistry();
+
+	@InjectMocks
+	private LeaseRenewalService leaseRenewal;
+
+	@Before
+	public void setUp() {
+		ReflectionTestUtils.setField(leaseRenewal, "lockTimeoutSeconds", 30);
+	}
+
+	@Test
+	public void renovacionParcialRetiraYMarcaLosBloqueosPerdidos() {
+		long expira = System.currentTimeMillis() + 1000;
+		localLocks.tryAcquire("vigente", "p1", expira);
+		localLocks.tryAcquire("tomado", "p2", expira);
+		leaseRenewal.register("vigente", "p1");
+		leaseRenewal.register("tomado", "p2");
+		when(lockProvider.renew(anyList(), any())).thenAnswer(invocacion -> {
+			List<Object[]> renovados = new ArrayList<>();
+			for (Object[] par : invocacion.<List<Object[]>>getArgument(0)) {
+				if ("vigente".equals(par[0])) {
+					renovados.add(par);
+				}
+			}
+			return renovados;
+		});
+
+		leaseRenewal.renewHeldLocks();
+
+		assertEquals(1, leaseRenewal.size());
+		assertFalse(leaseRenewal.isLost("vigente", "p1"));
+		assertTrue(leaseRenewal.isLost("tomado", "p2"));
+		assertTrue(localLocks.heldNanos("vigente", "p1") >= 0);
+		assertEquals(-1, localLocks.heldNanos("tomado", "p2"));
+
+		// El propietario retira la marca al liberar
+		leaseRenewal.unregister("tomado", "p2");
+		assertFalse(leaseRenewal.isLost("tomado", "p2"));
+	}
+
+	@Test
+	public void liberacionForzadaMarcaSoloLosBloqueosDeEsteNodo() {
+		leaseRenewal.register("llave", "p1");
+
+		leaseRenewal.revoke("llave", "p1");
+		leaseRenewal.revoke("otra", "p9");
+
+		assertEquals(0, leaseRenewal.size());
+		assertTrue(leaseRenewal.isLost("llave", "p1"));
+		assertFalse(leaseRenewal.isLost("otra", "p9"));
+	}
+
+	@Test
+	public void renuevaElTurnoSoloSiSeRenovoSuBloqueo() {
+		leaseRenewal.register("vigente", "p1");
+		leaseRenewal.registerTicket("vigente", "p1", 7L);
+		leaseRenewal.register("tomado", "p2");
+		leaseRenewal.registerTicket("tomado", "p2", 8L);
+		when(lockProvider.renew(anyList(), any())).thenAnswer(invocacion -> {
+			List<Object[]> renovados = new ArrayList<>();
+			for (Object[] par : invocacion.<List<Object[]>>getArgument(0)) {
+				if ("vigente".equals(par[0])) {
+					renovados.add(par);
+				}
+			}
+			return renovados;
+		});
+
+		leaseRenewal.renewHeldLocks();
+
+		verify(ticketJdbcRepository).renovar(eq(Collections.singletonList(7L)), any());
+	}
+
+	@Test
+	public void turnoRetiradoDejaDeRenovarse() {
+		leaseRenewal.register("llave", "p1");
+		leaseRenewal.registerTicket("llave", "p1", 7L);
+		leaseRenewal.unregisterTicket("llave", "p1");
+		when(lockProvider.renew(anyList(), any())).thenAnswer(invocacion -> invocacion.getArgument(0));
+
+		leaseRenewal.renewHeldLocks();
+
+		verify(ticketJdbcRepository, never()).renovar(anyList(), any());
+	}
+}
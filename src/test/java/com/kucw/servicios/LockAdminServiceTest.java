@@ -0,0 +1,63 @@
+package com.kucw.servicios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+		"spring.datasource.jdbcUrl=jdbc:h2:mem:administracion", "spring.jmx.enabled=false", "lock.engine=jdbc",
+		"lock.leader.enabled=false", "lock.release.mode=async" })
+public class LockAdminServiceTest {
+
+	@Autowired
+	private LockAdminService lockAdminService;
+
+	@SpyBean
+	private LockManagerService lockManager;
+
+	@Test
+	public void forceReleaseProcessCountsOnlyDeletedLocks() {
+		for (int i = 0; i < 3; i++) {
+			assertTrue(lockManager.acquireLock("admin-" + i, "p-admin"));
+		}
+
+		// Con liberación asíncrona la eliminación forzada sigue siendo inmediata
+		assertEquals(3, lockAdminService.forceReleaseProcess("p-admin"));
+		assertEquals(0, lockAdminService.forceReleaseProcess("p-admin"));
+		for (int i = 0; i < 3; i++) {
+			assertTrue(lockManager.isLockLost("admin-" + i, "p-admin"));
+			assertFalse(lockManager.isLocked("admin-" + i));
+		}
+	}
+
+	@Test
+	public void forceReleaseReportsAnOwnerChangedBeforeTheDelete() {
+		assertTrue(lockManager.acquireLock("admin-cambio", "p1"));
+		doAnswer(invocacion -> {
+			// Entre la lectura y la eliminación el propietario libera y otro proceso toma la llave
+			lockManager.releaseLock("admin-cambio", "p1");
+			assertTrue(lockManager.acquireLock("admin-cambio", "p2"));
+			return invocacion.callRealMethod();
+		}).when(lockManager).revokeLock(eq("admin-cambio"), eq("p1"));
+
+		try {
+			lockAdminService.forceRelease("admin-cambio");
+			fail("La liberación no eliminó nada y debía informarlo");
+		} catch (IllegalStateException e) {
+			assertTrue(lockManager.isLocked("admin-cambio"));
+		}
+		assertNull(lockAdminService.forceRelease("admin-sin-registro"));
+	}
+}
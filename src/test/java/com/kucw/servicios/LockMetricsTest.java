@@ -0,0 +1,43 @@
+package com.kucw.servicios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LockMetricsTest {
+
+	@Test
+	public void elMotorJdbcNoRegistraLasTomasExpiradas() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		LockMetrics metrics = iniciar(registry, "jdbc");
+
+		metrics.expiredTakeover();
+
+		assertNull(registry.find("lock.expired.takeovers").counter());
+	}
+
+	@Test
+	public void elMotorJpaCuentaLasTomasExpiradas() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		LockMetrics metrics = iniciar(registry, "jpa");
+
+		metrics.expiredTakeover();
+
+		assertEquals(1.0, registry.get("lock.expired.takeovers").counter().count(), 0.0);
+	}
+
+	private static LockMetrics iniciar(MeterRegistry registry, String engine) {
+		LockMetrics metrics = new LockMetrics();
+		ReflectionTestUtils.setField(metrics, "registry", registry);
+		ReflectionTestUtils.setField(metrics, "purger", mock(ExpiredRowsPurger.class));
+		ReflectionTestUtils.setField(metrics, "engine", engine);
+		metrics.init();
+		return metrics;
+	}
+}
@@ -0,0 +1,99 @@
+package com.kucw.servicios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.kucw.presentacion.repositorios.LockTicketJdbcRepository;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+		"spring.datasource.jdbcUrl=jdbc:h2:mem:turnos", "spring.jmx.enabled=false", "lock.engine=jdbc",
+		"lock.leader.enabled=false" })
+public class LockTicketDepthTest {
+
+	private static final int MAXIMO = 5;
+
+	@Autowired
+	private LockTicketJdbcRepository ticketRepository;
+
+	@Test
+	public void concurrentTicketsNeverExceedDepth() throws Exception {
+		int procesos = 40;
+		ExecutorService executor = Executors.newFixedThreadPool(procesos);
+		CountDownLatch salida = new CountDownLatch(1);
+		Date ahora = new Date();
+		Date expira = new Date(ahora.getTime() + 60000);
+		try {
+			List<Future<Long>> turnos = new ArrayList<>();
+			for (int i = 0; i < procesos; i++) {
+				String proceso = "p" + i;
+				turnos.add(executor.submit((Callable<Long>) () -> {
+					salida.await();
+					return ticketRepository.tomar("llave-concurrente", proceso, ahora, expira, MAXIMO);
+				}));
+			}
+			salida.countDown();
+
+			int tomados = 0;
+			for (Future<Long> turno : turnos) {
+				if (turno.get() != null) {
+					tomados++;
+				}
+			}
+			assertEquals(MAXIMO, tomados);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void freedOrExpiredPositionIsTakenAtTheEndOfTheQueue() {
+		Date ahora = new Date();
+		Date expira = new Date(ahora.getTime() + 60000);
+		Long primero = ticketRepository.tomar("llave-reuso", "p0", ahora, new Date(ahora.getTime() + 10), 2);
+		Long segundo = ticketRepository.tomar("llave-reuso", "p1", ahora, expira, 2);
+		assertNotNull(primero);
+		assertNotNull(segundo);
+		assertNull(ticketRepository.tomar("llave-reuso", "p2", ahora, expira, 2));
+
+		// La posición del primer turno expiró: se toma en sitio con un identificador posterior
+		Date despues = new Date(ahora.getTime() + 1000);
+		Long tercero = ticketRepository.tomar("llave-reuso", "p2", despues, expira, 2);
+		assertNotNull(tercero);
+		assertTrue(tercero > segundo);
+		assertEquals("p1", ticketRepository.anterior("llave-reuso", tercero, despues));
+
+		ticketRepository.eliminar(segundo);
+		assertNotNull(ticketRepository.tomar("llave-reuso", "p3", despues, expira, 2));
+		assertNull(ticketRepository.tomar("llave-reuso", "p4", despues, expira, 2));
+	}
+
+	@Test
+	public void renewedTicketKeepsItsPosition() {
+		Date ahora = new Date();
+		Long turno = ticketRepository.tomar("llave-renovada", "p0", ahora, new Date(ahora.getTime() + 10), 1);
+		assertNotNull(turno);
+		assertEquals(1, ticketRepository.renovar(Collections.singletonList(turno), new Date(ahora.getTime() + 60000)));
+
+		assertNull(ticketRepository.tomar("llave-renovada", "p1", new Date(ahora.getTime() + 1000),
+				new Date(ahora.getTime() + 60000), 1));
+	}
+}
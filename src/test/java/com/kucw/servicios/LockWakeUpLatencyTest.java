@@ -0,0 +1,96 @@
+package com.kucw.servicios;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Un proceso que espera una llave mantenida en el mismo nodo debe despertar por la cola local
+ * (LockReleaseNotifier) en cuanto se libera, no al terminar la pausa de retroceso. La pausa se
+ * fija en un segundo para que un despertar por retroceso no pueda pasar por uno local.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+		"spring.datasource.jdbcUrl=jdbc:h2:mem:despertar", "spring.jmx.enabled=false", "lock.engine=jdbc",
+		"lock.leader.enabled=false", "lock.wait.backoff.initial.ms=1000", "lock.wait.backoff.max.ms=1000" })
+public class LockWakeUpLatencyTest {
+
+	/** Despertar máximo aceptado: una cuarta parte de la pausa de retroceso. */
+	private static final long MAXIMO_MS = 250;
+
+	private static final int ITERACIONES = 10;
+
+	/** Tiempo que el propietario mantiene el bloqueo con el proceso ya en espera. */
+	private static final long RETENCION_MS = 50;
+
+	@Autowired
+	private ConcurrencyService concurrencyService;
+
+	@Test
+	public void esperaSincronaDespiertaConLaLiberacionLocal() throws Exception {
+		for (int i = 0; i < ITERACIONES; i++) {
+			String llave = "despertar:" + UUID.randomUUID();
+			Optional<String> propietario = concurrencyService.tryLock(llave, 1, TimeUnit.SECONDS);
+			assertTrue(propietario.isPresent());
+
+			CountDownLatch esperando = new CountDownLatch(1);
+			AtomicLong adquirido = new AtomicLong();
+			Thread proceso = new Thread(() -> {
+				esperando.countDown();
+				Optional<String> obtenido = concurrencyService.tryLock(llave, 5, TimeUnit.SECONDS);
+				adquirido.set(System.nanoTime());
+				obtenido.ifPresent(id -> concurrencyService.unlock(llave, id));
+			});
+			proceso.start();
+			esperando.await();
+
+			Thread.sleep(RETENCION_MS);
+			long liberado = System.nanoTime();
+			concurrencyService.unlock(llave, propietario.get());
+			proceso.join();
+
+			assertDespierta(liberado, adquirido.get());
+		}
+	}
+
+	@Test
+	public void esperaAsincronaDespiertaConLaLiberacionLocal() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (int i = 0; i < ITERACIONES; i++) {
+				String llave = "despertar:" + UUID.randomUUID();
+				Optional<String> propietario = concurrencyService.tryLock(llave, 1, TimeUnit.SECONDS);
+				assertTrue(propietario.isPresent());
+
+				CompletableFuture<Long> adquirido = concurrencyService.executeWithLockAsync(llave, System::nanoTime,
+						executor);
+
+				Thread.sleep(RETENCION_MS);
+				long liberado = System.nanoTime();
+				concurrencyService.unlock(llave, propietario.get());
+
+				assertDespierta(liberado, adquirido.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void assertDespierta(long liberado, long adquirido) {
+		long latenciaMs = TimeUnit.NANOSECONDS.toMillis(adquirido - liberado);
+		assertTrue("El proceso despertó " + latenciaMs + " ms después de la liberación", latenciaMs < MAXIMO_MS);
+	}
+}
@@ -0,0 +1,108 @@
+package com.kucw.servicios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.kucw.presentacion.repositorios.DistributedPermitJdbcRepository;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+		"spring.datasource.jdbcUrl=jdbc:h2:mem:permisos", "spring.jmx.enabled=false", "lock.engine=jdbc",
+		"lock.leader.enabled=false" })
+public class PermitManagerServiceTest {
+
+	private static final int LIMITE = 3;
+
+	private static final String SQL_FILAS = "SELECT COUNT(*) FROM TB_NSAR_PERMISO_CONCURRENCIA "
+			+ "WHERE CH_LLAVE_PERMISO = :llave";
+
+	@Autowired
+	private PermitManagerService permitManager;
+
+	@Autowired
+	private DistributedPermitJdbcRepository permitRepository;
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	@Test
+	public void concurrentAcquisitionsNeverExceedTheLimit() throws Exception {
+		int procesos = 40;
+		ExecutorService executor = Executors.newFixedThreadPool(procesos);
+		CountDownLatch salida = new CountDownLatch(1);
+		try {
+			List<Future<Boolean>> permisos = new ArrayList<>();
+			for (int i = 0; i < procesos; i++) {
+				String proceso = "p" + i;
+				permisos.add(executor.submit((Callable<Boolean>) () -> {
+					salida.await();
+					return permitManager.tryAcquirePermit("llave-concurrente", proceso, LIMITE);
+				}));
+			}
+			salida.countDown();
+
+			int tomados = 0;
+			for (Future<Boolean> permiso : permisos) {
+				if (permiso.get()) {
+					tomados++;
+				}
+			}
+			assertEquals(LIMITE, tomados);
+			assertEquals(LIMITE, permitManager.activePermits("llave-concurrente"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void releasedPermitIsReusedInPlace() {
+		for (int i = 0; i < LIMITE; i++) {
+			assertTrue(permitManager.tryAcquirePermit("llave-reuso", "p" + i, LIMITE));
+		}
+		assertFalse(permitManager.tryAcquirePermit("llave-reuso", "otro", LIMITE));
+
+		permitManager.releasePermit("llave-reuso", "p1");
+		assertEquals(LIMITE - 1, permitManager.activePermits("llave-reuso"));
+		assertTrue(permitManager.tryAcquirePermit("llave-reuso", "otro", LIMITE));
+
+		// La fila devuelta se tomó en sitio: no se agregan filas por encima del límite
+		assertEquals(LIMITE, permitManager.activePermits("llave-reuso"));
+		assertEquals(Integer.valueOf(LIMITE), jdbcTemplate.queryForObject(SQL_FILAS,
+				new MapSqlParameterSource("llave", "llave-reuso"), Integer.class));
+	}
+
+	@Test
+	public void renewalAfterReleaseDoesNotReviveThePermit() {
+		assertTrue(permitManager.tryAcquirePermit("llave-renovacion", "p0", 2));
+		assertTrue(permitManager.tryAcquirePermit("llave-renovacion", "p1", 2));
+
+		// El ciclo de renovación tomó su copia de los permisos antes de la devolución
+		List<Object[]> pares = Collections.singletonList(new Object[] { "llave-renovacion", "p0" });
+		permitManager.releasePermit("llave-renovacion", "p0");
+		int renovados = permitRepository.renovar(pares, new Date(System.currentTimeMillis() + 60000));
+
+		assertEquals(0, renovados);
+		assertEquals(1, permitManager.activePermits("llave-renovacion"));
+	}
+}
@@ -0,0 +1,62 @@
+package com.kucw.servicios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+public class RequestFingerprinterTest {
+
+	private final RequestFingerprinter fingerprinter = new RequestFingerprinter();
+
+	@Test
+	public void elOrdenDeLosCamposYLosEspaciosNoAlteranLaHuella() throws IOException {
+		String huella = huella("{\"nss\":\"12345678901\",\"curp\":\"ABCD\",\"datos\":{\"a\":1,\"b\":[true,null]}}");
+
+		assertEquals(huella, huella("{ \"curp\" : \"ABCD\",\n\t\"datos\": { \"b\": [ true, null ], \"a\": 1 },\n"
+				+ "  \"nss\": \"12345678901\" }"));
+		assertEquals(32, huella.length());
+	}
+
+	@Test
+	public void unValorDeOtroTipoProduceOtraHuella() throws IOException {
+		String huella = huella("{\"folio\":\"1\"}");
+
+		assertNotEquals(huella, huella("{\"folio\":1}"));
+		assertNotEquals(huella, huella("{\"folio\":[\"1\"]}"));
+		assertNotEquals(huella("{\"activo\":true}"), huella("{\"activo\":\"true\"}"));
+		assertNotEquals(huella("{\"valor\":null}"), huella("{\"valor\":\"null\"}"));
+	}
+
+	@Test
+	public void elOrdenDeLosElementosDeUnArregloSiAlteraLaHuella() throws IOException {
+		assertNotEquals(huella("{\"lista\":[1,2]}"), huella("{\"lista\":[2,1]}"));
+	}
+
+	@Test
+	public void unCampoMovidoAOtroObjetoProduceOtraHuella() throws IOException {
+		assertNotEquals(huella("{\"a\":{\"x\":1},\"b\":{}}"), huella("{\"a\":{},\"b\":{\"x\":1}}"));
+	}
+
+	@Test
+	public void laHuellaSeCalculaSobreElRangoIndicado() throws IOException {
+		byte[] datos = "xx{\"a\":1}yy".getBytes(StandardCharsets.UTF_8);
+
+		assertEquals(huella("{\"a\":1}"), fingerprinter.fingerprint(datos, 2, datos.length - 4));
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void unContenidoInvalidoSeRechaza() throws IOException {
+		huella("{\"a\":");
+	}
+
+	private String huella(String json) throws IOException {
+		byte[] datos = json.getBytes(StandardCharsets.UTF_8);
+		return fingerprinter.fingerprint(datos, 0, datos.length);
+	}
+}
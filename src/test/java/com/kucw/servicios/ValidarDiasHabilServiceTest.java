@@ -0,0 +1,61 @@
+package com.kucw.servicios;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+		"spring.datasource.jdbcUrl=jdbc:h2:mem:calendario", "spring.jmx.enabled=false", "lock.engine=jdbc",
+		"lock.leader.enabled=false" })
+public class ValidarDiasHabilServiceTest {
+
+	private static final String SQL_INSERTAR = "INSERT INTO TB_NSAR_DIA_INHABIL (ID_DIA_INHABIL, CH_PARAMETRO, "
+			+ "FC_DIA_INHABIL) VALUES (SEQ_TB_NSAR_DIA_INHABIL.NEXTVAL, 'P00020', :dia)";
+
+	private static final String SQL_MOVER = "UPDATE TB_NSAR_DIA_INHABIL SET FC_DIA_INHABIL = :nuevo "
+			+ "WHERE FC_DIA_INHABIL = :anterior";
+
+	@Autowired
+	private ValidarDiasHabilService diasHabiles;
+
+	@Autowired
+	@Qualifier("demoJdbcTemplate")
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	@Test
+	public void detectsAHolidayMovedInPlace() {
+		LocalDate martes = siguiente(LocalDate.now().withDayOfYear(1), DayOfWeek.TUESDAY);
+		LocalDate miercoles = martes.plusDays(1);
+		jdbcTemplate.update(SQL_INSERTAR, new MapSqlParameterSource("dia", Date.valueOf(martes)));
+		diasHabiles.refreshIfChanged();
+		assertEquals("0", diasHabiles.obtenerDiaHabil(martes, "P00020"));
+
+		// Mismo número de días y mismo identificador mayor: solo cambia la fecha
+		jdbcTemplate.update(SQL_MOVER, new MapSqlParameterSource("nuevo", Date.valueOf(miercoles))
+				.addValue("anterior", Date.valueOf(martes)));
+		diasHabiles.refreshIfChanged();
+
+		assertEquals("1", diasHabiles.obtenerDiaHabil(martes, "P00020"));
+		assertEquals("0", diasHabiles.obtenerDiaHabil(miercoles, "P00020"));
+	}
+
+	private static LocalDate siguiente(LocalDate fecha, DayOfWeek dia) {
+		LocalDate resultado = fecha;
+		while (resultado.getDayOfWeek() != dia) {
+			resultado = resultado.plusDays(1);
+		}
+		return resultado;
+	}
+}